@@ -0,0 +1,171 @@
+package top.tobyprime.mcedia.decoders;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AudioDsp} 各个内核的标量与向量实现对比，每个内核一对 xxxScalar / xxxVector。
+ * <p>
+ * 向量实现处理整数个向量后由标量收尾，与 {@link AudioDsp} 的公开方法走的路径相同。
+ * 运行：gradlew :core:jmh
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class AudioDspBenchmark {
+    // 一个音频包的采样数，1024 约为 AAC 的一帧
+    @Param({"1024", "4096"})
+    public int frames;
+
+    private static final int TAPS = 32;
+    private static final int PHASES = 64;
+    // 48000 -> 44100
+    private static final float STEP = 48000f / 44100f;
+
+    private short[] shorts;
+    private float[] mono;
+    private float[] stereo;
+    private float[] out;
+    private float[] bank;
+    // 非常量的增益，反复缩放也不会衰减到非规格化数
+    private float gain = 1f;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        shorts = new short[frames];
+        mono = new float[frames];
+        stereo = new float[frames * 2];
+        out = new float[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            shorts[i] = (short) random.nextInt();
+            mono[i] = random.nextFloat() * 2 - 1;
+        }
+        for (int i = 0; i < stereo.length; i++) {
+            stereo[i] = random.nextFloat() * 2 - 1;
+        }
+        bank = AudioDsp.polyphaseFilter(PHASES, TAPS, Math.min(1f, 1f / STEP));
+    }
+
+    @Benchmark
+    public float[] toFloatScalar() {
+        AudioDsp.toFloatScalar(shorts, out, 0, frames);
+        return out;
+    }
+
+    @Benchmark
+    public float[] toFloatVector() {
+        int i = VectorAudioDsp.toFloat(shorts, out, frames);
+        AudioDsp.toFloatScalar(shorts, out, i, frames);
+        return out;
+    }
+
+    @Benchmark
+    public short[] toS16Scalar() {
+        AudioDsp.toS16Scalar(mono, shorts, 0, frames);
+        return shorts;
+    }
+
+    @Benchmark
+    public short[] toS16Vector() {
+        int i = VectorAudioDsp.toS16(mono, shorts, frames);
+        AudioDsp.toS16Scalar(mono, shorts, i, frames);
+        return shorts;
+    }
+
+    @Benchmark
+    public float[] accumulateScalar() {
+        AudioDsp.accumulateScalar(mono, out, 0, frames);
+        return out;
+    }
+
+    @Benchmark
+    public float[] accumulateVector() {
+        int i = VectorAudioDsp.accumulate(mono, out, frames);
+        AudioDsp.accumulateScalar(mono, out, i, frames);
+        return out;
+    }
+
+    @Benchmark
+    public float[] scaleScalar() {
+        AudioDsp.scaleScalar(out, 0, frames, gain);
+        return out;
+    }
+
+    @Benchmark
+    public float[] scaleVector() {
+        int i = VectorAudioDsp.scale(out, frames, gain);
+        AudioDsp.scaleScalar(out, i, frames, gain);
+        return out;
+    }
+
+    @Benchmark
+    public float[] downmixScalar() {
+        AudioDsp.downmixInterleavedScalar(stereo, 2, out, 0, frames);
+        return out;
+    }
+
+    @Benchmark
+    public float[] downmixVector() {
+        int i = VectorAudioDsp.downmixStereo(stereo, out, frames);
+        AudioDsp.downmixInterleavedScalar(stereo, 2, out, i, frames);
+        return out;
+    }
+
+    @Benchmark
+    public float[] upmixScalar() {
+        AudioDsp.upmixInterleavedScalar(mono, 2, out, 0, frames);
+        return out;
+    }
+
+    @Benchmark
+    public float[] upmixVector() {
+        int i = VectorAudioDsp.upmixStereo(mono, out, frames);
+        AudioDsp.upmixInterleavedScalar(mono, 2, out, i, frames);
+        return out;
+    }
+
+    @Benchmark
+    public float[] resampleLinearScalar() {
+        int count = AudioDsp.resampleOutputs(frames, out.length, STEP, 2);
+        AudioDsp.resampleLinearScalar(mono, out, 0, count, STEP);
+        return out;
+    }
+
+    @Benchmark
+    public float[] resampleLinearVector() {
+        int count = AudioDsp.resampleOutputs(frames, out.length, STEP, 2);
+        int i = VectorAudioDsp.resampleLinear(mono, out, count, STEP);
+        AudioDsp.resampleLinearScalar(mono, out, i, count, STEP);
+        return out;
+    }
+
+    @Benchmark
+    public float[] resamplePolyphaseScalar() {
+        int count = AudioDsp.resampleOutputs(frames, out.length, STEP, TAPS);
+        AudioDsp.resamplePolyphaseScalar(mono, out, 0, count, STEP, bank, PHASES, TAPS);
+        return out;
+    }
+
+    @Benchmark
+    public float[] resamplePolyphaseVector() {
+        int count = AudioDsp.resampleOutputs(frames, out.length, STEP, TAPS);
+        VectorAudioDsp.resamplePolyphase(mono, out, count, STEP, bank, PHASES, TAPS);
+        return out;
+    }
+}
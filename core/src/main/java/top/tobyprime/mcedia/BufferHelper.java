@@ -1,16 +1,33 @@
 package top.tobyprime.mcedia;
 
-import org.lwjgl.system.MemoryUtil;
-
 import java.nio.*;
 
 public class BufferHelper {
+    public static int elementSize(Buffer buffer) {
+        return switch (buffer) {
+            case ByteBuffer ignored -> 1;
+            case ShortBuffer ignored -> 2;
+            case IntBuffer ignored -> 4;
+            case FloatBuffer ignored -> 4;
+            case LongBuffer ignored -> 8;
+            case DoubleBuffer ignored -> 8;
+            default -> throw new IllegalArgumentException("Unsupported buffer type: " + buffer.getClass());
+        };
+    }
+
+    /**
+     * 缓冲区容量对应的字节数
+     */
+    public static long sizeInBytes(Buffer buffer) {
+        return (long) buffer.capacity() * elementSize(buffer);
+    }
+
     public static Buffer cloneBuffer(Buffer src) {
         switch (src) {
             case ByteBuffer byteBuf -> {
                 ByteBuffer dup = byteBuf.duplicate();
                 dup.clear();
-                ByteBuffer copy = MemoryUtil.memAlloc(dup.remaining());
+                ByteBuffer copy = BufferPool.getInstance().acquire(dup.remaining());
                 copy.put(dup);
                 copy.flip();
                 return copy;
@@ -18,7 +35,7 @@ public class BufferHelper {
             case ShortBuffer shortBuf -> {
                 ShortBuffer dup = shortBuf.duplicate();
                 dup.clear();
-                ShortBuffer copy = MemoryUtil.memAllocShort(dup.remaining());
+                ShortBuffer copy = BufferPool.getInstance().acquireShort(dup.remaining());
                 copy.put(dup);
                 copy.flip();
                 return copy;
@@ -26,7 +43,7 @@ public class BufferHelper {
             case IntBuffer intBuf -> {
                 IntBuffer dup = intBuf.duplicate();
                 dup.clear();
-                IntBuffer copy = MemoryUtil.memAllocInt(dup.remaining());
+                IntBuffer copy = BufferPool.getInstance().acquireInt(dup.remaining());
                 copy.put(dup);
                 copy.flip();
                 return copy;
@@ -34,7 +51,7 @@ public class BufferHelper {
             case FloatBuffer floatBuf -> {
                 FloatBuffer dup = floatBuf.duplicate();
                 dup.clear();
-                FloatBuffer copy = MemoryUtil.memAllocFloat(dup.remaining());
+                FloatBuffer copy = BufferPool.getInstance().acquireFloat(dup.remaining());
                 copy.put(dup);
                 copy.flip();
                 return copy;
@@ -42,7 +59,7 @@ public class BufferHelper {
             case LongBuffer longBuf -> {
                 LongBuffer dup = longBuf.duplicate();
                 dup.clear();
-                LongBuffer copy = MemoryUtil.memAllocLong(dup.remaining());
+                LongBuffer copy = BufferPool.getInstance().acquireLong(dup.remaining());
                 copy.put(dup);
                 copy.flip();
                 return copy;
@@ -50,7 +67,7 @@ public class BufferHelper {
             case DoubleBuffer doubleBuf -> {
                 DoubleBuffer dup = doubleBuf.duplicate();
                 dup.clear();
-                DoubleBuffer copy = MemoryUtil.memAllocDouble(dup.remaining());
+                DoubleBuffer copy = BufferPool.getInstance().acquireDouble(dup.remaining());
                 copy.put(dup);
                 copy.flip();
                 return copy;
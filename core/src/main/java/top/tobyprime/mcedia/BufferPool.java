@@ -0,0 +1,131 @@
+package top.tobyprime.mcedia;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.*;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按尺寸分级复用的堆外缓冲池，视频帧（宽×高×通道）和音频包（采样数）关闭时归还到这里，稳定播放时不再做 native 分配
+ */
+public class BufferPool {
+    private static final BufferPool INSTANCE = new BufferPool();
+    // 尺寸分级粒度，同一路流里的帧大小一致，音频包采样数的小幅抖动也会落到同一级
+    private static final int SIZE_CLASS_GRANULARITY = 4096;
+
+    private final ConcurrentHashMap<Integer, Queue<ByteBuffer>> freeLists = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong residentBytes = new AtomicLong();
+    private final AtomicLong idleBytes = new AtomicLong();
+
+    public static BufferPool getInstance() {
+        return INSTANCE;
+    }
+
+    private static int sizeClass(int bytes) {
+        return Math.max(1, (bytes + SIZE_CLASS_GRANULARITY - 1) / SIZE_CLASS_GRANULARITY) * SIZE_CLASS_GRANULARITY;
+    }
+
+    /**
+     * 取出至少 bytes 字节的缓冲区，limit 为 bytes
+     */
+    public ByteBuffer acquire(int bytes) {
+        int size = sizeClass(bytes);
+        var freeList = freeLists.get(size);
+        ByteBuffer buffer = freeList == null ? null : freeList.poll();
+        if (buffer != null) {
+            hits.incrementAndGet();
+            idleBytes.addAndGet(-size);
+        } else {
+            misses.incrementAndGet();
+            residentBytes.addAndGet(size);
+            buffer = MemoryUtil.memAlloc(size);
+        }
+        buffer.clear().limit(bytes);
+        return buffer;
+    }
+
+    public ShortBuffer acquireShort(int count) {
+        var bytes = acquire(count * 2);
+        return MemoryUtil.memShortBuffer(MemoryUtil.memAddress0(bytes), bytes.capacity() / 2).limit(count);
+    }
+
+    public IntBuffer acquireInt(int count) {
+        var bytes = acquire(count * 4);
+        return MemoryUtil.memIntBuffer(MemoryUtil.memAddress0(bytes), bytes.capacity() / 4).limit(count);
+    }
+
+    public FloatBuffer acquireFloat(int count) {
+        var bytes = acquire(count * 4);
+        return MemoryUtil.memFloatBuffer(MemoryUtil.memAddress0(bytes), bytes.capacity() / 4).limit(count);
+    }
+
+    public LongBuffer acquireLong(int count) {
+        var bytes = acquire(count * 8);
+        return MemoryUtil.memLongBuffer(MemoryUtil.memAddress0(bytes), bytes.capacity() / 8).limit(count);
+    }
+
+    public DoubleBuffer acquireDouble(int count) {
+        var bytes = acquire(count * 8);
+        return MemoryUtil.memDoubleBuffer(MemoryUtil.memAddress0(bytes), bytes.capacity() / 8).limit(count);
+    }
+
+    /**
+     * 归还缓冲区，不属于任何尺寸分级或空闲内存超过上限时直接释放
+     */
+    public void release(Buffer buffer) {
+        long size = BufferHelper.sizeInBytes(buffer);
+        if (size <= 0 || size % SIZE_CLASS_GRANULARITY != 0 || size > Integer.MAX_VALUE) {
+            MemoryUtil.memFree(buffer);
+            return;
+        }
+        if (idleBytes.get() + size > Configs.BUFFER_POOL_MAX_IDLE_MB * 1024L * 1024L) {
+            residentBytes.addAndGet(-size);
+            MemoryUtil.memFree(buffer);
+            return;
+        }
+        var bytes = buffer instanceof ByteBuffer byteBuffer ? byteBuffer : MemoryUtil.memByteBuffer(MemoryUtil.memAddress0(buffer), (int) size);
+        idleBytes.addAndGet(size);
+        freeLists.computeIfAbsent((int) size, k -> new ConcurrentLinkedQueue<>()).offer(bytes);
+    }
+
+    /**
+     * 释放所有空闲缓冲区
+     */
+    public void trim() {
+        for (var freeList : freeLists.values()) {
+            ByteBuffer buffer;
+            while ((buffer = freeList.poll()) != null) {
+                idleBytes.addAndGet(-buffer.capacity());
+                residentBytes.addAndGet(-buffer.capacity());
+                MemoryUtil.memFree(buffer);
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 由缓冲池分配且尚未释放的字节数（使用中 + 空闲）
+     */
+    public long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    /**
+     * 池中空闲等待复用的字节数
+     */
+    public long getIdleBytes() {
+        return idleBytes.get();
+    }
+}
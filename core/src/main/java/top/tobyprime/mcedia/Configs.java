@@ -40,6 +40,53 @@ public class Configs {
     public static int DECODER_MAX_AUDIO_FRAMES = 512;
     public static int DECODER_MAX_VIDEO_FRAMES = 120;
     public static int DECODER_LOW_OVERHEAD_VIDEO_FRAMES = 20;
+    // 解码引擎：libav 直接使用 libavformat/libavcodec，grabber 使用 FFmpegFrameGrabber；libav 打开失败时回退到 grabber
+    public static String DECODER_ENGINE = "libav";
+    // libav 引擎中单个解码器的线程数，0 表示由 FFmpeg 自动决定
+    public static int DECODER_CODEC_THREADS = 0;
+    // libav 引擎的多线程方式：frame 或 slice
+    public static String DECODER_THREAD_TYPE = "frame";
+    // 所有播放器共用的解码线程数
+    public static int DECODER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    // 按屏幕在画面上的像素大小缩小解码输出，最多缩小到原尺寸的 1/N，1 表示不缩小
+    public static int DECODER_MAX_DOWNSCALE = 8;
+    // 视频帧以 YUV 平面上传，由着色器转换颜色
+    public static boolean VIDEO_YUV_UPLOAD = true;
+    // 持久映射上传缓冲区的槽数，0 表示使用双 PBO
+    public static int PBO_RING_SLOTS = 3;
+    // 每帧用于上传视频纹理的时间和数据量上限，超出的播放器推迟到下一帧，0 表示不限
+    public static Float UPLOAD_BUDGET_MS = 4f;
+    public static int UPLOAD_BUDGET_MB = 32;
+    // 按图块比较相邻帧，跳过没有变化的帧，只上传变化的区域
+    public static boolean UPLOAD_CHANGE_DETECTION = true;
+    // 用射线检测屏幕是否被方块完全挡住，挡住时和视锥外一样不渲染
+    public static boolean SCREEN_OCCLUSION_CULLING = true;
+    // 屏幕连续不渲染超过该时间后只解码音频，回到视野时从当前进度恢复视频
+    public static int SCREEN_CULL_GRACE_MS = 1000;
+    // 视频纹理池最多保留的空闲显存
+    public static int TEXTURE_POOL_MAX_IDLE_MB = 64;
+    // OpenAL Soft 支持 AL_SOFT_callback_buffer 时由混音线程拉取音频，否则逐包推送
+    public static boolean AUDIO_CALLBACK_BUFFER = true;
+    // 推送式音源把音频包合并到该时长后再作为一个 OpenAL 缓冲提交
+    public static int AUDIO_CHUNK_MS = 80;
+    // 同时持有 OpenAL source 的音源数量上限，其余按距离与音量排在后面的音源暂不输出声音
+    public static int AUDIO_MAX_VOICES = 16;
+    // 启动参数加入 --add-modules jdk.incubator.vector 时用向量指令转换音频采样
+    public static boolean AUDIO_VECTOR_DSP = true;
+    // 所有播放器共用的 RGBA 转换线程数，每帧按行切片并行转换
+    public static int CONVERTER_THREADS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() / 2));
+    // DECIMATED 档位的输出帧率
+    public static int DECODER_DECIMATED_FPS = 10;
+    // 超过该距离的可见播放器只解码关键帧
+    public static int DECODER_KEYFRAME_ONLY_DISTANCE = 48;
+    // 所有播放器解码预读共用的堆外内存预算，按优先级分配
+    public static int DECODER_MEMORY_BUDGET_MB = 1024;
+    // 单个播放器最多预读的时长
+    public static int DECODER_MAX_LOOKAHEAD_MS = 4000;
+    // 多个播放器共用同一解码会话时，跳转目标与当前进度相差不超过该值则不拆分会话
+    public static int SHARED_SESSION_SEEK_TOLERANCE_MS = 1000;
+    // 帧缓冲池最多保留的空闲内存
+    public static int BUFFER_POOL_MAX_IDLE_MB = 256;
 
     public static boolean ALLOW_DIRECT_LINK = false;
     public static boolean ALLOW_YHDM = false;
@@ -64,6 +111,30 @@ public class Configs {
         Configs.DANMAKU_TRACKS = Integer.parseInt(props.getProperty("DANMAKU_TRACKS", String.valueOf(Configs.DANMAKU_TRACKS)));
         Configs.DANMAKU_OPACITY = Float.parseFloat(props.getProperty("DANMAKU_OPACITY", String.valueOf(Configs.DANMAKU_OPACITY)));
 
+        Configs.DECODER_ENGINE = props.getProperty("DECODER_ENGINE", Configs.DECODER_ENGINE);
+        Configs.DECODER_CODEC_THREADS = Integer.parseInt(props.getProperty("DECODER_CODEC_THREADS", String.valueOf(Configs.DECODER_CODEC_THREADS)));
+        Configs.DECODER_THREAD_TYPE = props.getProperty("DECODER_THREAD_TYPE", Configs.DECODER_THREAD_TYPE);
+        Configs.DECODER_THREADS = Integer.parseInt(props.getProperty("DECODER_THREADS", String.valueOf(Configs.DECODER_THREADS)));
+        Configs.DECODER_MAX_DOWNSCALE = Integer.parseInt(props.getProperty("DECODER_MAX_DOWNSCALE", String.valueOf(Configs.DECODER_MAX_DOWNSCALE)));
+        Configs.VIDEO_YUV_UPLOAD = Boolean.parseBoolean(props.getProperty("VIDEO_YUV_UPLOAD", String.valueOf(Configs.VIDEO_YUV_UPLOAD)));
+        Configs.PBO_RING_SLOTS = Integer.parseInt(props.getProperty("PBO_RING_SLOTS", String.valueOf(Configs.PBO_RING_SLOTS)));
+        Configs.UPLOAD_BUDGET_MS = Float.parseFloat(props.getProperty("UPLOAD_BUDGET_MS", String.valueOf(Configs.UPLOAD_BUDGET_MS)));
+        Configs.UPLOAD_BUDGET_MB = Integer.parseInt(props.getProperty("UPLOAD_BUDGET_MB", String.valueOf(Configs.UPLOAD_BUDGET_MB)));
+        Configs.UPLOAD_CHANGE_DETECTION = Boolean.parseBoolean(props.getProperty("UPLOAD_CHANGE_DETECTION", String.valueOf(Configs.UPLOAD_CHANGE_DETECTION)));
+        Configs.SCREEN_OCCLUSION_CULLING = Boolean.parseBoolean(props.getProperty("SCREEN_OCCLUSION_CULLING", String.valueOf(Configs.SCREEN_OCCLUSION_CULLING)));
+        Configs.SCREEN_CULL_GRACE_MS = Integer.parseInt(props.getProperty("SCREEN_CULL_GRACE_MS", String.valueOf(Configs.SCREEN_CULL_GRACE_MS)));
+        Configs.TEXTURE_POOL_MAX_IDLE_MB = Integer.parseInt(props.getProperty("TEXTURE_POOL_MAX_IDLE_MB", String.valueOf(Configs.TEXTURE_POOL_MAX_IDLE_MB)));
+        Configs.AUDIO_CALLBACK_BUFFER = Boolean.parseBoolean(props.getProperty("AUDIO_CALLBACK_BUFFER", String.valueOf(Configs.AUDIO_CALLBACK_BUFFER)));
+        Configs.AUDIO_CHUNK_MS = Integer.parseInt(props.getProperty("AUDIO_CHUNK_MS", String.valueOf(Configs.AUDIO_CHUNK_MS)));
+        Configs.AUDIO_MAX_VOICES = Integer.parseInt(props.getProperty("AUDIO_MAX_VOICES", String.valueOf(Configs.AUDIO_MAX_VOICES)));
+        Configs.AUDIO_VECTOR_DSP = Boolean.parseBoolean(props.getProperty("AUDIO_VECTOR_DSP", String.valueOf(Configs.AUDIO_VECTOR_DSP)));
+        Configs.CONVERTER_THREADS = Integer.parseInt(props.getProperty("CONVERTER_THREADS", String.valueOf(Configs.CONVERTER_THREADS)));
+        Configs.DECODER_DECIMATED_FPS = Integer.parseInt(props.getProperty("DECODER_DECIMATED_FPS", String.valueOf(Configs.DECODER_DECIMATED_FPS)));
+        Configs.DECODER_KEYFRAME_ONLY_DISTANCE = Integer.parseInt(props.getProperty("DECODER_KEYFRAME_ONLY_DISTANCE", String.valueOf(Configs.DECODER_KEYFRAME_ONLY_DISTANCE)));
+        Configs.DECODER_MEMORY_BUDGET_MB = Integer.parseInt(props.getProperty("DECODER_MEMORY_BUDGET_MB", String.valueOf(Configs.DECODER_MEMORY_BUDGET_MB)));
+        Configs.DECODER_MAX_LOOKAHEAD_MS = Integer.parseInt(props.getProperty("DECODER_MAX_LOOKAHEAD_MS", String.valueOf(Configs.DECODER_MAX_LOOKAHEAD_MS)));
+        Configs.SHARED_SESSION_SEEK_TOLERANCE_MS = Integer.parseInt(props.getProperty("SHARED_SESSION_SEEK_TOLERANCE_MS", String.valueOf(Configs.SHARED_SESSION_SEEK_TOLERANCE_MS)));
+
         Configs.ALLOW_DIRECT_LINK = Boolean.parseBoolean(props.getProperty("ALLOW_DIRECT_LINK", String.valueOf(Configs.ALLOW_DIRECT_LINK)));
         Configs.ALLOW_YHDM = Boolean.parseBoolean(props.getProperty("ALLOW_YHDM", String.valueOf(Configs.ALLOW_YHDM)));
     }
@@ -82,6 +153,30 @@ public class Configs {
         props.setProperty("DANMAKU_TRACKS", String.valueOf(Configs.DANMAKU_TRACKS));
         props.setProperty("DANMAKU_OPACITY", String.valueOf(Configs.DANMAKU_OPACITY));
 
+        props.setProperty("DECODER_ENGINE", Configs.DECODER_ENGINE);
+        props.setProperty("DECODER_CODEC_THREADS", String.valueOf(Configs.DECODER_CODEC_THREADS));
+        props.setProperty("DECODER_THREAD_TYPE", Configs.DECODER_THREAD_TYPE);
+        props.setProperty("DECODER_THREADS", String.valueOf(Configs.DECODER_THREADS));
+        props.setProperty("DECODER_MAX_DOWNSCALE", String.valueOf(Configs.DECODER_MAX_DOWNSCALE));
+        props.setProperty("VIDEO_YUV_UPLOAD", String.valueOf(Configs.VIDEO_YUV_UPLOAD));
+        props.setProperty("PBO_RING_SLOTS", String.valueOf(Configs.PBO_RING_SLOTS));
+        props.setProperty("UPLOAD_BUDGET_MS", String.valueOf(Configs.UPLOAD_BUDGET_MS));
+        props.setProperty("UPLOAD_BUDGET_MB", String.valueOf(Configs.UPLOAD_BUDGET_MB));
+        props.setProperty("UPLOAD_CHANGE_DETECTION", String.valueOf(Configs.UPLOAD_CHANGE_DETECTION));
+        props.setProperty("SCREEN_OCCLUSION_CULLING", String.valueOf(Configs.SCREEN_OCCLUSION_CULLING));
+        props.setProperty("SCREEN_CULL_GRACE_MS", String.valueOf(Configs.SCREEN_CULL_GRACE_MS));
+        props.setProperty("TEXTURE_POOL_MAX_IDLE_MB", String.valueOf(Configs.TEXTURE_POOL_MAX_IDLE_MB));
+        props.setProperty("AUDIO_CALLBACK_BUFFER", String.valueOf(Configs.AUDIO_CALLBACK_BUFFER));
+        props.setProperty("AUDIO_CHUNK_MS", String.valueOf(Configs.AUDIO_CHUNK_MS));
+        props.setProperty("AUDIO_MAX_VOICES", String.valueOf(Configs.AUDIO_MAX_VOICES));
+        props.setProperty("AUDIO_VECTOR_DSP", String.valueOf(Configs.AUDIO_VECTOR_DSP));
+        props.setProperty("CONVERTER_THREADS", String.valueOf(Configs.CONVERTER_THREADS));
+        props.setProperty("DECODER_DECIMATED_FPS", String.valueOf(Configs.DECODER_DECIMATED_FPS));
+        props.setProperty("DECODER_KEYFRAME_ONLY_DISTANCE", String.valueOf(Configs.DECODER_KEYFRAME_ONLY_DISTANCE));
+        props.setProperty("DECODER_MEMORY_BUDGET_MB", String.valueOf(Configs.DECODER_MEMORY_BUDGET_MB));
+        props.setProperty("DECODER_MAX_LOOKAHEAD_MS", String.valueOf(Configs.DECODER_MAX_LOOKAHEAD_MS));
+        props.setProperty("SHARED_SESSION_SEEK_TOLERANCE_MS", String.valueOf(Configs.SHARED_SESSION_SEEK_TOLERANCE_MS));
+
         props.setProperty("ALLOW_DIRECT_LINK", String.valueOf(Configs.ALLOW_DIRECT_LINK));
         props.setProperty("ALLOW_YHDM", String.valueOf(Configs.ALLOW_YHDM));
     }
@@ -0,0 +1,181 @@
+package top.tobyprime.mcedia;
+
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.ARBBufferStorage.*;
+import static org.lwjgl.opengl.GL11.glGetError;
+import static org.lwjgl.opengl.GL11.glGetInteger;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER_BINDING;
+import static org.lwjgl.opengl.GL30.GL_MAP_WRITE_BIT;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * 持久映射的像素上传缓冲区，按槽轮流写入。
+ * <p>
+ * 缓冲区只映射一次，每帧直接拷进下一个槽，再从该槽发起纹理上传；每个槽上传后插入 fence，
+ * 轮到它时 GPU 通常早已读完，不需要每帧 map/unmap，也没有一帧的延迟。只能在渲染线程使用。
+ */
+public class PboUploadRing implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PboUploadRing.class);
+    // 槽起始偏移对齐，满足任意像素格式的对齐要求
+    private static final long SLOT_ALIGN = 256;
+    // 等待 GPU 读完一个槽的最长时间
+    private static final long FENCE_TIMEOUT_NANOS = 100_000_000L;
+    /**
+     * 槽仍被 GPU 读取时 {@link #write} 的返回值，调用方跳过本帧的上传
+     */
+    public static final long BUSY = -1;
+
+    private final int slots;
+    private final long[] fences;
+    private int buffer = 0;
+    private @Nullable ByteBuffer mapped;
+    private long slotSize = 0;
+    private int slotIndex = 0;
+    private int writtenSlot = -1;
+
+    private PboUploadRing(int slots) {
+        this.slots = slots;
+        this.fences = new long[slots];
+    }
+
+    /**
+     * 驱动支持 ARB_buffer_storage 且未在配置中关闭时创建，否则返回 null，由调用方使用普通 PBO
+     */
+    public static @Nullable PboUploadRing create() {
+        if (Configs.PBO_RING_SLOTS <= 0) {
+            return null;
+        }
+        var capabilities = GL.getCapabilities();
+        if (!capabilities.GL_ARB_buffer_storage && !capabilities.OpenGL44) {
+            LOGGER.info("不支持 ARB_buffer_storage，使用双 PBO 上传");
+            return null;
+        }
+        return new PboUploadRing(Math.max(2, Configs.PBO_RING_SLOTS));
+    }
+
+    /**
+     * 缓冲区的 GL 名称，上传时绑定为 GL_PIXEL_UNPACK_BUFFER
+     */
+    public int buffer() {
+        return buffer;
+    }
+
+    /**
+     * 把 src 的剩余字节拷进下一个槽，必要时等待 GPU 读完该槽；槽不够大时重建缓冲区
+     *
+     * @return 数据在缓冲区中的偏移，等待超时时为 {@link #BUSY}
+     */
+    public long write(ByteBuffer src) {
+        return write(src, 0, src.remaining());
+    }
+
+    /**
+     * 只拷贝 src 剩余字节中 [from, from + length) 的部分，放在槽内相同的位置，其余字节不确定
+     *
+     * @return src 的第一个字节在缓冲区中的偏移，等待超时时为 {@link #BUSY}
+     */
+    public long write(ByteBuffer src, long from, long length) {
+        long bytes = src.remaining();
+        if (bytes > slotSize) {
+            allocate(bytes);
+        }
+        int slot = slotIndex;
+        if (!awaitSlot(slot)) {
+            // GPU 可能仍在读取该槽，保留 fence，下一帧再试同一个槽
+            return BUSY;
+        }
+        slotIndex = (slotIndex + 1) % slots;
+        long offset = slot * slotSize;
+        MemoryUtil.memCopy(MemoryUtil.memAddress(src) + from, MemoryUtil.memAddress(mapped) + offset + from, length);
+        writtenSlot = slot;
+        return offset;
+    }
+
+    /**
+     * 从最近写入的槽发起上传后调用，GPU 读完前不会再写这个槽
+     */
+    public void fence() {
+        if (writtenSlot < 0) return;
+        if (fences[writtenSlot] != 0) {
+            glDeleteSync(fences[writtenSlot]);
+        }
+        fences[writtenSlot] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        writtenSlot = -1;
+    }
+
+    /**
+     * @return GPU 是否已读完该槽，超时时保留 fence
+     */
+    private boolean awaitSlot(int slot) {
+        long fence = fences[slot];
+        if (fence == 0) return true;
+        int result = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT_NANOS);
+        if (result == GL_WAIT_FAILED) {
+            throw new IllegalStateException("glClientWaitSync failed: " + glGetError());
+        }
+        if (result == GL_TIMEOUT_EXPIRED) {
+            LOGGER.warn("等待上传缓冲区超时，跳过本帧");
+            return false;
+        }
+        glDeleteSync(fence);
+        fences[slot] = 0;
+        return true;
+    }
+
+    private void allocate(long bytes) {
+        release();
+        slotSize = (bytes + SLOT_ALIGN - 1) / SLOT_ALIGN * SLOT_ALIGN;
+        long size = slotSize * slots;
+        int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+        int previous = glGetInteger(GL_PIXEL_UNPACK_BUFFER_BINDING);
+        buffer = glGenBuffers();
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, buffer);
+        glBufferStorage(GL_PIXEL_UNPACK_BUFFER, size, flags);
+        mapped = glMapBufferRange(GL_PIXEL_UNPACK_BUFFER, 0, size, flags);
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, previous);
+        if (mapped == null) {
+            glDeleteBuffers(buffer);
+            buffer = 0;
+            slotSize = 0;
+            throw new IllegalStateException("Could not map persistent buffer: " + glGetError());
+        }
+        slotIndex = 0;
+    }
+
+    /**
+     * 删除缓冲区存储，下次写入时按需重新分配
+     */
+    public void release() {
+        for (int i = 0; i < slots; i++) {
+            // 仍在使用的缓冲区由驱动在 GPU 读完后才真正删除，不需要等待
+            if (fences[i] != 0) {
+                glDeleteSync(fences[i]);
+                fences[i] = 0;
+            }
+        }
+        if (buffer != 0) {
+            // 持久映射的缓冲区删除时自动解除映射
+            glDeleteBuffers(buffer);
+            buffer = 0;
+        }
+        mapped = null;
+        slotSize = 0;
+        writtenSlot = -1;
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+}
@@ -0,0 +1,363 @@
+package top.tobyprime.mcedia;
+
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.tobyprime.mcedia.decoders.DirtyRegion;
+import top.tobyprime.mcedia.decoders.VideoFrame;
+import top.tobyprime.mcedia.decoders.YuvConverter;
+
+import java.io.Closeable;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_UNPACK_BUFFER_BINDING;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * 把 YUV 平面上传为 R8/RG8 纹理，再用着色器画进 RGBA 纹理。
+ * <p>
+ * 直接调用 GL，调用前后的 GL 状态保持不变，不会打乱 Minecraft 的状态缓存；只能在渲染线程使用。
+ * 着色器和 {@link YuvConverter} 使用同一组系数，编译失败时 {@link #convert} 返回 false，由调用方退回 CPU 转换。
+ */
+public class YuvTextureConverter implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(YuvTextureConverter.class);
+    private static final String VERTEX_SHADER = """
+            #version 150
+            out vec2 uv;
+            void main() {
+                // 覆盖整个视口的三角形
+                uv = vec2((gl_VertexID & 1) * 2.0, (gl_VertexID >> 1) * 2.0);
+                gl_Position = vec4(uv * 2.0 - 1.0, 0.0, 1.0);
+            }
+            """;
+    private static final String FRAGMENT_SHADER = """
+            #version 150
+            in vec2 uv;
+            out vec4 color;
+            uniform sampler2D planeY;
+            uniform sampler2D planeU;
+            uniform sampler2D planeV;
+            uniform bool interleaved;
+            // Y 偏移、色度偏移、Y 缩放、色度缩放
+            uniform vec4 range;
+            // R←V、G←U、G←V、B←U
+            uniform vec4 matrix;
+            void main() {
+                float y = (texture(planeY, uv).r - range.x) * range.z;
+                vec2 c = interleaved ? texture(planeU, uv).rg : vec2(texture(planeU, uv).r, texture(planeV, uv).r);
+                c = (c - range.y) * range.w;
+                vec3 rgb = vec3(y + matrix.x * c.y, y - matrix.y * c.x - matrix.z * c.y, y + matrix.w * c.x);
+                color = vec4(clamp(rgb, 0.0, 1.0), 1.0);
+            }
+            """;
+
+    // 着色器程序所有实例共用
+    private static int program = 0;
+    private static int vertexArray = 0;
+    private static boolean failed = false;
+    private static final int[] planeLocations = new int[3];
+    private static int interleavedLocation;
+    private static int rangeLocation;
+    private static int matrixLocation;
+
+    private final int[] planeTextures = new int[3];
+    private final int[] planeWidths = new int[3];
+    private final int[] planeHeights = new int[3];
+    private final int[] planeFormats = new int[3];
+    private int framebuffer = 0;
+    private int attachedTexture = 0;
+
+    /**
+     * 着色器是否可用，编译失败后不再重试
+     */
+    public static boolean isAvailable() {
+        return !failed;
+    }
+
+    private static boolean ensureProgram() {
+        if (program != 0) return true;
+        if (failed) return false;
+        int vertex = 0;
+        int fragment = 0;
+        try {
+            vertex = compile(GL_VERTEX_SHADER, VERTEX_SHADER);
+            fragment = compile(GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+            int linked = glCreateProgram();
+            glAttachShader(linked, vertex);
+            glAttachShader(linked, fragment);
+            glLinkProgram(linked);
+            if (glGetProgrami(linked, GL_LINK_STATUS) == GL_FALSE) {
+                String log = glGetProgramInfoLog(linked);
+                glDeleteProgram(linked);
+                throw new IllegalStateException("Link failed: " + log);
+            }
+            planeLocations[0] = glGetUniformLocation(linked, "planeY");
+            planeLocations[1] = glGetUniformLocation(linked, "planeU");
+            planeLocations[2] = glGetUniformLocation(linked, "planeV");
+            interleavedLocation = glGetUniformLocation(linked, "interleaved");
+            rangeLocation = glGetUniformLocation(linked, "range");
+            matrixLocation = glGetUniformLocation(linked, "matrix");
+            vertexArray = glGenVertexArrays();
+            program = linked;
+            return true;
+        } catch (RuntimeException e) {
+            failed = true;
+            LOGGER.warn("YUV 着色器不可用，改为在 CPU 上转换", e);
+            return false;
+        } finally {
+            if (vertex != 0) glDeleteShader(vertex);
+            if (fragment != 0) glDeleteShader(fragment);
+        }
+    }
+
+    private static int compile(int type, String source) {
+        int shader = glCreateShader(type);
+        glShaderSource(shader, source);
+        glCompileShader(shader);
+        if (glGetShaderi(shader, GL_COMPILE_STATUS) == GL_FALSE) {
+            String log = glGetShaderInfoLog(shader);
+            glDeleteShader(shader);
+            throw new IllegalStateException("Compile failed: " + log);
+        }
+        return shader;
+    }
+
+    /**
+     * 把 YUV 帧转换进 targetTexture，纹理尺寸需与帧一致
+     *
+     * @return 着色器不可用时返回 false，targetTexture 未被修改
+     */
+    public boolean convert(VideoFrame frame, int targetTexture) {
+        return convert(frame, targetTexture, DirtyRegion.full(frame.width, frame.height));
+    }
+
+    /**
+     * 只上传并转换 region 内的部分
+     */
+    public boolean convert(VideoFrame frame, int targetTexture, DirtyRegion region) {
+        return convert(frame, targetTexture, 0, MemoryUtil.memAddress0(frame.buffer), region);
+    }
+
+    /**
+     * 同 {@link #convert(VideoFrame, int, DirtyRegion)}，平面数据从已写入的上传缓冲区读取
+     *
+     * @param unpackBuffer 上传缓冲区，0 表示从内存地址读取
+     * @param base         帧数据在缓冲区中的偏移，或内存地址
+     */
+    public boolean convert(VideoFrame frame, int targetTexture, int unpackBuffer, long base, DirtyRegion region) {
+        if (!frame.format.isYuv() || !ensureProgram()) {
+            return false;
+        }
+        var saved = new SavedState();
+        try {
+            if (ensurePlanes(frame)) {
+                // 平面纹理重新分配后内容不确定，需整帧上传
+                region = DirtyRegion.full(frame.width, frame.height);
+            }
+            uploadPlanes(frame, unpackBuffer, base, region);
+            return draw(frame, targetTexture, region);
+        } finally {
+            saved.restore();
+        }
+    }
+
+    /**
+     * @return 是否有平面纹理被重新分配
+     */
+    private boolean ensurePlanes(VideoFrame frame) {
+        var format = frame.format;
+        boolean reallocated = false;
+        for (int p = 0; p < format.planes(); p++) {
+            int pixelFormat = format.bytesPerPixel(p) == 2 ? GL_RG : GL_RED;
+            glActiveTexture(GL_TEXTURE0 + p);
+            reallocated |= ensurePlane(p, format.planeWidth(p, frame.width), format.planeHeight(p, frame.height), pixelFormat);
+        }
+        return reallocated;
+    }
+
+    private void uploadPlanes(VideoFrame frame, int unpackBuffer, long base, DirtyRegion region) {
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, unpackBuffer);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        var format = frame.format;
+        for (int p = 0; p < format.planes(); p++) {
+            int bytesPerPixel = format.bytesPerPixel(p);
+            int pixelFormat = bytesPerPixel == 2 ? GL_RG : GL_RED;
+            glActiveTexture(GL_TEXTURE0 + p);
+            glBindTexture(GL_TEXTURE_2D, planeTextures[p]);
+            glPixelStorei(GL_UNPACK_ROW_LENGTH, frame.planeStride(p) / bytesPerPixel);
+            for (int i = 0; i < region.count(); i++) {
+                // 色度平面按一半换算，图块边长为偶数，边界不会错开
+                int x = p == 0 ? region.x(i) : region.x(i) / 2;
+                int y = p == 0 ? region.y(i) : region.y(i) / 2;
+                int width = format.planeWidth(p, region.x(i) + region.width(i)) - x;
+                int height = format.planeHeight(p, region.y(i) + region.height(i)) - y;
+                glPixelStorei(GL_UNPACK_SKIP_PIXELS, x);
+                glPixelStorei(GL_UNPACK_SKIP_ROWS, y);
+                nglTexSubImage2D(GL_TEXTURE_2D, 0, x, y, width, height, pixelFormat, GL_UNSIGNED_BYTE,
+                        base + frame.planeOffset(p));
+            }
+        }
+    }
+
+    /**
+     * @return 是否重新分配
+     */
+    private boolean ensurePlane(int plane, int width, int height, int pixelFormat) {
+        if (planeTextures[plane] != 0 && planeWidths[plane] == width && planeHeights[plane] == height
+                && planeFormats[plane] == pixelFormat) {
+            return false;
+        }
+        if (planeTextures[plane] == 0) {
+            planeTextures[plane] = glGenTextures();
+        }
+        planeWidths[plane] = width;
+        planeHeights[plane] = height;
+        planeFormats[plane] = pixelFormat;
+        glBindTexture(GL_TEXTURE_2D, planeTextures[plane]);
+        // 最近邻采样，与 CPU 参考实现逐像素一致
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glTexImage2D(GL_TEXTURE_2D, 0, pixelFormat == GL_RG ? GL_RG8 : GL_R8, width, height, 0,
+                pixelFormat, GL_UNSIGNED_BYTE, 0L);
+        return true;
+    }
+
+    private boolean draw(VideoFrame frame, int targetTexture, DirtyRegion region) {
+        if (framebuffer == 0) {
+            framebuffer = glGenFramebuffers();
+        }
+        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, framebuffer);
+        if (attachedTexture != targetTexture) {
+            glFramebufferTexture2D(GL_DRAW_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, targetTexture, 0);
+            attachedTexture = targetTexture;
+        }
+        if (glCheckFramebufferStatus(GL_DRAW_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE) {
+            LOGGER.warn("YUV 转换目标不可用: {}", targetTexture);
+            attachedTexture = 0;
+            return false;
+        }
+
+        glViewport(0, 0, frame.width, frame.height);
+        glDisable(GL_BLEND);
+        glDisable(GL_DEPTH_TEST);
+        glDisable(GL_CULL_FACE);
+        glDisable(GL_SCISSOR_TEST);
+        glDisable(GL_STENCIL_TEST);
+        glColorMask(true, true, true, true);
+
+        glUseProgram(program);
+        int planes = frame.format.planes();
+        for (int p = 0; p < 3; p++) {
+            // NV12 只有两个平面，planeV 指向 UV 平面，不会被采样
+            glActiveTexture(GL_TEXTURE0 + p);
+            glBindTexture(GL_TEXTURE_2D, planeTextures[Math.min(p, planes - 1)]);
+            glUniform1i(planeLocations[p], p);
+        }
+        float[] k = YuvConverter.coefficients(frame);
+        glUniform1i(interleavedLocation, frame.format == VideoFrame.Format.NV12 ? 1 : 0);
+        glUniform4f(rangeLocation, k[0], k[1], k[2], k[3]);
+        glUniform4f(matrixLocation, k[4], k[5], k[6], k[7]);
+
+        glBindVertexArray(vertexArray);
+        if (region.isFull()) {
+            glDrawArrays(GL_TRIANGLES, 0, 3);
+        } else {
+            // 只重画变化的矩形，其余像素保留上一帧的结果
+            glEnable(GL_SCISSOR_TEST);
+            for (int i = 0; i < region.count(); i++) {
+                glScissor(region.x(i), region.y(i), region.width(i), region.height(i));
+                glDrawArrays(GL_TRIANGLES, 0, 3);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        for (int p = 0; p < planeTextures.length; p++) {
+            if (planeTextures[p] != 0) {
+                glDeleteTextures(planeTextures[p]);
+                planeTextures[p] = 0;
+            }
+        }
+        if (framebuffer != 0) {
+            glDeleteFramebuffers(framebuffer);
+            framebuffer = 0;
+            attachedTexture = 0;
+        }
+    }
+
+    /**
+     * 转换会改动的 GL 状态，转换后原样恢复
+     */
+    private static class SavedState {
+        private final int program = glGetInteger(GL_CURRENT_PROGRAM);
+        private final int framebuffer = glGetInteger(GL_DRAW_FRAMEBUFFER_BINDING);
+        private final int vertexArray = glGetInteger(GL_VERTEX_ARRAY_BINDING);
+        private final int unpackBuffer = glGetInteger(GL_PIXEL_UNPACK_BUFFER_BINDING);
+        private final int unpackAlignment = glGetInteger(GL_UNPACK_ALIGNMENT);
+        private final int unpackRowLength = glGetInteger(GL_UNPACK_ROW_LENGTH);
+        private final int unpackSkipRows = glGetInteger(GL_UNPACK_SKIP_ROWS);
+        private final int unpackSkipPixels = glGetInteger(GL_UNPACK_SKIP_PIXELS);
+        private final int activeTexture = glGetInteger(GL_ACTIVE_TEXTURE);
+        private final int[] textures = new int[3];
+        private final int[] viewport = new int[4];
+        private final boolean[] colorMask = new boolean[4];
+        private final boolean blend = glIsEnabled(GL_BLEND);
+        private final boolean depthTest = glIsEnabled(GL_DEPTH_TEST);
+        private final boolean cullFace = glIsEnabled(GL_CULL_FACE);
+        private final boolean scissorTest = glIsEnabled(GL_SCISSOR_TEST);
+        private final boolean stencilTest = glIsEnabled(GL_STENCIL_TEST);
+
+        SavedState() {
+            for (int i = 0; i < textures.length; i++) {
+                glActiveTexture(GL_TEXTURE0 + i);
+                textures[i] = glGetInteger(GL_TEXTURE_BINDING_2D);
+            }
+            glGetIntegerv(GL_VIEWPORT, viewport);
+            try (var stack = MemoryStack.stackPush()) {
+                var mask = stack.malloc(4);
+                glGetBooleanv(GL_COLOR_WRITEMASK, mask);
+                for (int i = 0; i < 4; i++) {
+                    colorMask[i] = mask.get(i) != 0;
+                }
+            }
+        }
+
+        void restore() {
+            glBindVertexArray(vertexArray);
+            glUseProgram(program);
+            glBindFramebuffer(GL_DRAW_FRAMEBUFFER, framebuffer);
+            glBindBuffer(GL_PIXEL_UNPACK_BUFFER, unpackBuffer);
+            glPixelStorei(GL_UNPACK_ALIGNMENT, unpackAlignment);
+            glPixelStorei(GL_UNPACK_ROW_LENGTH, unpackRowLength);
+            glPixelStorei(GL_UNPACK_SKIP_ROWS, unpackSkipRows);
+            glPixelStorei(GL_UNPACK_SKIP_PIXELS, unpackSkipPixels);
+            for (int i = 0; i < textures.length; i++) {
+                glActiveTexture(GL_TEXTURE0 + i);
+                glBindTexture(GL_TEXTURE_2D, textures[i]);
+            }
+            glActiveTexture(activeTexture);
+            glViewport(viewport[0], viewport[1], viewport[2], viewport[3]);
+            glColorMask(colorMask[0], colorMask[1], colorMask[2], colorMask[3]);
+            setEnabled(GL_BLEND, blend);
+            setEnabled(GL_DEPTH_TEST, depthTest);
+            setEnabled(GL_CULL_FACE, cullFace);
+            setEnabled(GL_SCISSOR_TEST, scissorTest);
+            setEnabled(GL_STENCIL_TEST, stencilTest);
+        }
+
+        private static void setEnabled(int capability, boolean enabled) {
+            if (enabled) glEnable(capability);
+            else glDisable(capability);
+        }
+    }
+}
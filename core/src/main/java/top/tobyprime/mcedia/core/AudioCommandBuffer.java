@@ -0,0 +1,65 @@
+package top.tobyprime.mcedia.core;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 收集一个 tick 内所有音源的位置、音量、范围与音调变化，在 tick 结束时作为一个任务提交到音频线程。
+ * <p>
+ * 同一音源在一个 tick 内多次修改只保留最后的值，与已写入 OpenAL 的值相同时不再调用 OpenAL。
+ */
+public class AudioCommandBuffer {
+    private static final AudioCommandBuffer INSTANCE = new AudioCommandBuffer();
+
+    /**
+     * 由音源实现，在音频线程上把最新的属性写入 OpenAL
+     */
+    interface Target {
+        void alFlushProperties();
+    }
+
+    private final Object lock = new Object();
+    // 本 tick 内属性发生变化的音源，受 lock 保护
+    private final ArrayList<Target> dirty = new ArrayList<>();
+    // 只在音频线程上访问
+    private final ArrayList<Target> draining = new ArrayList<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drainTask = this::alDrain;
+
+    public static AudioCommandBuffer getInstance() {
+        return INSTANCE;
+    }
+
+    void markDirty(Target target) {
+        synchronized (lock) {
+            if (!dirty.contains(target)) {
+                dirty.add(target);
+            }
+        }
+    }
+
+    /**
+     * 每 tick 结束时调用，有变化时提交一个任务，上一个任务尚未执行时由它一并处理
+     */
+    public void flush(Consumer<Runnable> alThreadExecutor) {
+        synchronized (lock) {
+            if (dirty.isEmpty()) return;
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            alThreadExecutor.accept(drainTask);
+        }
+    }
+
+    private void alDrain() {
+        scheduled.set(false);
+        synchronized (lock) {
+            draining.addAll(dirty);
+            dirty.clear();
+        }
+        for (var target : draining) {
+            target.alFlushProperties();
+        }
+        draining.clear();
+    }
+}
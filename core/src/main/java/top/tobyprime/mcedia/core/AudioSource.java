@@ -2,40 +2,151 @@ package top.tobyprime.mcedia.core;
 
 import org.jetbrains.annotations.Nullable;
 import org.lwjgl.openal.AL10;
+import org.lwjgl.openal.AL11;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.lwjgl.system.MemoryUtil;
+import top.tobyprime.mcedia.BufferPool;
 import top.tobyprime.mcedia.Configs;
 import top.tobyprime.mcedia.decoders.AudioBufferData;
 import top.tobyprime.mcedia.interfaces.IAudioSource;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Consumer;
 
-public class AudioSource implements IAudioSource {
+public class AudioSource implements VoiceManager.Voice, AudioCommandBuffer.Target {
     private static final Logger LOGGER = LoggerFactory.getLogger(AudioSource.class);
     private static final int BUFFER_COUNT = 4; // 预分配的缓冲区数量
+    private static final int MAX_BUFFER_COUNT = 16; // 出现断音时逐个增加缓冲区，最多到该数量
+    private static final int MAX_PENDING = 64; // 等待上传的数据块上限，超出时丢弃
     private final Consumer<Runnable> alThreadExecutor;
 
-    private final Queue<Integer> availableBuffers = new ConcurrentLinkedQueue<>();
+    // 空闲的 OpenAL 缓冲，以栈的方式存放，受 alLock 保护
+    private final int[] availableBuffers = new int[MAX_BUFFER_COUNT];
+    private int availableCount;
     private final Object alLock = new Object();
+    // 已加入 OpenAL 队列的缓冲对应的时间戳与采样率，环形存放，与 source 的缓冲队列顺序一致，受 alLock 保护
+    private final long[] queuedTimestamps = new long[MAX_BUFFER_COUNT];
+    private final int[] queuedSampleRates = new int[MAX_BUFFER_COUNT];
+    private int queuedHead;
+    private int queuedSize;
+    // 已排队的数据预计播完的时间，用于区分断音与暂停
+    private long queuedUntilNanos;
+    // 播放位置，写入方为音频线程，读取时再构造 PlaybackPosition
+    private final StampedLock positionLock = new StampedLock();
+    private boolean positionValid;
+    private long positionTimestamp;
+    private long positionSampledAt;
+    // 解码线程交来的数据块，合并为一次任务提交到音频线程
+    private final ArrayBlockingQueue<AudioBufferData> pending = new ArrayBlockingQueue<>(MAX_PENDING);
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Runnable drainTask = this::alDrainPending;
+    private final Runnable flushTask = this::alFlushStaged;
+    // 合并中的 PCM，攒够 AUDIO_CHUNK_MS 后作为一个缓冲提交，只在音频线程上访问
+    private @Nullable ShortBuffer staging;
+    private int stagedSamples;
+    private int stagedSampleRate;
+    private long stagedTimestamp;
+    private volatile boolean hasStaged;
+    // 最近一次写入 source 的属性，值不变时不再调用 OpenAL
+    private float appliedGain, appliedPitch, appliedMinDistance, appliedMaxDistance;
+    private float appliedX, appliedY, appliedZ;
     public boolean requireInit = true;
     private int[] alBuffers = null;
+    private volatile int bufferCount = BUFFER_COUNT;
     private volatile int alSource = -1;
-    private boolean isClosed = false;
+    private volatile boolean isClosed = false;
+    // 听不到时不持有 source，上传的数据直接丢弃
+    private volatile boolean virtual = false;
+    private final Runnable releaseTask = this::alRelease;
 
     public AudioSource(Consumer<Runnable> alThreadExecutor) {
         this.alThreadExecutor = alThreadExecutor;
     }
 
+    /**
+     * OpenAL Soft 支持 AL_SOFT_callback_buffer 时创建拉取式的 {@link CallbackAudioSource}，否则创建推送式的音源
+     */
+    public static IAudioSource create(Consumer<Runnable> alThreadExecutor) {
+        if (Configs.AUDIO_CALLBACK_BUFFER && CallbackAudioSource.isSupported()) {
+            return new CallbackAudioSource(alThreadExecutor);
+        }
+        return new AudioSource(alThreadExecutor);
+    }
+
     public int getId(){
         return this.alSource;
     }
 
+    @Override
+    public @Nullable PlaybackPosition getPlaybackPosition() {
+        long stamp = positionLock.tryOptimisticRead();
+        boolean valid = positionValid;
+        long timestamp = positionTimestamp;
+        long sampledAt = positionSampledAt;
+        if (!positionLock.validate(stamp)) {
+            stamp = positionLock.readLock();
+            try {
+                valid = positionValid;
+                timestamp = positionTimestamp;
+                sampledAt = positionSampledAt;
+            } finally {
+                positionLock.unlockRead(stamp);
+            }
+        }
+        return valid ? new PlaybackPosition(timestamp, sampledAt) : null;
+    }
+
+    private void publishPlaybackPosition(boolean valid, long timestamp, long sampledAt) {
+        long stamp = positionLock.writeLock();
+        positionValid = valid;
+        positionTimestamp = timestamp;
+        positionSampledAt = sampledAt;
+        positionLock.unlockWrite(stamp);
+    }
+
+    /**
+     * 合并音频包需要更大的提前量，断音后增加的缓冲区也用于提前上传
+     */
+    @Override
+    public long getLeadUs() {
+        return (bufferCount - 2L) * Configs.AUDIO_CHUNK_MS * 1000L;
+    }
+
+    private void alOfferBuffer(int bufferId) {
+        if (availableCount < availableBuffers.length) {
+            availableBuffers[availableCount++] = bufferId;
+        }
+    }
+
+    private void clearQueuedBuffers() {
+        queuedHead = 0;
+        queuedSize = 0;
+        publishPlaybackPosition(false, 0, 0);
+    }
+
+    /**
+     * 根据队首缓冲的时间戳和 AL_SAMPLE_OFFSET 计算当前播放位置，需在回收已播放缓冲后调用
+     */
+    private void alUpdatePlaybackPosition(int state) {
+        if (alSource == -1 || queuedSize == 0) {
+            publishPlaybackPosition(false, 0, 0);
+            return;
+        }
+        if (state != AL10.AL_PLAYING) {
+            publishPlaybackPosition(false, 0, 0);
+            return;
+        }
+        int sampleOffset = AL10.alGetSourcei(alSource, AL11.AL_SAMPLE_OFFSET);
+        long now = System.nanoTime();
+        long timestamp = queuedTimestamps[queuedHead] + sampleOffset * 1_000_000L / queuedSampleRates[queuedHead];
+        publishPlaybackPosition(true, timestamp, now);
+    }
+
     private void alInit() {
         if (!requireInit || isClosed) return;
         try {
@@ -44,17 +155,21 @@ public class AudioSource implements IAudioSource {
             if (error != AL10.AL_NO_ERROR) {
                 LOGGER.warn("初始化失败: {}", error);
             }
-            alBuffers = new int[BUFFER_COUNT];
-            AL10.alGenBuffers(alBuffers);
+            // 重新初始化时保留之前因断音增加的缓冲区数量
+            int count = bufferCount;
+            alBuffers = new int[MAX_BUFFER_COUNT];
+            for (int i = 0; i < count; i++) {
+                alBuffers[i] = AL10.alGenBuffers();
+            }
             error = AL10.alGetError();
             if (error != AL10.AL_NO_ERROR) {
                 LOGGER.error("生成 buffers 失败: {}", error);
                 return;
             }
-            for (int bufferId : alBuffers) {
-                availableBuffers.offer(bufferId);
+            for (int i = 0; i < count; i++) {
+                alOfferBuffer(alBuffers[i]);
             }
-            alSource = AL10.alGenSources();
+            alSource = VoiceManager.getInstance().alAcquireSource();
             error = AL10.alGetError();
             if (error != AL10.AL_NO_ERROR) {
                 LOGGER.error("创建 Source 失败: {}", error);
@@ -65,6 +180,7 @@ public class AudioSource implements IAudioSource {
                 return;
             }
             AL10.alSourcef(alSource, AL10.AL_GAIN, 1);
+            AL10.alSourcef(alSource, AL10.AL_PITCH, 1);
             AL10.alSourcef(alSource, AL10.AL_MAX_DISTANCE, 500);
             AL10.alSourcef(alSource, AL10.AL_REFERENCE_DISTANCE, 1.0f);
             AL10.alSourcef(alSource, AL10.AL_ROLLOFF_FACTOR, 1.0f);
@@ -72,21 +188,27 @@ public class AudioSource implements IAudioSource {
             AL10.alSourcei(alSource, AL10.AL_LOOPING, AL10.AL_FALSE);
             AL10.alDistanceModel(AL10.AL_INVERSE_DISTANCE_CLAMPED);
             AL10.alSource3f(alSource, AL10.AL_POSITION, 0, 0, 0);
+            appliedGain = 1;
+            appliedPitch = 1;
+            appliedMaxDistance = 500;
+            appliedMinDistance = 1;
+            appliedX = appliedY = appliedZ = 0;
 
             error = AL10.alGetError();
             if (error != AL10.AL_NO_ERROR) {
                 LOGGER.error("配置属性失败: {}", error);
-                AL10.alDeleteSources(alSource);
+                VoiceManager.getInstance().alReleaseSource(alSource);
                 alSource = -1;
                 return;
             }
             requireInit = false;
-            LOGGER.info("OpenAL 音频初始化完成: {}", alSource);
+            alApplyProperties();
+            LOGGER.debug("OpenAL 音频初始化完成: {}", alSource);
         } catch (Exception e) {
             LOGGER.error("OpenAL 音频初始化异常: ", e);
             if (alSource != -1) {
                 try {
-                    AL10.alDeleteSources(alSource);
+                    VoiceManager.getInstance().alReleaseSource(alSource);
                 } catch (Exception ignored) {
                 }
                 alSource = -1;
@@ -106,18 +228,20 @@ public class AudioSource implements IAudioSource {
                     while (queuedCount-- > 0) {
                         int bufferId = AL10.alSourceUnqueueBuffers(alSource);
                         if (bufferId > 0) {
-                            availableBuffers.offer(bufferId);
+                            alOfferBuffer(bufferId);
                         }
                     }
+                    clearQueuedBuffers();
 
-                    // 删除 Source
-                    AL10.alDeleteSources(alSource);
+                    // 归还 Source
+                    VoiceManager.getInstance().alReleaseSource(alSource);
                     alSource = -1;
                 }
 
                 // 删除所有 Buffer
                 if (alBuffers != null) {
-                    for (int bufferId : alBuffers) {
+                    for (int i = 0; i < bufferCount; i++) {
+                        int bufferId = alBuffers[i];
                         try {
                             AL10.alDeleteBuffers(bufferId);
                         } catch (Exception e) {
@@ -128,12 +252,12 @@ public class AudioSource implements IAudioSource {
                 }
 
                 // 清空缓冲池
-                availableBuffers.clear();
+                availableCount = 0;
 
                 // 重置状态
                 requireInit = true;
 
-                LOGGER.info("OpenAL 所有资源已清理，等待重新初始化。");
+                LOGGER.debug("OpenAL 所有资源已清理，等待重新初始化。");
             } catch (Exception e) {
                 LOGGER.error("alCleanAll 清理 OpenAL 资源时出错", e);
             }
@@ -143,10 +267,9 @@ public class AudioSource implements IAudioSource {
     private void alCleanupBuffers() {
         if (alSource == -1) return;
         int processedCount = AL10.alGetSourcei(alSource, AL10.AL_BUFFERS_PROCESSED);
-        int queuedCount = AL10.alGetSourcei(alSource, AL10.AL_BUFFERS_QUEUED);
-        int state = AL10.alGetSourcei(alSource, AL10.AL_SOURCE_STATE);
+        int queuedCount = queuedSize;
 
-        if (processedCount > 0 && queuedCount > 0 && (state == AL10.AL_PLAYING || state == AL10.AL_PAUSED)) {
+        if (processedCount > 0 && queuedCount > 0) {
             for (int i = 0; i < processedCount && queuedCount > 0; i++) {
                 try {
                     int bufferId = AL10.alSourceUnqueueBuffers(alSource);
@@ -156,7 +279,11 @@ public class AudioSource implements IAudioSource {
                         break;
                     }
                     if (bufferId > 0) {
-                        availableBuffers.offer(bufferId);
+                        alOfferBuffer(bufferId);
+                    }
+                    if (queuedSize > 0) {
+                        queuedHead = (queuedHead + 1) % MAX_BUFFER_COUNT;
+                        queuedSize--;
                     }
                     queuedCount--;
                 } catch (Exception e) {
@@ -167,54 +294,127 @@ public class AudioSource implements IAudioSource {
         }
     }
 
-    private void alRestartIfNeed() {
-        int state = AL10.alGetSourcei(alSource, AL10.AL_SOURCE_STATE);
-        if (state == AL10.AL_STOPPED) {
-            AL10.alSourcePlay(alSource);
-        }
+    /**
+     * 多生成一个缓冲区，已达上限时返回 false
+     */
+    private boolean alGrowBuffers() {
+        if (alBuffers == null || bufferCount >= MAX_BUFFER_COUNT) return false;
+        int bufferId = AL10.alGenBuffers();
+        if (AL10.alGetError() != AL10.AL_NO_ERROR) return false;
+        alBuffers[bufferCount] = bufferId;
+        bufferCount++;
+        alOfferBuffer(bufferId);
+        LOGGER.debug("音频缓冲区增加到 {} 个", bufferCount);
+        return true;
     }
 
-    private void alUpload(AudioBufferData bufferData) {
-        synchronized (alLock) {
-            if (isClosed) return;
-            alInitIfNeed();
-            alRestartIfNeed();
-            alCleanupBuffers();
-            Integer bufferId = availableBuffers.poll();
-            if (bufferId == null) {
-                return;
+    /**
+     * 把音频包追加到暂存区，攒够一个缓冲的时长后提交
+     */
+    private void alStage(AudioBufferData data) {
+        try {
+            int sampleRate = data.getSampleRate();
+            if (stagedSamples > 0 && sampleRate != stagedSampleRate) {
+                alQueueStaged();
             }
-            alSetVolume(volume * Configs.VOLUME_FACTOR);
-            switch (bufferData.pcm) {
-                case ByteBuffer bb -> AL10.alBufferData(bufferId, AL10.AL_FORMAT_MONO16, bb, bufferData.sampleRate);
-                case ShortBuffer sb -> AL10.alBufferData(bufferId, AL10.AL_FORMAT_MONO16, sb, bufferData.sampleRate);
-                case FloatBuffer fb -> AL10.alBufferData(bufferId, AL10.AL_FORMAT_MONO16, fb, bufferData.sampleRate);
-                case null -> throw new NullPointerException("Buffer is null");
-                default -> throw new IllegalArgumentException("Unsupported Buffer type: " + bufferData.pcm.getClass());
+            var pcm = data.pcm();
+            int samples = pcm.remaining();
+            int chunkSamples = Math.max(1, sampleRate * Configs.AUDIO_CHUNK_MS / 1000);
+            int required = stagedSamples + samples;
+            if (staging == null || staging.capacity() < required) {
+                var grown = BufferPool.getInstance().acquireShort(Math.max(required, chunkSamples + samples));
+                if (staging != null) {
+                    MemoryUtil.memCopy(MemoryUtil.memAddress0(staging), MemoryUtil.memAddress0(grown), stagedSamples * 2L);
+                    BufferPool.getInstance().release(staging);
+                }
+                staging = grown;
             }
-            bufferData.close();
-            int error = AL10.alGetError();
-            if (error != AL10.AL_NO_ERROR) {
-                LOGGER.error("上传失败: {}", error);
-                availableBuffers.offer(bufferId);
-                requireInit = true;
-                return;
+            MemoryUtil.memCopy(MemoryUtil.memAddress(pcm), MemoryUtil.memAddress0(staging) + stagedSamples * 2L, samples * 2L);
+            if (stagedSamples == 0) {
+                stagedTimestamp = data.getTimestamp();
+                stagedSampleRate = sampleRate;
             }
+            stagedSamples = required;
+            hasStaged = true;
+        } finally {
+            data.close();
+        }
+        if (stagedSamples >= Math.max(1, stagedSampleRate * Configs.AUDIO_CHUNK_MS / 1000)) {
+            alQueueStaged();
+        }
+    }
 
-            AL10.alSourceQueueBuffers(alSource, bufferId);
-            error = AL10.alGetError();
-            if (error != AL10.AL_NO_ERROR) {
-                LOGGER.error("buffer 加入队列失败: {}", error);
-                availableBuffers.offer(bufferId);
-                return;
-            }
+    private void alDropStaged() {
+        stagedSamples = 0;
+        hasStaged = false;
+    }
+
+    /**
+     * 把暂存区作为一个缓冲加入队列，状态只查询一次，供回收、断音检测与播放位置共用
+     */
+    private void alQueueStaged() {
+        if (stagedSamples == 0 || staging == null) return;
+        alInitIfNeed();
+        int state = AL10.alGetSourcei(alSource, AL10.AL_SOURCE_STATE);
+        long now = System.nanoTime();
+        // 队列在下一块数据到达前就已播完，说明提前量不足
+        if (state == AL10.AL_STOPPED && queuedSize > 0 && now - queuedUntilNanos < 1_000_000_000L) {
+            alGrowBuffers();
+        }
+        alCleanupBuffers();
+        alUpdatePlaybackPosition(state);
+        if (availableCount == 0 && !alGrowBuffers()) {
+            alDropStaged();
+            return;
+        }
+        int bufferId = availableBuffers[--availableCount];
+        alSetVolume(volume * Configs.VOLUME_FACTOR);
+        // alBufferData 会复制数据，调用后暂存区即可复用
+        staging.position(0).limit(stagedSamples);
+        AL10.alBufferData(bufferId, AL10.AL_FORMAT_MONO16, staging, stagedSampleRate);
+        staging.clear();
+        long timestamp = stagedTimestamp;
+        int sampleRate = stagedSampleRate;
+        long durationNanos = (long) (stagedSamples * 1_000_000_000L / sampleRate / Math.max(0.01f, appliedPitch));
+        alDropStaged();
+        int error = AL10.alGetError();
+        if (error != AL10.AL_NO_ERROR) {
+            LOGGER.error("上传失败: {}", error);
+            alOfferBuffer(bufferId);
+            requireInit = true;
+            return;
+        }
 
-            int state = AL10.alGetSourcei(alSource, AL10.AL_SOURCE_STATE);
-            if (state != AL10.AL_PLAYING && state != AL10.AL_PAUSED) {
-                AL10.alSourcePlay(alSource);
+        AL10.alSourceQueueBuffers(alSource, bufferId);
+        error = AL10.alGetError();
+        if (error != AL10.AL_NO_ERROR) {
+            LOGGER.error("buffer 加入队列失败: {}", error);
+            alOfferBuffer(bufferId);
+            return;
+        }
+        int tail = (queuedHead + queuedSize) % MAX_BUFFER_COUNT;
+        queuedTimestamps[tail] = timestamp;
+        queuedSampleRates[tail] = sampleRate;
+        queuedSize++;
+        queuedUntilNanos = Math.max(queuedUntilNanos, now) + durationNanos;
+
+        if (state != AL10.AL_PLAYING && state != AL10.AL_PAUSED) {
+            AL10.alSourcePlay(alSource);
+        }
+    }
+
+    private void alFlushStaged() {
+        synchronized (alLock) {
+            if (isClosed) return;
+            try {
+                alQueueStaged();
+            } catch (Exception e) {
+                alDropStaged();
+                LOGGER.error("上传音频数据异常", e);
             }
         }
     }
+
     public volatile float x,y,z;
 
     @Override
@@ -232,13 +432,76 @@ public class AudioSource implements IAudioSource {
         return z;
     }
 
+    /**
+     * 把最新的属性写入 source，未变化的属性不调用 OpenAL
+     */
+    private void alApplyProperties() {
+        alSetPos(x, y, z);
+        alSetVolume(volume * Configs.VOLUME_FACTOR);
+        alSetMinDistance(minDistance);
+        alSetMaxDistance(Math.max(maxDistance, minDistance));
+        alSetPitch(pitch);
+    }
+
+    @Override
+    public float getGain() {
+        return volume * Configs.VOLUME_FACTOR;
+    }
+
+    @Override
+    public float getMinDistance() {
+        return minDistance;
+    }
+
+    @Override
+    public float getMaxDistance() {
+        return Math.max(maxDistance, minDistance);
+    }
+
+    @Override
+    public void setVirtual(boolean virtual) {
+        if (this.virtual == virtual) return;
+        this.virtual = virtual;
+        if (virtual) {
+            clearPending();
+            alThreadExecutor.accept(releaseTask);
+        }
+    }
+
+    /**
+     * 成为虚拟音源后归还 source 与缓冲，下次上传时重新初始化
+     */
+    private void alRelease() {
+        synchronized (alLock) {
+            if (!virtual || isClosed) return;
+            alDropStaged();
+            if (!requireInit && alSource != -1) {
+                alCleanAll();
+            }
+        }
+    }
+
+    @Override
+    public void alFlushProperties() {
+        synchronized (alLock) {
+            // 尚未创建 source 时在初始化后写入
+            if (isClosed || requireInit || alSource == -1) return;
+            try {
+                alApplyProperties();
+            } catch (Exception e) {
+                LOGGER.error("设置音源属性异常", e);
+            }
+        }
+    }
+
     private void alSetPos(float x, float y, float z) {
         alInitIfNeed();
         try {
-            this.x = x;
-            this.y = y;
-            this.z = z;
+            if (x == appliedX && y == appliedY && z == appliedZ) return;
             AL10.alSource3f(alSource, AL10.AL_POSITION, x, y, z);
+            appliedX = x;
+            appliedY = y;
+            appliedZ = z;
         } catch (Exception e) {
             LOGGER.error("设置位置异常", e);
         }
@@ -258,8 +521,10 @@ public class AudioSource implements IAudioSource {
         if (volume < 0) {
             volume = 0;
         }
+        if (volume == appliedGain) return;
         try {
             AL10.alSourcef(alSource, AL10.AL_GAIN, volume);
+            appliedGain = volume;
         } catch (Exception e) {
             LOGGER.error("设置音量异常", e);
         }
@@ -270,8 +535,10 @@ public class AudioSource implements IAudioSource {
         if (maxDistance < 0) {
             maxDistance = 0;
         }
+        if (maxDistance == appliedMaxDistance) return;
         try {
             AL10.alSourcef(alSource, AL10.AL_MAX_DISTANCE, maxDistance);
+            appliedMaxDistance = maxDistance;
         } catch (Exception e) {
             LOGGER.error("设置最大距离失败", e);
         }
@@ -282,33 +549,81 @@ public class AudioSource implements IAudioSource {
         if (minDistance < 0) {
             minDistance = 0;
         }
+        if (minDistance == appliedMinDistance) return;
         try {
             AL10.alSourcef(alSource, AL10.AL_REFERENCE_DISTANCE, minDistance);
+            appliedMinDistance = minDistance;
         } catch (Exception e) {
             LOGGER.error("设置最大距离失败", e);
         }
     }
 
+    @Override
     public void upload(@Nullable AudioBufferData audioFrame) {
-        if (isClosed) return;
         if (audioFrame == null) {
             return;
         }
-
+        if (isClosed || virtual || !pending.offer(audioFrame)) {
+            audioFrame.close();
+            return;
+        }
+        // 已有排队的任务时由它一并处理，不再重复提交
+        if (!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
         try {
-            alThreadExecutor.accept(() -> alUpload(audioFrame));
+            alThreadExecutor.accept(drainTask);
         } catch (Exception e) {
+            drainScheduled.set(false);
             LOGGER.error("Failed to schedule audio frame upload", e);
         }
     }
 
-    public void alSetPitch(float pitch) {
+    private void alDrainPending() {
+        drainScheduled.set(false);
+        synchronized (alLock) {
+            AudioBufferData data;
+            while ((data = pending.poll()) != null) {
+                if (isClosed || virtual) {
+                    data.close();
+                    continue;
+                }
+                try {
+                    alStage(data);
+                } catch (Exception e) {
+                    alDropStaged();
+                    LOGGER.error("上传音频数据异常", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 没有后续数据时把暂存区中不足一个缓冲的数据也提交
+     */
+    @Override
+    public void flush() {
+        if (hasStaged && !isClosed) {
+            alThreadExecutor.accept(flushTask);
+        }
+    }
+
+    private void clearPending() {
+        AudioBufferData data;
+        while ((data = pending.poll()) != null) {
+            data.close();
+        }
+    }
+
+    private void alSetPitch(float pitch) {
         alInitIfNeed();
         if (pitch < 0) {
             pitch = 0;
         }
+        if (pitch == appliedPitch) return;
         try {
             AL10.alSourcef(alSource, AL10.AL_PITCH, pitch);
+            appliedPitch = pitch;
         } catch (Exception e) {
             LOGGER.error("设置最大距离失败", e);
         }
@@ -316,11 +631,13 @@ public class AudioSource implements IAudioSource {
 
     @Override
     public void setPitch(float pitch) {
-        alThreadExecutor.accept(() -> alSetPitch(pitch));
+        this.pitch = pitch;
+        AudioCommandBuffer.getInstance().markDirty(this);
     }
 
     @Override
     public void clearBuffer() {
+        clearPending();
         alThreadExecutor.accept(() -> {
             synchronized (alLock) {
                 if (isClosed || requireInit || alSource == -1) return;
@@ -339,11 +656,13 @@ public class AudioSource implements IAudioSource {
                             break;
                         }
                         if (bufferId > 0) {
-                            availableBuffers.offer(bufferId);
+                            alOfferBuffer(bufferId);
                         }
                     }
+                    clearQueuedBuffers();
+                    alDropStaged();
 
-                    LOGGER.info("清空音频缓冲完成，缓冲池大小: {}", availableBuffers.size());
+                    LOGGER.info("清空音频缓冲完成，缓冲池大小: {}", availableCount);
 
                 } catch (Exception e) {
                     LOGGER.error("clearBuffer 异常", e);
@@ -352,22 +671,30 @@ public class AudioSource implements IAudioSource {
         });
     }
 
+    @Override
     public void setPos(float x, float y, float z) {
-
-        alThreadExecutor.accept(() -> alSetPos(x, y, z));
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        AudioCommandBuffer.getInstance().markDirty(this);
     }
 
-    float volume = 1f;
+    // 期望的属性，由 AudioCommandBuffer 在音频线程上统一写入
+    private volatile float volume = 1f;
+    private volatile float pitch = 1f;
+    private volatile float minDistance = 1f;
+    private volatile float maxDistance = 500f;
+    @Override
     public void setVolume(float volume) {
         this.volume = volume;
-//        alThreadExecutor.accept(() -> alSetVolume(volume));
+        AudioCommandBuffer.getInstance().markDirty(this);
     }
 
+    @Override
     public void setRange(float min, float max) {
-        alThreadExecutor.accept(() -> {
-            alSetMinDistance(min);
-            alSetMaxDistance(Math.max(max, min));
-        });
+        this.minDistance = min;
+        this.maxDistance = max;
+        AudioCommandBuffer.getInstance().markDirty(this);
     }
 
     public void alClose() {
@@ -375,28 +702,17 @@ public class AudioSource implements IAudioSource {
             if (isClosed) return;
 
             isClosed = true;
+            clearPending();
+            alDropStaged();
+            if (staging != null) {
+                BufferPool.getInstance().release(staging);
+                staging = null;
+            }
 
             if (!requireInit && alSource != -1) {
-                try {
-                    // 停止播放
-                    AL10.alSourceStop(alSource);
-
-                    // 清理所有缓冲区
-                    alCleanupBuffers();
-
-                    // 清空队列
-                    availableBuffers.clear();
-
-                    // 删除音频源
-                    AL10.alDeleteSources(alSource);
-                    alSource = -1;
-
-                    requireInit = true;
-                    LOGGER.info("OpenAL audio source closed.");
-
-                } catch (Exception e) {
-                    LOGGER.error("Exception during OpenAL cleanup", e);
-                }
+                // 归还音频源并删除缓冲区
+                alCleanAll();
+                LOGGER.info("OpenAL audio source closed.");
             }
         }
     }
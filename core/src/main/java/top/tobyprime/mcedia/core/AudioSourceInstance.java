@@ -1,12 +1,13 @@
 package top.tobyprime.mcedia.core;
 
+import top.tobyprime.mcedia.interfaces.IAudioSource;
 
 public class AudioSourceInstance {
-    public AudioSource audioSource;
+    public IAudioSource audioSource;
     public float offsetX, offsetY, offsetZ;
     public int channel;
 
-    public AudioSourceInstance(AudioSource audioSource, float offsetX, float offsetY, float offsetZ, int channel) {
+    public AudioSourceInstance(IAudioSource audioSource, float offsetX, float offsetY, float offsetZ, int channel) {
         this.audioSource = audioSource;
         this.offsetX = offsetX;
         this.offsetY = offsetY;
@@ -0,0 +1,415 @@
+package top.tobyprime.mcedia.core;
+
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.openal.AL;
+import org.lwjgl.openal.AL10;
+import org.lwjgl.openal.SOFTCallbackBuffer;
+import org.lwjgl.openal.SOFTCallbackBufferType;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.tobyprime.mcedia.Configs;
+import top.tobyprime.mcedia.decoders.AudioBufferData;
+import top.tobyprime.mcedia.interfaces.IAudioSource;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * 基于 AL_SOFT_callback_buffer 的音源：OpenAL Soft 的混音线程按需从环形缓冲区拉取 PCM，
+ * 解码侧只写环形缓冲区，不再逐包调用 OpenAL 或切换到音频线程，缓冲区也不会因为用尽而丢包。
+ * <p>
+ * 环形缓冲区为单生产者单消费者：生产者是 {@link Media} 的音频线程，消费者是混音线程。
+ * 只有采样率变化时才需要在音频线程上重新绑定缓冲区。
+ */
+public class CallbackAudioSource implements VoiceManager.Voice, AudioCommandBuffer.Target {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CallbackAudioSource.class);
+    private static final int RING_SAMPLES = 1 << 17; // 环形缓冲区的采样数，48kHz 下约 2.7 秒
+    private static final int RING_MASK = RING_SAMPLES - 1;
+    private static final int MAX_MARKS = 256; // 环形缓冲区中最多记录时间戳的数据块
+    private final Consumer<Runnable> alThreadExecutor;
+
+    // 由 GC 回收，关闭后混音线程或生产者仍在访问也不会越界
+    private final ByteBuffer ringBuffer = ByteBuffer.allocateDirect(RING_SAMPLES * 2);
+    private final long ring;
+    // 累计写入、读取的采样数，分别只由生产者、消费者修改
+    private final AtomicLong writePos = new AtomicLong();
+    private final AtomicLong readPos = new AtomicLong();
+    // 清空缓冲时丢弃到的位置，消费者在下次回调时跳过
+    private volatile long flushPos;
+    // 每个数据块第一个采样的位置、时间戳和采样率，环形存放
+    private final long[] markPositions = new long[MAX_MARKS];
+    private final long[] markTimestamps = new long[MAX_MARKS];
+    private final int[] markSampleRates = new int[MAX_MARKS];
+    private final AtomicLong markWrite = new AtomicLong();
+    private final AtomicLong markRead = new AtomicLong();
+    // 播放位置，写入方为混音线程，读取时再构造 PlaybackPosition
+    private final StampedLock positionLock = new StampedLock();
+    private boolean positionValid;
+    private long positionTimestamp;
+    private long positionSampledAt;
+
+    private final SOFTCallbackBufferType callback = SOFTCallbackBufferType.create(this::mix);
+    private final Object alLock = new Object();
+    // 生产者最近一次请求的采样率
+    private int requestedSampleRate;
+    private volatile int alSource = -1;
+    private int alBuffer;
+    private volatile boolean isClosed = false;
+    // 听不到时不持有 source，上传的数据直接丢弃；重新变为可听时需要重新绑定
+    private volatile boolean virtual = false;
+    private volatile boolean rebindRequired = false;
+
+    public volatile float x, y, z;
+    private volatile float volume = 1f;
+    private volatile float pitch = 1f;
+    private volatile float minDistance = 1f;
+    private volatile float maxDistance = 500f;
+    // 最近一次写入 source 的属性，只在音频线程上访问
+    private float appliedX, appliedY, appliedZ;
+    private float appliedGain = 1f, appliedPitch = 1f, appliedMinDistance = 1f, appliedMaxDistance = 500f;
+
+    public CallbackAudioSource(Consumer<Runnable> alThreadExecutor) {
+        this.alThreadExecutor = alThreadExecutor;
+        this.ring = MemoryUtil.memAddress(ringBuffer);
+    }
+
+    /**
+     * 当前 OpenAL 上下文是否支持 AL_SOFT_callback_buffer
+     */
+    public static boolean isSupported() {
+        try {
+            return AL.getCapabilities().AL_SOFT_callback_buffer;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int getId() {
+        return alSource;
+    }
+
+    @Override
+    public float getLastX() {
+        return x;
+    }
+
+    @Override
+    public float getLastY() {
+        return y;
+    }
+
+    @Override
+    public float getLastZ() {
+        return z;
+    }
+
+    @Override
+    public @Nullable PlaybackPosition getPlaybackPosition() {
+        long stamp = positionLock.tryOptimisticRead();
+        boolean valid = positionValid;
+        long timestamp = positionTimestamp;
+        long sampledAt = positionSampledAt;
+        if (!positionLock.validate(stamp)) {
+            stamp = positionLock.readLock();
+            try {
+                valid = positionValid;
+                timestamp = positionTimestamp;
+                sampledAt = positionSampledAt;
+            } finally {
+                positionLock.unlockRead(stamp);
+            }
+        }
+        return valid ? new PlaybackPosition(timestamp, sampledAt) : null;
+    }
+
+    /**
+     * 把数据写入环形缓冲区，空间不足时丢弃放不下的部分
+     */
+    @Override
+    public void upload(@Nullable AudioBufferData buffer) {
+        if (buffer == null) return;
+        try {
+            if (isClosed || virtual) return;
+            int sampleRate = buffer.getSampleRate();
+            if (sampleRate != requestedSampleRate || rebindRequired) {
+                rebindRequired = false;
+                // 缓冲区的采样率固定，旧采样率的数据不再播放
+                requestedSampleRate = sampleRate;
+                flushPos = writePos.get();
+                alThreadExecutor.accept(() -> alBind(sampleRate));
+            }
+            var pcm = buffer.pcm();
+            long write = writePos.get();
+            int free = (int) (RING_SAMPLES - (write - readPos.get()));
+            int count = Math.min(pcm.remaining(), free);
+            if (count <= 0) return;
+
+            long marks = markWrite.get();
+            if (marks - markRead.get() < MAX_MARKS) {
+                int mark = (int) (marks % MAX_MARKS);
+                markPositions[mark] = write;
+                markTimestamps[mark] = buffer.getTimestamp();
+                markSampleRates[mark] = sampleRate;
+                markWrite.set(marks + 1);
+            }
+
+            long src = MemoryUtil.memAddress(pcm);
+            int start = (int) (write & RING_MASK);
+            int first = Math.min(count, RING_SAMPLES - start);
+            MemoryUtil.memCopy(src, ring + start * 2L, first * 2L);
+            if (count > first) {
+                MemoryUtil.memCopy(src + first * 2L, ring, (count - first) * 2L);
+            }
+            writePos.set(write + count);
+        } finally {
+            buffer.close();
+        }
+    }
+
+    /**
+     * 混音线程的回调，返回的字节数少于请求时 source 会停止，因此数据不足时补静音
+     */
+    private int mix(long userptr, long sampleData, int numBytes) {
+        int wanted = numBytes >> 1;
+        long read = Math.max(readPos.get(), flushPos);
+        int count = (int) Math.min(writePos.get() - read, wanted);
+        int start = (int) (read & RING_MASK);
+        int first = Math.min(count, RING_SAMPLES - start);
+        if (count > 0) {
+            MemoryUtil.memCopy(ring + start * 2L, sampleData, first * 2L);
+            if (count > first) {
+                MemoryUtil.memCopy(ring, sampleData + first * 2L, (count - first) * 2L);
+            }
+        }
+        if (count < wanted) {
+            MemoryUtil.memSet(sampleData + count * 2L, 0, (long) (wanted - count) * 2L);
+        }
+        readPos.set(read + count);
+        updatePlaybackPosition(read, count);
+        return numBytes;
+    }
+
+    /**
+     * 根据本次拉取的第一个采样所在数据块计算播放位置，只在混音线程上调用
+     */
+    private void updatePlaybackPosition(long read, int count) {
+        long marks = markWrite.get();
+        long mark = markRead.get();
+        while (mark + 1 < marks && markPositions[(int) ((mark + 1) % MAX_MARKS)] <= read) {
+            mark++;
+        }
+        markRead.set(mark);
+
+        int index = (int) (mark % MAX_MARKS);
+        boolean valid = count > 0 && mark < marks && markPositions[index] <= read;
+        long timestamp = valid ? markTimestamps[index] + (read - markPositions[index]) * 1_000_000L / markSampleRates[index] : 0;
+        // 不阻塞混音线程，读取方正持有锁时跳过这次更新
+        long stamp = positionLock.tryWriteLock();
+        if (stamp == 0) return;
+        positionValid = valid;
+        positionTimestamp = timestamp;
+        positionSampledAt = System.nanoTime();
+        positionLock.unlockWrite(stamp);
+    }
+
+    /**
+     * 按采样率重新创建回调缓冲区并开始播放，首次调用时创建 source
+     */
+    private void alBind(int sampleRate) {
+        synchronized (alLock) {
+            if (isClosed) return;
+            try {
+                if (alSource == -1) {
+                    // 池中的 source 可能保留着上一个使用者的属性，全部重新写入
+                    int source = VoiceManager.getInstance().alAcquireSource();
+                    AL10.alSourcei(source, AL10.AL_SOURCE_RELATIVE, AL10.AL_FALSE);
+                    AL10.alSourcei(source, AL10.AL_LOOPING, AL10.AL_FALSE);
+                    AL10.alSourcef(source, AL10.AL_ROLLOFF_FACTOR, 1.0f);
+                    AL10.alSource3f(source, AL10.AL_POSITION, appliedX, appliedY, appliedZ);
+                    AL10.alSourcef(source, AL10.AL_GAIN, appliedGain);
+                    AL10.alSourcef(source, AL10.AL_PITCH, appliedPitch);
+                    AL10.alSourcef(source, AL10.AL_REFERENCE_DISTANCE, appliedMinDistance);
+                    AL10.alSourcef(source, AL10.AL_MAX_DISTANCE, appliedMaxDistance);
+                    AL10.alDistanceModel(AL10.AL_INVERSE_DISTANCE_CLAMPED);
+                    alSource = source;
+                    alApplyProperties();
+                } else {
+                    AL10.alSourceStop(alSource);
+                    AL10.alSourcei(alSource, AL10.AL_BUFFER, 0);
+                }
+                if (alBuffer != 0) {
+                    AL10.alDeleteBuffers(alBuffer);
+                }
+                alBuffer = AL10.alGenBuffers();
+                SOFTCallbackBuffer.alBufferCallbackSOFT(alBuffer, AL10.AL_FORMAT_MONO16, sampleRate, callback, 0L);
+                AL10.alSourcei(alSource, AL10.AL_BUFFER, alBuffer);
+                AL10.alSourcePlay(alSource);
+                int error = AL10.alGetError();
+                if (error != AL10.AL_NO_ERROR) {
+                    LOGGER.error("绑定回调缓冲区失败: {}", error);
+                    return;
+                }
+                LOGGER.debug("OpenAL 回调音源已就绪: {}, {}Hz", alSource, sampleRate);
+            } catch (Exception e) {
+                LOGGER.error("绑定回调缓冲区异常", e);
+            }
+        }
+    }
+
+    /**
+     * 把最新的属性写入 source，未变化的属性不调用 OpenAL
+     */
+    private void alApplyProperties() {
+        if (alSource == -1) return;
+        float x = this.x, y = this.y, z = this.z;
+        if (x != appliedX || y != appliedY || z != appliedZ) {
+            AL10.alSource3f(alSource, AL10.AL_POSITION, x, y, z);
+            appliedX = x;
+            appliedY = y;
+            appliedZ = z;
+        }
+        float gain = Math.max(0, volume * Configs.VOLUME_FACTOR);
+        if (gain != appliedGain) {
+            AL10.alSourcef(alSource, AL10.AL_GAIN, gain);
+            appliedGain = gain;
+        }
+        float pitch = this.pitch;
+        if (pitch != appliedPitch) {
+            AL10.alSourcef(alSource, AL10.AL_PITCH, pitch);
+            appliedPitch = pitch;
+        }
+        float minDistance = this.minDistance;
+        if (minDistance != appliedMinDistance) {
+            AL10.alSourcef(alSource, AL10.AL_REFERENCE_DISTANCE, minDistance);
+            appliedMinDistance = minDistance;
+        }
+        float maxDistance = this.maxDistance;
+        if (maxDistance != appliedMaxDistance) {
+            AL10.alSourcef(alSource, AL10.AL_MAX_DISTANCE, maxDistance);
+            appliedMaxDistance = maxDistance;
+        }
+    }
+
+    @Override
+    public float getGain() {
+        return volume * Configs.VOLUME_FACTOR;
+    }
+
+    @Override
+    public float getMinDistance() {
+        return minDistance;
+    }
+
+    @Override
+    public float getMaxDistance() {
+        return maxDistance;
+    }
+
+    @Override
+    public void setVirtual(boolean virtual) {
+        if (this.virtual == virtual) return;
+        this.virtual = virtual;
+        if (virtual) {
+            clearBuffer();
+            alThreadExecutor.accept(this::alRelease);
+        } else {
+            rebindRequired = true;
+        }
+    }
+
+    private void alRelease() {
+        synchronized (alLock) {
+            if (!virtual || isClosed) return;
+            try {
+                alUnbind();
+            } catch (Exception e) {
+                LOGGER.error("归还音源异常", e);
+            }
+        }
+    }
+
+    @Override
+    public void alFlushProperties() {
+        synchronized (alLock) {
+            if (isClosed) return;
+            try {
+                alApplyProperties();
+            } catch (Exception e) {
+                LOGGER.error("设置音源属性异常", e);
+            }
+        }
+    }
+
+    @Override
+    public void setPos(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        AudioCommandBuffer.getInstance().markDirty(this);
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        this.volume = volume;
+        AudioCommandBuffer.getInstance().markDirty(this);
+    }
+
+    @Override
+    public void setRange(float min, float max) {
+        this.minDistance = Math.max(0, min);
+        this.maxDistance = Math.max(max, this.minDistance);
+        AudioCommandBuffer.getInstance().markDirty(this);
+    }
+
+    @Override
+    public void setPitch(float pitch) {
+        this.pitch = Math.max(0, pitch);
+        AudioCommandBuffer.getInstance().markDirty(this);
+    }
+
+    /**
+     * 丢弃已写入但尚未播放的数据，混音线程在下次回调时跳过
+     */
+    @Override
+    public void clearBuffer() {
+        flushPos = writePos.get();
+        long stamp = positionLock.writeLock();
+        positionValid = false;
+        positionLock.unlockWrite(stamp);
+    }
+
+    public void close() {
+        isClosed = true;
+        alThreadExecutor.accept(this::alClose);
+    }
+
+    /**
+     * 归还 source 并删除回调缓冲区
+     */
+    private void alUnbind() {
+        if (alSource != -1) {
+            VoiceManager.getInstance().alReleaseSource(alSource);
+            alSource = -1;
+        }
+        if (alBuffer != 0) {
+            AL10.alDeleteBuffers(alBuffer);
+            alBuffer = 0;
+        }
+    }
+
+    private void alClose() {
+        synchronized (alLock) {
+            try {
+                alUnbind();
+                callback.free();
+                LOGGER.info("OpenAL callback audio source closed.");
+            } catch (Exception e) {
+                LOGGER.error("Exception during OpenAL cleanup", e);
+            }
+        }
+    }
+}
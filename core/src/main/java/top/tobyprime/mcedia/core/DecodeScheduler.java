@@ -0,0 +1,220 @@
+package top.tobyprime.mcedia.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.tobyprime.mcedia.Configs;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 所有播放器共用的解码调度器。
+ * <p>
+ * 解码工作被拆成一次次 {@link Task#step()}，由固定数量 ({@link Configs#DECODER_THREADS}) 的工作线程按优先级执行；
+ * 优先级由 {@link PlayerInstanceManagerRegistry} 分配（注视中、最近的优先）。
+ * 队列写满等无事可做的任务会挂起，直到被 {@link Job#wake()} 唤醒，不占用线程也不轮询。
+ */
+public class DecodeScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DecodeScheduler.class);
+    private static volatile DecodeScheduler instance;
+
+    /**
+     * 继续执行下一步
+     */
+    public static final long CONTINUE = 0;
+    /**
+     * 挂起直到被唤醒
+     */
+    public static final long PARK = Long.MAX_VALUE;
+    /**
+     * 任务结束
+     */
+    public static final long DONE = -1;
+
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * 执行一小步解码，不能长时间阻塞
+         *
+         * @return {@link #CONTINUE}、{@link #PARK}、{@link #DONE}，或其他正数表示最多挂起的纳秒数
+         */
+        long step() throws Exception;
+    }
+
+    private static final int RUNNABLE = 0;
+    private static final int RUNNING = 1;
+    private static final int PARKED = 2;
+    private static final int FINISHED = 3;
+
+    public class Job {
+        private final String name;
+        private final Task task;
+        private final AtomicInteger state = new AtomicInteger(RUNNABLE);
+        private final AtomicInteger wakeRequested = new AtomicInteger();
+        // 只在持有调度器锁时修改
+        private volatile int priority;
+        private long sequence;
+
+        private Job(String name, Task task, int priority) {
+            this.name = name;
+            this.task = task;
+            this.priority = priority;
+        }
+
+        /**
+         * 设置优先级，数值越小越优先；已在队列中时重新入堆，避免破坏堆序
+         */
+        public void setPriority(int priority) {
+            if (this.priority == priority) return;
+            lock.lock();
+            try {
+                boolean queued = runQueue.remove(this);
+                this.priority = priority;
+                if (queued) runQueue.add(this);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 唤醒挂起的任务，运行中调用则在本步结束后立即再次执行
+         */
+        public void wake() {
+            wakeRequested.set(1);
+            if (state.compareAndSet(PARKED, RUNNABLE)) {
+                enqueue(this);
+            }
+        }
+
+        /**
+         * 取消任务，正在执行的一步会执行完
+         */
+        public void cancel() {
+            int s;
+            do {
+                s = state.get();
+                if (s == FINISHED) return;
+            } while (!state.compareAndSet(s, FINISHED));
+        }
+
+        public boolean isFinished() {
+            return state.get() == FINISHED;
+        }
+
+        private void park(long nanos) {
+            if (!state.compareAndSet(RUNNING, PARKED)) return;
+            // 挂起前已有唤醒请求
+            if (wakeRequested.getAndSet(0) == 1) {
+                if (state.compareAndSet(PARKED, RUNNABLE)) enqueue(this);
+                return;
+            }
+            if (nanos != PARK) {
+                timer.schedule(this::wake, nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final PriorityQueue<Job> runQueue = new PriorityQueue<>((a, b) -> a.priority != b.priority ? Integer.compare(a.priority, b.priority) : Long.compare(a.sequence, b.sequence));
+    private final AtomicLong sequence = new AtomicLong();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Mcedia-Decode-Timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private DecodeScheduler(int threads) {
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(this::workerLoop, "Mcedia-Decoder-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        LOGGER.info("解码调度器已启动，线程数: {}", threads);
+    }
+
+    public static DecodeScheduler getInstance() {
+        if (instance == null) {
+            synchronized (DecodeScheduler.class) {
+                if (instance == null) {
+                    instance = new DecodeScheduler(Math.max(1, Configs.DECODER_THREADS));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 提交解码任务
+     */
+    public Job submit(String name, int priority, Task task) {
+        var job = new Job(name, task, priority);
+        enqueue(job);
+        return job;
+    }
+
+    private void enqueue(Job job) {
+        lock.lock();
+        try {
+            job.sequence = sequence.getAndIncrement();
+            runQueue.add(job);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Job take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                var job = runQueue.poll();
+                if (job == null) {
+                    notEmpty.await();
+                    continue;
+                }
+                if (job.state.compareAndSet(RUNNABLE, RUNNING)) {
+                    return job;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void workerLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Job job;
+            try {
+                job = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            long result;
+            job.wakeRequested.set(0);
+            try {
+                result = job.task.step();
+            } catch (Exception e) {
+                LOGGER.error("解码任务 {} 异常", job.name, e);
+                result = DONE;
+            }
+
+            if (result == DONE) {
+                job.cancel();
+            } else if (result == CONTINUE) {
+                if (job.state.compareAndSet(RUNNING, RUNNABLE)) {
+                    enqueue(job);
+                }
+            } else {
+                job.park(result);
+            }
+        }
+    }
+}
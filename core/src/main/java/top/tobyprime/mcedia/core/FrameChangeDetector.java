@@ -0,0 +1,31 @@
+package top.tobyprime.mcedia.core;
+
+import top.tobyprime.mcedia.decoders.DirtyRegion;
+import top.tobyprime.mcedia.decoders.TileHasher;
+import top.tobyprime.mcedia.decoders.VideoFrame;
+
+/**
+ * 记录一个纹理上次上传的帧的图块哈希，算出下一帧需要上传的区域
+ */
+class FrameChangeDetector {
+    private long[] previous;
+    private int width;
+    private int height;
+    private VideoFrame.Format format;
+
+    /**
+     * 与上次上传的帧比较，并把 frame 记为已上传
+     *
+     * @return 变化的区域，没有变化时为空
+     */
+    DirtyRegion diff(VideoFrame frame) {
+        long[] current = frame.getTileHashes();
+        boolean sameLayout = frame.width == width && frame.height == height && frame.format == format;
+        var region = sameLayout ? TileHasher.diff(previous, frame) : DirtyRegion.full(frame.width, frame.height);
+        previous = current;
+        width = frame.width;
+        height = frame.height;
+        format = frame.format;
+        return region;
+    }
+}
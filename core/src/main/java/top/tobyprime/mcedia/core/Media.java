@@ -7,14 +7,20 @@ import top.tobyprime.mcedia.Configs;
 import top.tobyprime.mcedia.danmaku.Danmaku;
 import top.tobyprime.mcedia.danmaku.DanmakuEntity;
 import top.tobyprime.mcedia.danmaku.DanmakuScreen;
+import top.tobyprime.mcedia.decoders.DecodeTier;
 import top.tobyprime.mcedia.decoders.DecoderConfiguration;
+import top.tobyprime.mcedia.decoders.FrameMailbox;
+import top.tobyprime.mcedia.decoders.FrameRing;
 import top.tobyprime.mcedia.decoders.VideoFrame;
 import top.tobyprime.mcedia.decoders.ffmpeg.FfmpegMediaDecoder;
+import top.tobyprime.mcedia.decoders.libav.LibavMediaDecoder;
 import top.tobyprime.mcedia.interfaces.*;
 
 import java.io.Closeable;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 
 /**
@@ -25,21 +31,59 @@ public class Media implements Closeable {
 
     private final IMediaDecoder decoder;
     private final Thread audioThread;
-    private final ArrayList<IAudioSource> audioSources = new ArrayList<>();
+    private final CopyOnWriteArrayList<IAudioSource> audioSources = new CopyOnWriteArrayList<>();
     private final MediaInfo mediaInfo;
     private final DanmakuScreen danmakuScreen;
-    public long lastDanmakuUpdateDurationUs = -1;
-    public long lastDanmakuDurationUpdateTimeUs = -1;
-    private @Nullable ITexture texture;
-    private boolean paused = true;
+    // 音频上传相对播放时钟的提前量，OpenAL 队列中大约保持这么长的音频
+    private static final long AUDIO_LEAD_US = 50_000L;
+    private final MediaClock clock = new MediaClock();
+    // 共享会话时每个播放器绑定一个纹理
+    private final CopyOnWriteArrayList<ITexture> textures = new CopyOnWriteArrayList<>();
+    // 每个纹理上次上传内容的图块哈希，仅由渲染线程访问
+    private final ConcurrentHashMap<ITexture, FrameChangeDetector> changeDetectors = new ConcurrentHashMap<>();
+    // 共享会话时各播放器请求的解码设置，按最高要求合并后应用到解码器
+    private final HashMap<Object, DecodeTier> tierRequests = new HashMap<>();
+    private final HashMap<Object, Integer> priorityRequests = new HashMap<>();
+    private final HashMap<Object, Long> memoryBudgetRequests = new HashMap<>();
+    private long appliedMemoryBudget = -1;
+    private final HashMap<Object, OutputSize> outputSizeRequests = new HashMap<>();
+    private OutputSize appliedOutputSize = OutputSize.NATIVE;
+    private volatile boolean paused = true;
+    private final Object pauseLock = new Object();
+    // 播放结束且不循环时在此等待，seek 与 setLooping 唤醒，close 通过中断唤醒
+    private final Object endLock = new Object();
     private boolean isLiveStream = false; // 标识是否为直播
-    private long lastAudioPts = -1; // 最近上传的音频帧时间戳
-    private float speed = 1;
-    private boolean looping = false;
-    // 最近上传的视频帧时间戳
-    private @Nullable IVideoData currentVideoFrame;
+    // 最近显示的视频帧时间戳与播放时钟的差
+    private volatile long avDriftUs = 0;
+    private volatile float speed = 1;
+    private volatile boolean looping = false;
+    private final FrameMailbox<IVideoData> videoHandoff = new FrameMailbox<>();
+    // 以下仅由播放线程访问：估计的视频帧间隔与最近发布的帧时间戳
+    private long frameIntervalUs = 33_333L;
+    private long lastPublishedPts = -1;
+    // 以下仅由渲染线程访问：最近显示的帧时间戳
+    private boolean hasShownFrame = false;
+    // 实际显示帧率，每秒统计一次
+    private long presentWindowStart = 0;
+    private int presentedFrames = 0;
+    private volatile long lastPresentNanos = 0;
+    private volatile float presentedFps = 0;
+    // 变化检测的统计：按纹理计的帧数、跳过的帧数，以及上传帧的变化像素与总像素
+    private volatile long uploadedFrames = 0;
+    private volatile long skippedFrames = 0;
+    private volatile long dirtyPixels = 0;
+    private volatile long totalPixels = 0;
+    private long shownPts;
+    // 缓冲到高水位才开始播放，低于低水位时重新进入缓冲
+    private final long highWatermarkUs;
+    private final long lowWatermarkUs;
+    private volatile boolean buffering = true;
+    private volatile int rebufferCount = 0;
+
     public Media(MediaInfo info, DecoderConfiguration config) {
-        decoder = new FfmpegMediaDecoder(info, config);
+        decoder = createDecoder(info, config);
+        highWatermarkUs = Math.min(config.cacheDuration, Configs.DECODER_MAX_LOOKAHEAD_MS * 1000L);
+        lowWatermarkUs = highWatermarkUs / 4;
 
         // 检测是否为直播流（假设duration无效或为0表示直播）
         isLiveStream = decoder.isLiveStream();
@@ -53,25 +97,113 @@ public class Media implements Closeable {
 
     }
 
-    public void setLowOverhead(boolean lowOverhead) {
-        this.decoder.setLowOverhead(lowOverhead);
+    /**
+     * 按 {@link Configs#DECODER_ENGINE} 创建解码器，libav 引擎打开失败时回退到 FFmpegFrameGrabber
+     */
+    private static IMediaDecoder createDecoder(MediaInfo info, DecoderConfiguration config) {
+        if ("libav".equalsIgnoreCase(Configs.DECODER_ENGINE)) {
+            try {
+                return new LibavMediaDecoder(info, config);
+            } catch (RuntimeException e) {
+                LOGGER.warn("libav 解码器打开失败，改用 FFmpegFrameGrabber", e);
+            }
+        }
+        return new FfmpegMediaDecoder(info, config);
+    }
+
+    public DecodeTier getDecodeTier() {
+        return this.decoder.getDecodeTier();
+    }
+
+    /**
+     * 设置 owner 请求的解码档位，多个播放器共用时取其中最高的档位
+     */
+    public synchronized void requestDecodeTier(Object owner, DecodeTier tier) {
+        tierRequests.put(owner, tier);
+        applyRequests();
+    }
+
+    /**
+     * 设置 owner 请求的调度优先级，多个播放器共用时取其中最优先的
+     */
+    public synchronized void requestDecodePriority(Object owner, int priority) {
+        priorityRequests.put(owner, priority);
+        applyRequests();
+    }
+
+    /**
+     * 设置 owner 分配到的预读内存，多个播放器共用时合计
+     */
+    public synchronized void requestMemoryBudget(Object owner, long bytes) {
+        memoryBudgetRequests.put(owner, bytes);
+        applyRequests();
+    }
+
+    /**
+     * 设置 owner 需要的视频输出尺寸，0 表示原始尺寸；多个播放器共用时取最大的
+     */
+    public synchronized void requestOutputSize(Object owner, int width, int height) {
+        outputSizeRequests.put(owner, new OutputSize(width, height));
+        applyRequests();
+    }
+
+    /**
+     * 移除 owner 的所有解码设置请求
+     */
+    public synchronized void removeRequests(Object owner) {
+        tierRequests.remove(owner);
+        priorityRequests.remove(owner);
+        memoryBudgetRequests.remove(owner);
+        outputSizeRequests.remove(owner);
+        applyRequests();
+    }
+
+    private void applyRequests() {
+        if (!tierRequests.isEmpty()) {
+            var tier = DecodeTier.AUDIO_ONLY;
+            for (var t : tierRequests.values()) {
+                if (t.ordinal() < tier.ordinal()) tier = t;
+            }
+            if (tier != decoder.getDecodeTier()) decoder.setDecodeTier(tier);
+        }
+        if (!priorityRequests.isEmpty()) {
+            decoder.setPriority(priorityRequests.values().stream().mapToInt(Integer::intValue).min().getAsInt());
+        }
+        if (!memoryBudgetRequests.isEmpty()) {
+            long budget = memoryBudgetRequests.values().stream().mapToLong(Long::longValue).sum();
+            if (budget != appliedMemoryBudget) {
+                appliedMemoryBudget = budget;
+                decoder.setMemoryBudget(budget);
+            }
+        }
+        if (!outputSizeRequests.isEmpty()) {
+            var size = OutputSize.NATIVE;
+            for (var s : outputSizeRequests.values()) {
+                if (s.isNative()) {
+                    size = OutputSize.NATIVE;
+                    break;
+                }
+                if (size.isNative() || s.width() > size.width()) size = s;
+            }
+            if (!size.equals(appliedOutputSize)) {
+                appliedOutputSize = size;
+                decoder.setOutputSize(size.width(), size.height());
+            }
+        }
+    }
+
+    private record OutputSize(int width, int height) {
+        static final OutputSize NATIVE = new OutputSize(0, 0);
+
+        boolean isNative() {
+            return width <= 0 || height <= 0;
+        }
     }
 
     public @Nullable Collection<DanmakuEntity> updateAndGetDanmakus() {
         var screen = danmakuScreen;
         if (screen != null) {
-            long durationUs = this.getDuration();
-            long nowUs = System.currentTimeMillis();
-            double durationSecs = durationUs / 1_000_000.0;
-
-            if (!paused && lastDanmakuUpdateDurationUs == durationUs) {
-                durationSecs += (nowUs - lastDanmakuDurationUpdateTimeUs) / 1_000_000.0;
-            } else {
-                lastDanmakuUpdateDurationUs = durationUs;
-                lastDanmakuDurationUpdateTimeUs = nowUs;
-            }
-
-            return screen.update((float) durationSecs);
+            return screen.update((float) (clock.getTimeUs() / 1_000_000.0));
         }
         return null;
     }
@@ -86,58 +218,125 @@ public class Media implements Closeable {
     public boolean isEnd(){
         return !looping && this.getDuration() >= this.getLength();
     }
-    volatile long nextPlayTime;
+    /**
+     * 缓冲的时长是否已达到高水位；队列因帧数或内存预算饱和时无法继续缓冲，也视为达到
+     */
+    private boolean isBufferReady() {
+        return decoder.isEnded()
+                || decoder.getAudioRing().getBufferedDurationUs() >= highWatermarkUs
+                || decoder.getAudioRing().isSaturated()
+                || decoder.getVideoRing().isSaturated();
+    }
+
+    /**
+     * 更新缓冲状态
+     *
+     * @return 是否正在缓冲
+     */
+    private boolean updateBuffering() {
+        if (buffering) {
+            if (isBufferReady()) {
+                long first = decoder.getAudioRing().peekTimestamp();
+                if (first != FrameRing.NO_TIMESTAMP) {
+                    clock.set(first);
+                }
+                buffering = false;
+                LOGGER.info("缓冲完成");
+            }
+        } else if (decoder.getAudioRing().getBufferedDurationUs() < lowWatermarkUs && !isBufferReady()) {
+            clock.pause();
+            buffering = true;
+            rebufferCount++;
+            LOGGER.info("缓冲不足，重新缓冲 (第 {} 次)", rebufferCount);
+        }
+        return buffering;
+    }
+
+    /**
+     * 用第一个正在出声的音频源实际播放到的位置校正时钟，虚拟音源没有播放位置
+     */
+    private void syncClock() {
+        for (var source : audioSources) {
+            var position = source.getPlaybackPosition();
+            if (position != null) {
+                clock.correct(position.timestamp(), position.sampledAtNanos());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 把时钟前后半帧以内的视频帧依次发布给渲染线程，未显示就被替换的帧直接关闭
+     */
+    private void publishVideo(long clockUs) {
+        while (true) {
+            IVideoData videoFrame = decoder.getVideoRing().pollIfOlderThan(clockUs + frameIntervalUs / 2 + 1);
+            if (videoFrame == null) break;
+            long interval = videoFrame.getTimestamp() - lastPublishedPts;
+            if (lastPublishedPts >= 0 && interval > 0 && interval < 1_000_000L) {
+                frameIntervalUs = (frameIntervalUs * 7 + interval) / 8;
+            }
+            lastPublishedPts = videoFrame.getTimestamp();
+            videoHandoff.publish(videoFrame);
+        }
+    }
 
     public void playLoop() {
-        nextPlayTime = System.nanoTime();
         try {
             while (!Thread.currentThread().isInterrupted()) {
-                if (!paused) {
-                    IAudioData currFrame = decoder.getAudioQueue().poll();
-                    if (currFrame == null) {
-                        if (looping && decoder.isEnded() && decoder.getAudioQueue().isEmpty() && this.getDuration() != 0) {
-                            // 如果播放结束，且需要循环则设置时间到 0
-                            LOGGER.info("looping");
-                            this.seek(0);
+                if (paused) {
+                    clock.pause();
+                    // 暂停时等待 play() 唤醒
+                    synchronized (pauseLock) {
+                        while (paused) {
+                            pauseLock.wait();
                         }
-                        // 无帧时，短暂睡眠避免忙等待
-                        Thread.sleep(10);
-                        continue;
                     }
-                    // 消费掉过期的视频帧
-                    while (true) {
-                        IVideoData videoFrame = decoder.pollVideoIf((frame) -> frame.getTimestamp() < currFrame.getTimestamp());
-                        if (videoFrame == null) break;
-                        // 如果视频帧的时间戳小于当前音频帧，则认为过期，消费掉
-                        synchronized (this) {
-                            if (currentVideoFrame != null)
-                                currentVideoFrame.close();
-                            currentVideoFrame = videoFrame;
-                        }
+                    continue;
+                }
+                if (updateBuffering()) {
+                    audioSources.forEach(IAudioSource::flush);
+                    decoder.getAudioRing().awaitNotEmpty(10_000_000L);
+                    continue;
+                }
+                clock.start();
+                syncClock();
+                // 没有被渲染时也要消费过期的视频帧，避免解码线程阻塞在视频队列上
+                publishVideo(clock.getTimeUs());
+
+                long nextTimestamp = decoder.getAudioRing().peekTimestamp();
+                if (nextTimestamp == FrameRing.NO_TIMESTAMP) {
+                    if (looping && decoder.isEnded() && this.getDuration() != 0) {
+                        // 如果播放结束，且需要循环则设置时间到 0
+                        LOGGER.info("looping");
+                        this.seek(0);
                     }
-
-                    uploadBuffer(currFrame);
-                    lastAudioPts = currFrame.getTimestamp();
-
-                    // 计算下一个音频帧的间隔
-                    IAudioData nextFrame = decoder.getAudioQueue().peek();
-                    long intervalUs;
-                    if (nextFrame != null) {
-                        intervalUs = (long) ((nextFrame.getTimestamp() - currFrame.getTimestamp()) / speed);
-                        if (intervalUs <= 0) intervalUs = 20_000L; // 防止pts异常
+                    // 无帧时先提交音源暂存的数据，再等待解码线程写入
+                    audioSources.forEach(IAudioSource::flush);
+                    if (isFinished()) {
+                        synchronized (endLock) {
+                            while (isFinished()) {
+                                endLock.wait();
+                            }
+                        }
                     } else {
-                        intervalUs = 20_000L; // 队列空时用默认值
+                        decoder.getAudioRing().awaitNotEmpty(10_000_000L);
                     }
-                    nextPlayTime += intervalUs * 1000L;
-                    long sleepNanos = nextPlayTime - System.nanoTime();
-                    if (sleepNanos > 0) {
-                        Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
-                    }
-                    currFrame.close();
-                } else {
-                    // 暂停时，短暂睡眠避免忙等待
-                    Thread.sleep(10);
+                    continue;
                 }
+
+                // 音频只提前 AUDIO_LEAD_US 上传，实际播放进度由 OpenAL 反馈给时钟
+                long aheadUs = nextTimestamp - clock.getTimeUs() - AUDIO_LEAD_US - getAudioLeadUs();
+                if (aheadUs > 0) {
+                    long sleepNanos = Math.min((long) (aheadUs * 1000L / speed), 10_000_000L);
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                    continue;
+                }
+
+                IAudioData currFrame = decoder.getAudioRing().poll();
+                if (currFrame == null) continue;
+                uploadBuffer(currFrame);
+                currFrame.close();
             }
         } catch (InterruptedException ignored) {
         }
@@ -145,7 +344,21 @@ public class Media implements Closeable {
     }
 
     public void setLooping(boolean looping) {
-        this.looping = looping;
+        synchronized (endLock) {
+            this.looping = looping;
+            endLock.notifyAll();
+        }
+    }
+
+    /**
+     * 解码已结束、两个队列都已取空且不循环，播放线程此时不再轮询
+     */
+    private boolean isFinished() {
+        return !looping && decoder.isEnded() && decoder.getAudioRing().isEmpty() && decoder.getVideoRing().isEmpty();
+    }
+
+    public boolean isLooping() {
+        return looping;
     }
 
     /**
@@ -153,9 +366,9 @@ public class Media implements Closeable {
      */
     public void play() {
         LOGGER.info("开始播放");
-        if (paused) {
+        synchronized (pauseLock) {
             paused = false;
-            nextPlayTime = System.nanoTime();
+            pauseLock.notifyAll();
         }
     }
 
@@ -166,7 +379,7 @@ public class Media implements Closeable {
         LOGGER.info("暂停播放");
         if (!paused) {
             paused = true;
-            // 直播时不更新baseDuration
+            clock.pause();
         }
     }
 
@@ -174,7 +387,14 @@ public class Media implements Closeable {
      * 当前播放时长 (微秒)
      */
     public long getDuration() {
-        return lastAudioPts;
+        return clock.getTimeUs();
+    }
+
+    /**
+     * 最近显示的视频帧与音频时钟的偏差 (微秒)，正值表示视频超前
+     */
+    public long getAvDriftUs() {
+        return avDriftUs;
     }
 
     public long getLength() {
@@ -188,11 +408,16 @@ public class Media implements Closeable {
         return getDuration() / 1_000_000.0;
     }
 
+    public float getSpeed() {
+        return speed;
+    }
+
     public void setSpeed(float speed) {
         if (speed == this.speed) {
             return;
         }
         this.speed = speed;
+        this.clock.setSpeed(speed);
         this.audioSources.forEach(s -> s.setPitch(speed));
     }
 
@@ -212,50 +437,160 @@ public class Media implements Closeable {
             if (targetUs < 0) {
                 targetUs = 0;
             }
+            buffering = true;
+            clock.pause();
             decoder.seek(targetUs);
-            lastAudioPts = targetUs;
+            clock.set(targetUs);
+            videoHandoff.clear();
+            audioSources.forEach(IAudioSource::clearBuffer);
         } catch (Exception e) {
             LOGGER.error("Seek failed", e);
         }
+        synchronized (endLock) {
+            endLock.notifyAll();
+        }
     }
 
-    public void bindTexture(ITexture texture) {
-        this.texture = texture;
+    public void bindTexture(@Nullable ITexture texture) {
+        if (texture != null && this.textures.addIfAbsent(texture)) {
+            negotiateVideoFormat();
+        }
     }
 
-    public void unbindTexture() {
-        this.texture = null;
+    public void unbindTexture(ITexture texture) {
+        changeDetectors.remove(texture);
+        if (this.textures.remove(texture)) {
+            negotiateVideoFormat();
+        }
+    }
+
+    /**
+     * 所有纹理都能接收 YUV 平面时让解码器跳过 RGBA 转换；带透明通道的视频仍需 RGBA
+     */
+    private synchronized void negotiateVideoFormat() {
+        boolean yuv = Configs.VIDEO_YUV_UPLOAD && !textures.isEmpty();
+        for (var texture : textures) {
+            if (!texture.supportsFormat(VideoFrame.Format.I420) || !texture.supportsFormat(VideoFrame.Format.NV12)) {
+                yuv = false;
+                break;
+            }
+        }
+        decoder.setYuvOutput(yuv);
     }
 
     public void bindAudioSource(IAudioSource audioBuffer) {
-        this.audioSources.add(audioBuffer);
+        if (this.audioSources.addIfAbsent(audioBuffer)) {
+            audioBuffer.setPitch(speed);
+        }
     }
 
     public void unbindAudioSource(IAudioSource audioBuffer) {
-        this.audioSources.remove(audioBuffer);
+        if (this.audioSources.remove(audioBuffer)) {
+            audioBuffer.setPitch(1);
+            audioBuffer.clearBuffer();
+        }
     }
 
     private long getCurrentMediaTimeUs() {
         return getDuration();
     }
 
-    public synchronized void uploadVideo() {
-        if (paused || texture == null) return;
-
-        if (currentVideoFrame == null) return;
-
-        // 否则正常渲染
-        var frame = currentVideoFrame;
-        currentVideoFrame = null;
+    /**
+     * 上传到期的视频帧，渲染线程调用，不加锁；就绪帧比当前显示的帧更接近时钟时才换上。
+     * 纹理支持时只上传与该纹理上次内容相比变化的图块
+     *
+     * @return 上传的字节数，没有新帧时为 0
+     */
+    public long uploadVideo() {
+        if (paused || textures.isEmpty()) return 0;
+
+        long clockUs = clock.getTimeUs();
+        var frame = videoHandoff.take();
+        if (frame == null) return 0;
+        // 帧已取出，读取时间戳时不会被发布方关闭
+        if (hasShownFrame && Math.abs(frame.getTimestamp() - clockUs) > Math.abs(shownPts - clockUs)) {
+            videoHandoff.putBack(frame);
+            return 0;
+        }
         VideoFrame vf = frame.toFrame();
-        texture.upload(vf);
+        long bytes = 0;
+        long pixels = (long) vf.width * vf.height;
+        for (var texture : textures) {
+            if (!Configs.UPLOAD_CHANGE_DETECTION || !texture.supportsPartialUpload()) {
+                bytes += vf.buffer.limit();
+                texture.upload(vf.retain());
+                continue;
+            }
+            var region = changeDetectors.computeIfAbsent(texture, t -> new FrameChangeDetector()).diff(vf);
+            if (region.isEmpty()) {
+                skippedFrames++;
+                continue;
+            }
+            uploadedFrames++;
+            dirtyPixels += region.area();
+            totalPixels += pixels;
+            bytes += vf.buffer.limit() * region.area() / Math.max(1, pixels);
+            texture.upload(vf.retain(), region);
+        }
+        hasShownFrame = true;
+        shownPts = frame.getTimestamp();
+        avDriftUs = shownPts - clockUs;
         frame.close();
+        countPresentedFrame();
+        return bytes;
+    }
+
+    private void countPresentedFrame() {
+        long now = System.nanoTime();
+        if (presentWindowStart == 0) presentWindowStart = now;
+        presentedFrames++;
+        lastPresentNanos = now;
+        long elapsed = now - presentWindowStart;
+        if (elapsed >= 1_000_000_000L) {
+            presentedFps = presentedFrames * 1e9f / elapsed;
+            presentedFrames = 0;
+            presentWindowStart = now;
+        }
+    }
+
+    /**
+     * 因内容没有变化而跳过上传的帧占比
+     */
+    public float getSkippedFrameRatio() {
+        long total = uploadedFrames + skippedFrames;
+        return total == 0 ? 0 : (float) skippedFrames / total;
+    }
+
+    /**
+     * 实际上传的帧中变化区域的平均面积占比
+     */
+    public float getDirtyAreaRatio() {
+        return totalPixels == 0 ? 1 : (float) dirtyPixels / totalPixels;
+    }
+
+    /**
+     * 最近一秒实际上传显示的帧率，超过两秒没有新帧时为 0
+     */
+    public float getPresentedFps() {
+        return System.nanoTime() - lastPresentNanos > 2_000_000_000L ? 0 : presentedFps;
+    }
+
+    /**
+     * 各音源额外需要的提前量，取最大值
+     */
+    private long getAudioLeadUs() {
+        long lead = 0;
+        for (var audioSource : audioSources) {
+            lead = Math.max(lead, audioSource.getLeadUs());
+        }
+        return lead;
     }
 
     private void uploadBuffer(IAudioData frame) {
         for (var audioSource : audioSources) {
             audioSource.upload(frame.getMergedAudioData());
-            if (Configs.AUDIO_SOURCE_CONSUMER != null && Configs.PHYSICS){
+            // 虚拟音源没有 source，不交给物理音效处理
+            if (Configs.AUDIO_SOURCE_CONSUMER != null && Configs.PHYSICS && audioSource.getId() > 0){
                 Configs.AUDIO_SOURCE_CONSUMER.accept(audioSource);
             }
         }
@@ -266,6 +601,20 @@ public class Media implements Closeable {
         return !decoder.isEnded();
     }
 
+    /**
+     * 是否正在等待缓冲
+     */
+    public boolean isBuffering() {
+        return buffering && !isEnded();
+    }
+
+    /**
+     * 开始播放后缓冲不足导致的重新缓冲次数
+     */
+    public int getRebufferCount() {
+        return rebufferCount;
+    }
+
     public boolean isPaused() {
         return paused;
     }
@@ -297,6 +646,7 @@ public class Media implements Closeable {
             LOGGER.warn("音频上传线程停止异常", e);
         }
         audioSources.forEach(IAudioSource::clearBuffer);
+        videoHandoff.clear();
         decoder.close();
     }
 
@@ -0,0 +1,94 @@
+package top.tobyprime.mcedia.core;
+
+/**
+ * 播放时钟，按墙上时间和播放速度外推，并用 OpenAL 实际播放到的位置校正。
+ * <p>
+ * 视频选帧、弹幕和进度条都读取该时钟，音频上传则按时钟提前量调度。
+ */
+public class MediaClock {
+    // 与音频位置相差超过该值时直接跳过去，否则逐步逼近，避免采样抖动导致时钟来回跳
+    private static final long SNAP_THRESHOLD_US = 100_000L;
+    private static final int SMOOTHING = 8;
+
+    private record Anchor(long timestamp, long nanos, float speed, boolean running) {
+        long at(long now) {
+            if (!running) return timestamp;
+            return timestamp + (long) ((now - nanos) / 1000 * (double) speed);
+        }
+    }
+
+    private volatile Anchor anchor = new Anchor(0, System.nanoTime(), 1, false);
+    // 开始走时的时刻，之前采样的音频位置可能来自 seek 前的数据，不用于校正
+    private volatile long startedAtNanos = Long.MAX_VALUE;
+    private volatile long lastCorrectionUs = 0;
+
+    /**
+     * 当前媒体时间 (微秒)
+     */
+    public long getTimeUs() {
+        return anchor.at(System.nanoTime());
+    }
+
+    public boolean isRunning() {
+        return anchor.running;
+    }
+
+    /**
+     * 设置当前时间，保持走时状态不变
+     */
+    public synchronized void set(long timestamp) {
+        var a = anchor;
+        long now = System.nanoTime();
+        anchor = new Anchor(timestamp, now, a.speed, a.running);
+        startedAtNanos = a.running ? now : Long.MAX_VALUE;
+    }
+
+    public synchronized void start() {
+        var a = anchor;
+        if (a.running) return;
+        long now = System.nanoTime();
+        anchor = new Anchor(a.timestamp, now, a.speed, true);
+        startedAtNanos = now;
+    }
+
+    public synchronized void pause() {
+        var a = anchor;
+        if (!a.running) return;
+        long now = System.nanoTime();
+        anchor = new Anchor(a.at(now), now, a.speed, false);
+        startedAtNanos = Long.MAX_VALUE;
+    }
+
+    public synchronized void setSpeed(float speed) {
+        var a = anchor;
+        long now = System.nanoTime();
+        anchor = new Anchor(a.at(now), now, speed, a.running);
+    }
+
+    /**
+     * 用音频实际播放到的位置校正时钟
+     *
+     * @param timestamp      音频播放到的时间戳 (微秒)
+     * @param sampledAtNanos 采样时的 {@link System#nanoTime()}
+     */
+    public synchronized void correct(long timestamp, long sampledAtNanos) {
+        var a = anchor;
+        if (!a.running || sampledAtNanos < startedAtNanos) return;
+
+        long predicted = a.at(sampledAtNanos);
+        long error = timestamp - predicted;
+        lastCorrectionUs = error;
+        if (Math.abs(error) > SNAP_THRESHOLD_US) {
+            anchor = new Anchor(timestamp, sampledAtNanos, a.speed, true);
+        } else {
+            anchor = new Anchor(predicted + error / SMOOTHING, sampledAtNanos, a.speed, true);
+        }
+    }
+
+    /**
+     * 最近一次校正时音频位置与时钟的偏差 (微秒)，正值表示音频领先
+     */
+    public long getLastCorrectionUs() {
+        return lastCorrectionUs;
+    }
+}
@@ -4,8 +4,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import top.tobyprime.mcedia.Configs;
 import top.tobyprime.mcedia.danmaku.Danmaku;
 import top.tobyprime.mcedia.danmaku.DanmakuEntity;
+import top.tobyprime.mcedia.decoders.DecodeTier;
 import top.tobyprime.mcedia.decoders.DecoderConfiguration;
 import top.tobyprime.mcedia.interfaces.IAudioSource;
 import top.tobyprime.mcedia.interfaces.IMediaPlay;
@@ -22,7 +24,8 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
- * 播放器核心，同时只播放单一媒体，管理媒体切换等
+ * 播放器核心，同时只播放单一媒体，管理媒体切换等；
+ * 多个播放器播放同一媒体时通过 {@link MediaSessionRegistry} 共用解码会话
  */
 public class MediaPlayer implements Closeable {
     public volatile PlayerStatus status;
@@ -40,18 +43,116 @@ public class MediaPlayer implements Closeable {
     float speed = 1;
     private @Nullable ITexture texture;
     @Nullable
-    private Media media;
+    private volatile Media media;
     private volatile IMediaPlay mediaPlay;
-    private boolean lowOverhead =false;
+    private volatile DecodeTier decodeTier = DecodeTier.FULL;
+    private volatile int decodePriority = 0;
+    private long memoryBudget = (long) Configs.DECODER_MEMORY_BUDGET_MB * 1024 * 1024 / Math.max(1, Configs.MAX_PLAYER_COUNT);
+    // 切回更高分辨率前，屏幕像素需超出当前档位的比例，避免在档位边界来回切换
+    private static final double DOWNSCALE_HYSTERESIS = 1.25;
+    // 当前缩小倍数，2 的幂
+    private int downscale = 1;
+    private volatile int targetWidth = 0;
+    private volatile int targetHeight = 0;
+    // 屏幕投影到窗口上的高度（像素），上传排序时大的优先
+    private volatile double projectedHeight = 0;
+    // 连续因上传预算被推迟的帧数，仅由 VideoUploadScheduler 访问
+    int deferredUploads = 0;
 
     private volatile DecoderConfiguration decoderConfiguration = new DecoderConfiguration(new DecoderConfiguration.Builder());
 
-    public void setLowOverhead(boolean lowOverhead) {
+    /**
+     * 设置视频解码档位，由 {@link PlayerInstanceManagerRegistry} 按距离和可见性分配
+     */
+    public void setDecodeTier(DecodeTier tier) {
+        this.decodeTier = tier;
         var media = this.media;
         if (media != null){
-            media.setLowOverhead(lowOverhead);
+            media.requestDecodeTier(this, tier);
+        }
+    }
+
+    public DecodeTier getDecodeTier() {
+        return decodeTier;
+    }
+
+    /**
+     * 设置解码调度优先级，数值越小越优先
+     */
+    public void setDecodePriority(int priority) {
+        if (priority == this.decodePriority) return;
+        this.decodePriority = priority;
+        var media = this.media;
+        if (media != null) {
+            media.requestDecodePriority(this, priority);
+        }
+    }
+
+    /**
+     * 设置解码预读可使用的堆外内存，由 {@link PlayerInstanceManagerRegistry} 按优先级分配
+     */
+    public void setMemoryBudget(long bytes) {
+        if (bytes == this.memoryBudget) return;
+        this.memoryBudget = bytes;
+        var media = this.media;
+        if (media != null) {
+            media.requestMemoryBudget(this, bytes);
+        }
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * 设置视频输出尺寸，解码端缩放到该尺寸后再上传，0 表示原始尺寸
+     */
+    public void setTargetOutputSize(int width, int height) {
+        if (width == this.targetWidth && height == this.targetHeight) return;
+        this.targetWidth = width;
+        this.targetHeight = height;
+        var media = this.media;
+        if (media != null) {
+            media.requestOutputSize(this, width, height);
+        }
+    }
+
+    /**
+     * 按屏幕在画面上占据的像素高度选择缩小倍数，每帧调用
+     *
+     * @param pixels 屏幕投影到窗口上的高度（像素）
+     */
+    public void updateProjectedHeight(double pixels) {
+        this.projectedHeight = pixels;
+        var media = this.media;
+        if (media == null) return;
+        int sourceWidth = media.getWidth();
+        int sourceHeight = media.getHeight();
+        if (sourceWidth <= 0 || sourceHeight <= 0) return;
+
+        int fit = fitDownscale(sourceHeight, pixels);
+        if (fit < downscale) {
+            // 屏幕变大，立即提高分辨率
+            downscale = fit;
+        } else if (fit > downscale) {
+            // 屏幕变小，留出余量再降低分辨率
+            downscale = Math.max(downscale, fitDownscale(sourceHeight, pixels * DOWNSCALE_HYSTERESIS));
+        }
+
+        if (downscale <= 1) {
+            setTargetOutputSize(0, 0);
+        } else {
+            setTargetOutputSize(sourceWidth / downscale, sourceHeight / downscale);
         }
-        this.lowOverhead = lowOverhead;
+    }
+
+    private static int fitDownscale(int sourceHeight, double pixels) {
+        int max = Math.max(1, Configs.DECODER_MAX_DOWNSCALE);
+        int divisor = 1;
+        while (divisor * 2 <= max && sourceHeight / (divisor * 2.0) >= pixels) {
+            divisor *= 2;
+        }
+        return divisor;
     }
 
     public IMediaPlay getMediaPlay() {
@@ -59,14 +160,37 @@ public class MediaPlayer implements Closeable {
     }
 
     public PlayerStatus getStatus() {
+        var media = this.media;
+        if (status == PlayerStatus.PLAYING && media != null && media.isBuffering()) {
+            return PlayerStatus.BUFFERING;
+        }
         return status;
     }
 
+    /**
+     * 当前媒体的音画偏差 (微秒)，正值表示视频超前
+     */
+    public long getAvDriftUs() {
+        var media = this.media;
+        return media == null ? 0 : media.getAvDriftUs();
+    }
+
+    /**
+     * 当前媒体的重新缓冲次数
+     */
+    public int getRebufferCount() {
+        var media = this.media;
+        return media == null ? 0 : media.getRebufferCount();
+    }
+
     public synchronized void bindTexture(ITexture texture) {
-        this.texture = texture;
         if (media != null) {
+            if (this.texture != null) {
+                media.unbindTexture(this.texture);
+            }
             media.bindTexture(texture);
         }
+        this.texture = texture;
     }
 
 
@@ -79,8 +203,8 @@ public class MediaPlayer implements Closeable {
     }
 
     public synchronized void unbindTexture() {
-        if (media != null) {
-            media.unbindTexture();
+        if (media != null && texture != null) {
+            media.unbindTexture(texture);
         }
     }
 
@@ -98,6 +222,7 @@ public class MediaPlayer implements Closeable {
 
     public synchronized void bindAudioSource(IAudioSource audioBuffer) {
         this.audioSources.add(audioBuffer);
+        VoiceManager.getInstance().register(audioBuffer);
         if (media != null) {
             media.bindAudioSource(audioBuffer);
         }
@@ -105,6 +230,7 @@ public class MediaPlayer implements Closeable {
 
     public synchronized void unbindAudioSource(IAudioSource audioBuffer) {
         this.audioSources.remove(audioBuffer);
+        VoiceManager.getInstance().unregister(audioBuffer);
         if (media != null) {
             media.unbindAudioSource(audioBuffer);
         }
@@ -119,21 +245,98 @@ public class MediaPlayer implements Closeable {
     }
 
     /**
-     * 关闭当前 Media
+     * 把本播放器的纹理、音源和解码设置绑定到 media，需持有锁
+     */
+    private void attachMedia(Media media) {
+        media.bindTexture(texture);
+        for (var audioSource : audioSources) {
+            media.bindAudioSource(audioSource);
+        }
+        media.setDanmakuWidthPredictor(danmakuWidthPredictor);
+        media.requestDecodeTier(this, decodeTier);
+        media.requestDecodePriority(this, decodePriority);
+        media.requestMemoryBudget(this, memoryBudget);
+        media.requestOutputSize(this, targetWidth, targetHeight);
+    }
+
+    /**
+     * 从 media 解绑本播放器的纹理、音源和解码设置，需持有锁
+     */
+    private void detachMedia(Media media) {
+        if (texture != null) {
+            media.unbindTexture(texture);
+        }
+        for (var audioSource : audioSources) {
+            media.unbindAudioSource(audioSource);
+        }
+        media.removeRequests(this);
+    }
+
+    /**
+     * 释放当前 Media，没有其他播放器共用时关闭
      */
     private void stopMediaInternal() {
         Media preMedia = null;
+        ITexture preTexture = null;
         synchronized (this) {
             if (media != null) {
                 preMedia = media;
+                preTexture = texture;
+                detachMedia(preMedia);
                 media = null;
             }
         }
         if (preMedia != null) {
-            preMedia.close();
+            MediaSessionRegistry.getInstance().release(preMedia);
+        }
+        if (preTexture != null) {
+            preTexture.release();
+        }
+    }
+
+    /**
+     * 共用会话的播放器需要独立的时间线时，异步拆分到独占会话，从 targetUs 开始
+     */
+    private void splitMedia(Media shared, long targetUs, boolean play) {
+        CompletableFuture.runAsync(() -> splitMediaInternal(shared, targetUs, play), executor).exceptionally(
+                e -> {
+                    LOGGER.error("拆分解码会话失败", e);
+                    return null;
+                }
+        );
+    }
+
+    private void splitMediaInternal(Media shared, long targetUs, boolean play) {
+        if (this.media != shared) {
+            return;
+        }
+        LOGGER.info("拆分共享解码会话: {}", shared.getMediaInfo().streamUrl);
+        var registry = MediaSessionRegistry.getInstance();
+        var newMedia = registry.createExclusive(shared.getMediaInfo(), decoderConfiguration, speed, looping);
+        newMedia.seek(targetUs);
+        synchronized (this) {
+            if (this.media != shared) {
+                registry.release(newMedia);
+                return;
+            }
+            detachMedia(shared);
+            attachMedia(newMedia);
+            media = newMedia;
+        }
+        registry.release(shared);
+        if (play) {
+            newMedia.play();
         }
     }
 
+    /**
+     * 当前媒体是否与其他播放器共用
+     */
+    public boolean isSharedMedia() {
+        var media = this.media;
+        return media != null && MediaSessionRegistry.getInstance().isShared(media);
+    }
+
     public synchronized @Nullable Media getMedia() {
         return media;
     }
@@ -180,10 +383,46 @@ public class MediaPlayer implements Closeable {
         });
     }
 
-    public synchronized void uploadVideo() {
-        if (media != null) {
-            media.uploadVideo();
-        }
+    /**
+     * 上传到期的视频帧，由 {@link VideoUploadScheduler} 在预算内调用
+     *
+     * @return 上传的字节数
+     */
+    public long uploadVideo() {
+        var media = this.media;
+        return media == null ? 0 : media.uploadVideo();
+    }
+
+    /**
+     * 最近一秒实际显示的帧率，受解码档位和上传预算影响
+     */
+    public float getPresentedFps() {
+        var media = this.media;
+        return media == null ? 0 : media.getPresentedFps();
+    }
+
+    /**
+     * 因内容没有变化而跳过上传的帧占比
+     */
+    public float getSkippedFrameRatio() {
+        var media = this.media;
+        return media == null ? 0 : media.getSkippedFrameRatio();
+    }
+
+    /**
+     * 实际上传的帧中变化区域的平均面积占比
+     */
+    public float getDirtyAreaRatio() {
+        var media = this.media;
+        return media == null ? 1 : media.getDirtyAreaRatio();
+    }
+
+    public int getDecodePriority() {
+        return decodePriority;
+    }
+
+    public double getProjectedHeight() {
+        return projectedHeight;
     }
 
     public synchronized void play() {
@@ -194,50 +433,64 @@ public class MediaPlayer implements Closeable {
 
     public synchronized void pause() {
         if (media != null) {
+            if (!media.isPaused() && MediaSessionRegistry.getInstance().isShared(media)) {
+                splitMedia(media, media.getDuration(), false);
+                return;
+            }
             media.pause();
         }
     }
 
-    public void seek(long ms) {
-        Media preMedia = null;
+    /**
+     * 跳转到指定时间戳 (微秒)，共用会话时与当前进度相差较大则拆分出独立会话
+     */
+    public void seek(long us) {
+        Media preMedia;
         synchronized (this) {
-            if (media != null) {
-                preMedia = media;
-            }
+            preMedia = media;
         }
-        if (media != null) {
-            preMedia.seek(ms);
+        if (preMedia == null) {
+            return;
         }
+        if (MediaSessionRegistry.getInstance().isShared(preMedia)) {
+            if (Math.abs(us - preMedia.getDuration()) > Configs.SHARED_SESSION_SEEK_TOLERANCE_MS * 1000L) {
+                splitMedia(preMedia, us, !preMedia.isPaused());
+            }
+            return;
+        }
+        preMedia.seek(us);
     }
 
     private Media openMediaInternal(@NotNull MediaInfo inputMedia) {
         stopMediaInternal();
-        var newMedia = new Media(inputMedia, decoderConfiguration);
-
-        newMedia.bindTexture(texture);
-        for (var audioSource : audioSources) {
-            newMedia.bindAudioSource(audioSource);
-        }
+        var newMedia = MediaSessionRegistry.getInstance().acquire(inputMedia, decoderConfiguration, speed, looping);
         synchronized (this) {
+            attachMedia(newMedia);
             media = newMedia;
         }
-        media.setSpeed(speed);
-        media.setLooping(looping);
-        media.setDanmakuWidthPredictor(danmakuWidthPredictor);
-        media.setLowOverhead(lowOverhead);
         return newMedia;
     }
 
     public synchronized void setSpeed(float speed) {
         this.speed = speed;
-        if (media != null) {
+        if (media != null && media.getSpeed() != speed) {
+            if (MediaSessionRegistry.getInstance().isShared(media)) {
+                splitMedia(media, media.getDuration(), !media.isPaused());
+                return;
+            }
             media.setSpeed(speed);
         }
     }
 
     public synchronized void setLooping(boolean looping) {
         this.looping = looping;
-        if (media != null) media.setLooping(looping);
+        if (media != null && media.isLooping() != looping) {
+            if (MediaSessionRegistry.getInstance().isShared(media)) {
+                splitMedia(media, media.getDuration(), !media.isPaused());
+                return;
+            }
+            media.setLooping(looping);
+        }
     }
 
     public long getLength() {
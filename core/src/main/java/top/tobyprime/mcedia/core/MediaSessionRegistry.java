@@ -0,0 +1,139 @@
+package top.tobyprime.mcedia.core;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.tobyprime.mcedia.decoders.DecoderConfiguration;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * 解码会话注册表。
+ * <p>
+ * 同一区域内多个播放器播放同一媒体时共用一个 {@link Media}（一个解码器），视频帧上传到每个播放器的纹理，音频推送到每个音源。
+ * 会话按引用计数管理，最后一个播放器释放时关闭；需要独立时间线（跳转、倍速、暂停等）的播放器由 {@link MediaPlayer} 拆分为独占会话。
+ */
+public class MediaSessionRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MediaSessionRegistry.class);
+    private static volatile MediaSessionRegistry instance;
+
+    /**
+     * 会话键。解析后的地址通常带有按请求生成的签名，优先使用原始链接
+     */
+    private record SessionKey(String url, @Nullable String audioUrl, boolean enableVideo, boolean enableAudio,
+                              boolean videoAlpha, int audioSampleRate) {
+        static @Nullable SessionKey of(MediaInfo info, DecoderConfiguration config) {
+            String url = info.rawUrl != null ? info.rawUrl : info.streamUrl;
+            if (url == null) return null;
+            String audioUrl = info.rawUrl != null ? null : info.audioUrl;
+            return new SessionKey(url, audioUrl, config.enableVideo, config.enableAudio, config.videoAlpha, config.audioSampleRate);
+        }
+    }
+
+    private static class Session {
+        final @Nullable SessionKey key;
+        final Media media;
+        int refCount = 1;
+
+        Session(@Nullable SessionKey key, Media media) {
+            this.key = key;
+            this.media = media;
+        }
+    }
+
+    private final HashMap<SessionKey, Session> joinable = new HashMap<>();
+    private final IdentityHashMap<Media, Session> sessions = new IdentityHashMap<>();
+
+    private MediaSessionRegistry() {
+    }
+
+    public static MediaSessionRegistry getInstance() {
+        if (instance == null) {
+            synchronized (MediaSessionRegistry.class) {
+                if (instance == null) {
+                    instance = new MediaSessionRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 加入播放同一媒体、倍速和循环设置相同的会话，没有则新建一个可共享的会话
+     */
+    public Media acquire(MediaInfo info, DecoderConfiguration config, float speed, boolean looping) {
+        var key = SessionKey.of(info, config);
+        if (key != null) {
+            synchronized (this) {
+                var session = joinable.get(key);
+                if (session != null && isCompatible(session.media, speed, looping)) {
+                    session.refCount++;
+                    LOGGER.info("共用解码会话 {}，引用数 {}", key.url(), session.refCount);
+                    return session.media;
+                }
+            }
+        }
+
+        // 打开媒体较慢，不持有锁；同时打开同一媒体的两个播放器可能各自新建会话
+        var media = open(info, config, speed, looping);
+        synchronized (this) {
+            var session = new Session(key, media);
+            sessions.put(media, session);
+            if (key != null) {
+                var previous = joinable.get(key);
+                if (previous == null || !isCompatible(previous.media, speed, looping)) {
+                    joinable.put(key, session);
+                }
+            }
+        }
+        return media;
+    }
+
+    /**
+     * 新建不会被其他播放器加入的独占会话
+     */
+    public Media createExclusive(MediaInfo info, DecoderConfiguration config, float speed, boolean looping) {
+        var media = open(info, config, speed, looping);
+        synchronized (this) {
+            sessions.put(media, new Session(null, media));
+        }
+        return media;
+    }
+
+    /**
+     * 释放会话，引用数归零时关闭媒体
+     */
+    public void release(Media media) {
+        synchronized (this) {
+            var session = sessions.get(media);
+            if (session != null) {
+                if (--session.refCount > 0) return;
+                sessions.remove(media);
+                if (session.key != null && joinable.get(session.key) == session) {
+                    joinable.remove(session.key);
+                }
+            }
+        }
+        media.close();
+    }
+
+    /**
+     * 是否有多个播放器共用该媒体
+     */
+    public synchronized boolean isShared(Media media) {
+        var session = sessions.get(media);
+        return session != null && session.refCount > 1;
+    }
+
+    private static Media open(MediaInfo info, DecoderConfiguration config, float speed, boolean looping) {
+        var media = new Media(info, config);
+        media.setSpeed(speed);
+        media.setLooping(looping);
+        return media;
+    }
+
+    private static boolean isCompatible(Media media, float speed, boolean looping) {
+        return !media.isEnded() && media.getSpeed() == speed && media.isLooping() == looping;
+    }
+}
@@ -2,6 +2,7 @@ package top.tobyprime.mcedia.core;
 
 import org.jetbrains.annotations.Nullable;
 import top.tobyprime.mcedia.Configs;
+import top.tobyprime.mcedia.decoders.DecodeTier;
 import top.tobyprime.mcedia.interfaces.IMediaPlayerInstance;
 import top.tobyprime.mcedia.interfaces.IPlayerInstanceManager;
 
@@ -10,6 +11,7 @@ import java.util.*;
 public class PlayerInstanceManagerRegistry {
     private final static PlayerInstanceManagerRegistry instance = new PlayerInstanceManagerRegistry();
     private final List<IPlayerInstanceManager> managers = new ArrayList<>();
+    private volatile Map<IMediaPlayerInstance, Long> memoryBudgetSplit = Map.of();
 
     public static PlayerInstanceManagerRegistry getInstance() {
         return instance;
@@ -44,12 +46,59 @@ public class PlayerInstanceManagerRegistry {
         return targetingPlayer;
     }
 
+    /**
+     * 最近一次分配的解码内存预算 (字节)，按优先级从高到低排列
+     */
+    public Map<IMediaPlayerInstance, Long> getMemoryBudgetSplit() {
+        return memoryBudgetSplit;
+    }
+
+    /**
+     * 按优先级排序：注视中的播放器优先，其余按距离排序
+     *
+     * @param players 已按距离排序的播放器
+     */
+    private List<IMediaPlayerInstance> orderByPriority(List<? extends IMediaPlayerInstance> players) {
+        var targeting = getTargetingPlayer();
+        var ordered = new ArrayList<IMediaPlayerInstance>(players.size());
+        for (var player : players) {
+            if (player.isRemoved()) continue;
+            if (player == targeting) {
+                ordered.addFirst(player);
+            } else {
+                ordered.add(player);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 按优先级分配解码内存预算，第 n 个播放器的权重为 1/n
+     */
+    private void updateMemoryBudget(List<IMediaPlayerInstance> ordered) {
+
+        double totalWeight = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            totalWeight += 1.0 / (i + 1);
+        }
+
+        long budget = Configs.DECODER_MEMORY_BUDGET_MB * 1024L * 1024L;
+        var split = new LinkedHashMap<IMediaPlayerInstance, Long>();
+        for (int i = 0; i < ordered.size(); i++) {
+            var player = ordered.get(i);
+            long bytes = (long) (budget * (1.0 / (i + 1)) / totalWeight);
+            player.getPlayer().setMemoryBudget(bytes);
+            split.put(player, bytes);
+        }
+        memoryBudgetSplit = Collections.unmodifiableMap(split);
+    }
+
     public void update() {
         var players = getPlayers();
         players.sort(Comparator.comparingDouble(IMediaPlayerInstance::getDistance));
 
         int playerCount = 0;
-        int nonLowOverhead = 0;
+        int fullTierCount = 0;
 
         for (var player : players) {
             if (player.isRemoved())
@@ -61,12 +110,25 @@ public class PlayerInstanceManagerRegistry {
 
             playerCount++;
 
-            if (nonLowOverhead < Configs.MAX_NON_LOW_OVERHEAD_PLAYER_COUNT) {
-                player.getPlayer().setLowOverhead(false);
-                nonLowOverhead++;
-                continue;
+            // 看不见的只保留音频，最近的几个完整解码，其余按距离抽帧或只解关键帧
+            DecodeTier tier;
+            if (!player.isVisible()) {
+                tier = DecodeTier.AUDIO_ONLY;
+            } else if (fullTierCount < Configs.MAX_NON_LOW_OVERHEAD_PLAYER_COUNT) {
+                tier = DecodeTier.FULL;
+                fullTierCount++;
+            } else if (player.getDistance() < Configs.DECODER_KEYFRAME_ONLY_DISTANCE) {
+                tier = DecodeTier.DECIMATED;
+            } else {
+                tier = DecodeTier.KEYFRAME_ONLY;
             }
-            player.getPlayer().setLowOverhead(true);
+            player.getPlayer().setDecodeTier(tier);
+        }
+
+        var ordered = orderByPriority(players);
+        for (int i = 0; i < ordered.size(); i++) {
+            ordered.get(i).getPlayer().setDecodePriority(i);
         }
+        updateMemoryBudget(ordered);
     }
 }
@@ -5,5 +5,7 @@ public enum PlayerStatus {
     LOADING_MEDIA_INFO,
     LOADING_MEDIA,
     PLAYING,
+    // 缓冲不足，等待解码到高水位
+    BUFFERING,
     ERROR,
 }
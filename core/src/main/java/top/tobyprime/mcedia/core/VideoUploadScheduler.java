@@ -0,0 +1,67 @@
+package top.tobyprime.mcedia.core;
+
+import top.tobyprime.mcedia.Configs;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+
+/**
+ * 渲染线程上所有视频纹理的上传调度。
+ * <p>
+ * 渲染器只登记本帧画到的播放器，下一帧开始时统一上传：按优先级排序后依次上传，
+ * 超出每帧的时间或数据量预算后其余播放器推迟到下一帧。推迟期间交接槽只保留最新一帧，旧帧直接丢弃。
+ * 优先级依次为：连续推迟过久的、注视中的和距离近的（即解码优先级）、屏幕上更大的。
+ */
+public class VideoUploadScheduler {
+    private static final VideoUploadScheduler INSTANCE = new VideoUploadScheduler();
+    // 连续推迟这么多帧后无视预算优先上传，避免远处的画面一直不更新
+    private static final int MAX_DEFERRED_FRAMES = 8;
+    private static final Comparator<MediaPlayer> ORDER = Comparator
+            .comparing((MediaPlayer player) -> player.deferredUploads < MAX_DEFERRED_FRAMES)
+            .thenComparingInt(MediaPlayer::getDecodePriority)
+            .thenComparing(Comparator.comparingDouble(MediaPlayer::getProjectedHeight).reversed());
+
+    private final LinkedHashSet<MediaPlayer> requested = new LinkedHashSet<>();
+    private final ArrayList<MediaPlayer> ordered = new ArrayList<>();
+
+    public static VideoUploadScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 登记本帧画到的播放器，只能在渲染线程调用
+     */
+    public void request(MediaPlayer player) {
+        requested.add(player);
+    }
+
+    /**
+     * 在预算内上传上一帧登记的播放器，每帧开始时在渲染线程调用
+     */
+    public void flush() {
+        if (requested.isEmpty()) return;
+        ordered.addAll(requested);
+        requested.clear();
+        ordered.sort(ORDER);
+
+        long budgetNanos = (long) (Configs.UPLOAD_BUDGET_MS * 1_000_000L);
+        long budgetBytes = Configs.UPLOAD_BUDGET_MB * 1024L * 1024L;
+        long start = System.nanoTime();
+        long bytes = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            var player = ordered.get(i);
+            // 最优先的播放器总是上传
+            boolean overBudget = i > 0
+                    && ((budgetNanos > 0 && System.nanoTime() - start >= budgetNanos)
+                    || (budgetBytes > 0 && bytes >= budgetBytes));
+            if (overBudget && player.deferredUploads < MAX_DEFERRED_FRAMES) {
+                player.deferredUploads++;
+                continue;
+            }
+            bytes += player.uploadVideo();
+            player.deferredUploads = 0;
+        }
+        ordered.clear();
+    }
+}
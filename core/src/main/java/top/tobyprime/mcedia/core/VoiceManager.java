@@ -0,0 +1,162 @@
+package top.tobyprime.mcedia.core;
+
+import org.lwjgl.openal.AL10;
+import top.tobyprime.mcedia.Configs;
+import top.tobyprime.mcedia.interfaces.IAudioSource;
+
+import java.util.ArrayList;
+
+/**
+ * 把有限的 OpenAL source 只分配给听得到的音源。
+ * <p>
+ * 每 tick 按距离衰减后的音量排序，前 {@link Configs#AUDIO_MAX_VOICES} 个持有真实的 source，其余成为虚拟音源：
+ * 归还 source 与缓冲并直接丢弃上传的 PCM，播放器的时钟照常前进，重新进入范围后在下一次上传时取回 source。
+ * 归还的 source 留在一个小池中复用，池中只保留可能重新取回 source 的虚拟音源所需的数量，多余的在 tick 结束时删除。
+ */
+public class VoiceManager implements AudioCommandBuffer.Target {
+    private static final VoiceManager INSTANCE = new VoiceManager();
+    private static final int MAX_POOLED_SOURCES = 4;
+
+    /**
+     * 由音源实现，供排序与切换虚拟状态
+     */
+    interface Voice extends IAudioSource {
+        /**
+         * 不计距离衰减的增益
+         */
+        float getGain();
+
+        float getMinDistance();
+
+        float getMaxDistance();
+
+        /**
+         * 在调用线程上只记录状态，OpenAL 资源在音频线程上释放
+         */
+        void setVirtual(boolean virtual);
+    }
+
+    private final ArrayList<Voice> voices = new ArrayList<>();
+    // update 使用的排序缓存，只在客户端线程上访问
+    private Voice[] ranked = new Voice[0];
+    private float[] scores = new float[0];
+    // 空闲的 source，只在音频线程上修改
+    private final int[] pooledSources = new int[MAX_POOLED_SOURCES];
+    private volatile int pooledCount;
+    // 池中应保留的 source 数量，由 update 计算
+    private volatile int pooledTarget;
+
+    public static VoiceManager getInstance() {
+        return INSTANCE;
+    }
+
+    public void register(IAudioSource source) {
+        if (!(source instanceof Voice voice)) return;
+        synchronized (voices) {
+            if (!voices.contains(voice)) {
+                voices.add(voice);
+            }
+        }
+    }
+
+    /**
+     * 不再参与排序，并立即归还持有的 source
+     */
+    public void unregister(IAudioSource source) {
+        if (!(source instanceof Voice voice)) return;
+        synchronized (voices) {
+            voices.remove(voice);
+        }
+        voice.setVirtual(true);
+    }
+
+    /**
+     * 每 tick 调用一次，按听者位置重新分配 source
+     */
+    public void update(double listenerX, double listenerY, double listenerZ) {
+        int count;
+        synchronized (voices) {
+            count = voices.size();
+            if (ranked.length < count) {
+                ranked = new Voice[count * 2];
+                scores = new float[count * 2];
+            }
+            for (int i = 0; i < count; i++) {
+                ranked[i] = voices.get(i);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            var voice = ranked[i];
+            float score = audibleGain(voice, listenerX, listenerY, listenerZ);
+            // 插入排序，音源数量通常很少
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                ranked[j] = ranked[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            ranked[j] = voice;
+        }
+        int virtualCount = 0;
+        for (int i = 0; i < count; i++) {
+            boolean virtual = scores[i] <= 0 || i >= Configs.AUDIO_MAX_VOICES;
+            if (virtual) virtualCount++;
+            ranked[i].setVirtual(virtual);
+            ranked[i] = null;
+        }
+        pooledTarget = Math.min(virtualCount, MAX_POOLED_SOURCES);
+        if (pooledCount > pooledTarget) {
+            AudioCommandBuffer.getInstance().markDirty(this);
+        }
+    }
+
+    /**
+     * 删除池中超出需要的 source，随本 tick 的属性变化一起在音频线程上执行
+     */
+    @Override
+    public void alFlushProperties() {
+        int target = pooledTarget;
+        while (pooledCount > target) {
+            AL10.alDeleteSources(pooledSources[--pooledCount]);
+        }
+    }
+
+    /**
+     * 与 AL_INVERSE_DISTANCE_CLAMPED、衰减系数 1 一致，超出最大距离时为 0
+     */
+    private static float audibleGain(Voice voice, double x, double y, double z) {
+        double dx = voice.getLastX() - x;
+        double dy = voice.getLastY() - y;
+        double dz = voice.getLastZ() - z;
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        float minDistance = Math.max(voice.getMinDistance(), 0.001f);
+        if (distance > voice.getMaxDistance()) return 0;
+        double clamped = Math.max(distance, minDistance);
+        return (float) (voice.getGain() * minDistance / clamped);
+    }
+
+    /**
+     * 从池中取出一个 source，池为空时新建，只在音频线程上调用
+     */
+    int alAcquireSource() {
+        if (pooledCount > 0) {
+            return pooledSources[--pooledCount];
+        }
+        return AL10.alGenSources();
+    }
+
+    /**
+     * 停止并解除缓冲后放回池中，池满时删除，只在音频线程上调用
+     */
+    void alReleaseSource(int source) {
+        if (source <= 0) return;
+        AL10.alSourceStop(source);
+        AL10.alSourcei(source, AL10.AL_BUFFER, 0);
+        if (pooledCount < MAX_POOLED_SOURCES && AL10.alGetError() == AL10.AL_NO_ERROR) {
+            pooledSources[pooledCount++] = source;
+        } else {
+            AL10.alDeleteSources(source);
+        }
+    }
+}
@@ -1,27 +1,125 @@
 package top.tobyprime.mcedia.decoders;
 
-import org.lwjgl.system.MemoryUtil;
+import org.jetbrains.annotations.Nullable;
+import top.tobyprime.mcedia.BufferHelper;
+import top.tobyprime.mcedia.BufferPool;
+import top.tobyprime.mcedia.interfaces.IAudioData;
 
-import java.io.Closeable;
-import java.nio.Buffer;
+import java.nio.ShortBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
 
-public class AudioBufferData implements Closeable {
-    public final Buffer pcm;  // PCM 数据，16-bit signed, little-endian
-    public final int sampleRate;
-    public final int channels;
-    private boolean released;
+/**
+ * 一段单声道 16 位 PCM，解码时直接写入，之后只传引用不再拷贝。
+ * <p>
+ * 与 {@link VideoFrame} 一样按引用计数释放：音频队列持有一个引用，每个音源上传前各持有一个，
+ * 最后一个引用关闭时对象连同缓冲区回到池中，稳定播放时每个音频包不再分配 Java 对象或堆外内存。
+ */
+public class AudioBufferData implements IAudioData {
+    // 池中最多保留的空闲块，超出的归还缓冲区后丢弃
+    private static final int MAX_IDLE = 256;
+    private static final ArrayBlockingQueue<AudioBufferData> IDLE = new ArrayBlockingQueue<>(MAX_IDLE);
 
-    public AudioBufferData(Buffer pcm, int sampleRate, int channels) {
-        this.pcm = pcm;
-        this.sampleRate = sampleRate;
-        this.channels = channels;
-        this.released = false;
+    private @Nullable ShortBuffer pcm;  // 来自 BufferPool，limit 为采样数
+    private int sampleRate;
+    private long timestamp; // 第一个采样的显示时间戳 (微秒)
+    private int refCount;
+
+    private AudioBufferData() {
+    }
+
+    /**
+     * 从池中取出一块，容量不够时换一个更大的缓冲区
+     *
+     * @param samples 采样数，pcm 的 limit 被设为该值
+     */
+    public static AudioBufferData allocate(int samples, int sampleRate, long timestamp) {
+        var data = IDLE.poll();
+        if (data == null) {
+            data = new AudioBufferData();
+        }
+        samples = Math.max(1, samples);
+        if (data.pcm == null || data.pcm.capacity() < samples) {
+            if (data.pcm != null) {
+                BufferPool.getInstance().release(data.pcm);
+            }
+            data.pcm = BufferPool.getInstance().acquireShort(samples);
+        }
+        data.pcm.clear().limit(samples);
+        data.sampleRate = sampleRate;
+        data.timestamp = timestamp;
+        data.refCount = 1;
+        return data;
+    }
+
+    /**
+     * PCM 数据，16-bit signed，本机字节序
+     */
+    public ShortBuffer pcm() {
+        return pcm;
     }
 
+    /**
+     * 修改有效采样数，只能在写入方交出引用前调用
+     */
+    public void setSamples(int samples) {
+        pcm.position(0).limit(samples);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 增加一个引用，每次调用都需要对应一次 {@link #close()}
+     *
+     * @throws IllegalStateException 已经释放回池中
+     */
+    public synchronized AudioBufferData retain() {
+        if (refCount <= 0) {
+            throw new IllegalStateException("AudioBufferData already released");
+        }
+        refCount++;
+        return this;
+    }
+
+    /**
+     * 同一份数据的新引用，由调用方关闭
+     */
+    @Override
+    public AudioBufferData getMergedAudioData() {
+        return retain();
+    }
+
+    @Override
+    public int getChannels() {
+        return 1;
+    }
+
+    @Override
+    public @Nullable AudioBufferData getChannelAudioData(int channel) {
+        return channel <= 0 ? retain() : null;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return pcm == null ? 0 : BufferHelper.sizeInBytes(pcm);
+    }
+
+    @Override
     public void close() {
-        if (!released) {
-            MemoryUtil.memFree(pcm);
-            released = true;
+        synchronized (this) {
+            if (refCount <= 0 || --refCount > 0) {
+                return;
+            }
+        }
+        if (!IDLE.offer(this)) {
+            BufferPool.getInstance().release(pcm);
+            pcm = null;
         }
     }
-}
\ No newline at end of file
+}
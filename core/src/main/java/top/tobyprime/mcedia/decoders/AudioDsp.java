@@ -0,0 +1,241 @@
+package top.tobyprime.mcedia.decoders;
+
+import top.tobyprime.mcedia.Configs;
+
+/**
+ * 音频转换用到的逐采样运算：S16 与浮点互转、声道混合与展开、增益和重采样。
+ * <p>
+ * 运行时加载了 jdk.incubator.vector 模块时使用 {@link VectorAudioDsp}，否则使用标量实现。
+ * 除多相重采样的向量实现求和顺序不同、结果只在舍入误差内一致外，两者输出一致。
+ * 浮点采样的范围为 -1 到 1。各 xxxScalar 方法从 from 开始处理剩余部分，供向量实现收尾和基准测试对比。
+ */
+public class AudioDsp {
+    // 短于该长度时向量化的收益抵不过调用开销
+    private static final int VECTOR_MIN_LENGTH = 64;
+    private static final boolean VECTOR = detectVector();
+
+    private AudioDsp() {
+    }
+
+    private static boolean detectVector() {
+        if (!Configs.AUDIO_VECTOR_DSP) return false;
+        try {
+            // 未通过 --add-modules 加载时不能触碰 VectorAudioDsp，否则会找不到类
+            return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() && VectorAudioDsp.isUsable();
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    public static boolean isVectorized() {
+        return VECTOR;
+    }
+
+    /**
+     * S16 转为浮点
+     */
+    public static void toFloat(short[] src, float[] dst, int length) {
+        int i = 0;
+        if (VECTOR && length >= VECTOR_MIN_LENGTH) {
+            i = VectorAudioDsp.toFloat(src, dst, length);
+        }
+        toFloatScalar(src, dst, i, length);
+    }
+
+    static void toFloatScalar(short[] src, float[] dst, int from, int length) {
+        for (int i = from; i < length; i++) {
+            dst[i] = src[i] * (1f / 32768);
+        }
+    }
+
+    /**
+     * 浮点转为 S16，超出范围的截断，小数部分向零取整
+     */
+    public static void toS16(float[] src, short[] dst, int length) {
+        int i = 0;
+        if (VECTOR && length >= VECTOR_MIN_LENGTH) {
+            i = VectorAudioDsp.toS16(src, dst, length);
+        }
+        toS16Scalar(src, dst, i, length);
+    }
+
+    static void toS16Scalar(float[] src, short[] dst, int from, int length) {
+        for (int i = from; i < length; i++) {
+            dst[i] = (short) Math.max(-32768f, Math.min(32767f, src[i] * 32768));
+        }
+    }
+
+    /**
+     * dst += src，用于把平面声道逐个叠加
+     */
+    public static void accumulate(float[] src, float[] dst, int length) {
+        int i = 0;
+        if (VECTOR && length >= VECTOR_MIN_LENGTH) {
+            i = VectorAudioDsp.accumulate(src, dst, length);
+        }
+        accumulateScalar(src, dst, i, length);
+    }
+
+    static void accumulateScalar(float[] src, float[] dst, int from, int length) {
+        for (int i = from; i < length; i++) {
+            dst[i] += src[i];
+        }
+    }
+
+    /**
+     * 原地乘以增益
+     */
+    public static void scale(float[] data, int length, float gain) {
+        int i = 0;
+        if (VECTOR && length >= VECTOR_MIN_LENGTH) {
+            i = VectorAudioDsp.scale(data, length, gain);
+        }
+        scaleScalar(data, i, length, gain);
+    }
+
+    static void scaleScalar(float[] data, int from, int length, float gain) {
+        for (int i = from; i < length; i++) {
+            data[i] *= gain;
+        }
+    }
+
+    /**
+     * 交错存放的多声道混合为单声道并求平均，立体声有向量实现
+     */
+    public static void downmixInterleaved(float[] src, int channels, float[] dst, int frames) {
+        int i = 0;
+        if (VECTOR && channels == 2 && frames >= VECTOR_MIN_LENGTH) {
+            i = VectorAudioDsp.downmixStereo(src, dst, frames);
+        }
+        downmixInterleavedScalar(src, channels, dst, i, frames);
+    }
+
+    static void downmixInterleavedScalar(float[] src, int channels, float[] dst, int from, int frames) {
+        float gain = 1f / channels;
+        for (int i = from, s = from * channels; i < frames; i++) {
+            float sum = 0;
+            for (int ch = 0; ch < channels; ch++) {
+                sum += src[s++];
+            }
+            dst[i] = sum * gain;
+        }
+    }
+
+    /**
+     * 单声道复制到交错存放的每个声道，立体声有向量实现
+     */
+    public static void upmixInterleaved(float[] src, int channels, float[] dst, int frames) {
+        int i = 0;
+        if (VECTOR && channels == 2 && frames >= VECTOR_MIN_LENGTH) {
+            i = VectorAudioDsp.upmixStereo(src, dst, frames);
+        }
+        upmixInterleavedScalar(src, channels, dst, i, frames);
+    }
+
+    static void upmixInterleavedScalar(float[] src, int channels, float[] dst, int from, int frames) {
+        for (int i = from, d = from * channels; i < frames; i++) {
+            float sample = src[i];
+            for (int ch = 0; ch < channels; ch++) {
+                dst[d++] = sample;
+            }
+        }
+    }
+
+    /**
+     * 第 i 个输出对应输入的 i * step 处，插值需要从该位置起 window 个输入采样，
+     * 返回窗口仍落在前 srcLength 个输入内的输出数，最多 dstLength 个
+     */
+    static int resampleOutputs(int srcLength, int dstLength, float step, int window) {
+        float limit = srcLength - window + 1;
+        if (limit <= 0) return 0;
+        int count = (int) Math.min(dstLength, Math.ceil(limit / step));
+        // 与实际计算位置时相同的浮点舍入
+        while (count > 0 && (count - 1) * step >= limit) count--;
+        while (count < dstLength && count * step < limit) count++;
+        return count;
+    }
+
+    /**
+     * 线性插值重采样，step 为输入采样率 / 输出采样率，第 i 个输出位于输入的 i * step 处。
+     * 输入需要足够长才能插值，未用到的尾部由调用方保留到下一块的开头
+     *
+     * @return 写入 dst 的采样数
+     */
+    public static int resampleLinear(float[] src, int srcLength, float[] dst, float step) {
+        int count = resampleOutputs(srcLength, dst.length, step, 2);
+        int i = 0;
+        if (VECTOR && count >= VECTOR_MIN_LENGTH) {
+            i = VectorAudioDsp.resampleLinear(src, dst, count, step);
+        }
+        resampleLinearScalar(src, dst, i, count, step);
+        return count;
+    }
+
+    static void resampleLinearScalar(float[] src, float[] dst, int from, int count, float step) {
+        for (int i = from; i < count; i++) {
+            float pos = i * step;
+            int index = (int) pos;
+            float frac = pos - index;
+            float a = src[index];
+            dst[i] = a + (src[index + 1] - a) * frac;
+        }
+    }
+
+    /**
+     * 生成多相重采样用的 Blackman 窗 sinc 滤波器组，按 [相位][抽头] 排列，每个相位的系数和为 1
+     *
+     * @param cutoff 截止频率占输入奈奎斯特频率的比例，降采样时不超过 输出采样率 / 输入采样率 以免混叠
+     */
+    public static float[] polyphaseFilter(int phases, int taps, float cutoff) {
+        float[] bank = new float[phases * taps];
+        int center = taps / 2 - 1;
+        for (int p = 0; p < phases; p++) {
+            double frac = (double) p / phases;
+            double sum = 0;
+            for (int t = 0; t < taps; t++) {
+                double x = t - center - frac;
+                double sinc = x == 0 ? 1 : Math.sin(Math.PI * cutoff * x) / (Math.PI * cutoff * x);
+                double w = 2 * Math.PI * (x / taps + 0.5);
+                double window = 0.42 - 0.5 * Math.cos(w) + 0.08 * Math.cos(2 * w);
+                double h = cutoff * sinc * window;
+                bank[p * taps + t] = (float) h;
+                sum += h;
+            }
+            for (int t = 0; t < taps; t++) {
+                bank[p * taps + t] /= (float) sum;
+            }
+        }
+        return bank;
+    }
+
+    /**
+     * 多相 FIR 重采样，滤波器组由 {@link #polyphaseFilter} 生成。
+     * 第 i 个输出对应输入的 i * step + taps / 2 - 1 处，即输出相对输入延迟 taps / 2 - 1 个采样，
+     * 调用方需要在下一块的开头保留未用完的输入
+     *
+     * @return 写入 dst 的采样数
+     */
+    public static int resamplePolyphase(float[] src, int srcLength, float[] dst, float step, float[] bank, int phases, int taps) {
+        int count = resampleOutputs(srcLength, dst.length, step, taps);
+        if (VECTOR && count >= VECTOR_MIN_LENGTH && VectorAudioDsp.fitsTaps(taps)) {
+            VectorAudioDsp.resamplePolyphase(src, dst, count, step, bank, phases, taps);
+        } else {
+            resamplePolyphaseScalar(src, dst, 0, count, step, bank, phases, taps);
+        }
+        return count;
+    }
+
+    static void resamplePolyphaseScalar(float[] src, float[] dst, int from, int count, float step, float[] bank, int phases, int taps) {
+        for (int i = from; i < count; i++) {
+            float pos = i * step;
+            int index = (int) pos;
+            int phase = Math.min(phases - 1, (int) ((pos - index) * phases));
+            int h = phase * taps;
+            float sum = 0;
+            for (int t = 0; t < taps; t++) {
+                sum += src[index + t] * bank[h + t];
+            }
+            dst[i] = sum;
+        }
+    }
+}
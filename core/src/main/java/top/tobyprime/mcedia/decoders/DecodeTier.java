@@ -0,0 +1,15 @@
+package top.tobyprime.mcedia.decoders;
+
+/**
+ * 视频解码档位，由 {@link top.tobyprime.mcedia.core.PlayerInstanceManagerRegistry} 按距离和可见性分配，切换时不需要重新打开媒体
+ */
+public enum DecodeTier {
+    // 解码并输出所有帧
+    FULL,
+    // 丢弃非参考帧，并按 Configs.DECODER_DECIMATED_FPS 抽帧输出
+    DECIMATED,
+    // 只解码关键帧
+    KEYFRAME_ONLY,
+    // 暂停视频解码，只输出音频；解复用器继续读取，保持播放位置
+    AUDIO_ONLY,
+}
@@ -0,0 +1,97 @@
+package top.tobyprime.mcedia.decoders;
+
+/**
+ * 一帧中相对上一次上传发生变化的区域，由若干互不重叠的矩形组成，坐标以像素计
+ */
+public class DirtyRegion {
+    private static final DirtyRegion EMPTY = new DirtyRegion(new int[0], 0, false);
+
+    // 每个矩形依次为 x、y、宽、高
+    private final int[] rects;
+    private final long area;
+    private final boolean full;
+
+    private DirtyRegion(int[] rects, long area, boolean full) {
+        this.rects = rects;
+        this.area = area;
+        this.full = full;
+    }
+
+    public static DirtyRegion empty() {
+        return EMPTY;
+    }
+
+    public static DirtyRegion full(int width, int height) {
+        return new DirtyRegion(new int[]{0, 0, width, height}, (long) width * height, true);
+    }
+
+    /**
+     * @param rects  依次为 x、y、宽、高，调用方保证互不重叠
+     * @param frameWidth  帧宽度
+     * @param frameHeight 帧高度
+     */
+    static DirtyRegion of(int[] rects, int frameWidth, int frameHeight) {
+        if (rects.length == 0) return EMPTY;
+        long area = 0;
+        for (int i = 0; i < rects.length; i += 4) {
+            area += (long) rects[i + 2] * rects[i + 3];
+        }
+        return new DirtyRegion(rects, area, area >= (long) frameWidth * frameHeight);
+    }
+
+    public boolean isEmpty() {
+        return rects.length == 0;
+    }
+
+    /**
+     * 是否覆盖整帧
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    public int count() {
+        return rects.length / 4;
+    }
+
+    public int x(int index) {
+        return rects[index * 4];
+    }
+
+    public int y(int index) {
+        return rects[index * 4 + 1];
+    }
+
+    public int width(int index) {
+        return rects[index * 4 + 2];
+    }
+
+    public int height(int index) {
+        return rects[index * 4 + 3];
+    }
+
+    /**
+     * 最上方的行
+     */
+    public int top() {
+        int top = Integer.MAX_VALUE;
+        for (int i = 0; i < count(); i++) top = Math.min(top, y(i));
+        return isEmpty() ? 0 : top;
+    }
+
+    /**
+     * 最下方的行之后一行
+     */
+    public int bottom() {
+        int bottom = 0;
+        for (int i = 0; i < count(); i++) bottom = Math.max(bottom, y(i) + height(i));
+        return bottom;
+    }
+
+    /**
+     * 像素数
+     */
+    public long area() {
+        return area;
+    }
+}
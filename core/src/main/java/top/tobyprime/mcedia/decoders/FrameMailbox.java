@@ -0,0 +1,52 @@
+package top.tobyprime.mcedia.decoders;
+
+import org.jetbrains.annotations.Nullable;
+import top.tobyprime.mcedia.interfaces.IFrameData;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 播放线程到渲染线程的无锁单槽帧交接。
+ * <p>
+ * 播放线程把最新帧原子地换入槽中，渲染线程把它换出，双方都不加锁。每一帧只会被一方持有：
+ * 被新帧替换、从未显示的帧由发布方关闭，取走的帧由渲染线程关闭或放回。
+ */
+public class FrameMailbox<T extends IFrameData> {
+    private final AtomicReference<T> slot = new AtomicReference<>();
+
+    /**
+     * 发布新帧，替换掉的旧帧会被关闭
+     */
+    public void publish(T frame) {
+        var old = slot.getAndSet(frame);
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    /**
+     * 取走槽中的帧，调用方负责关闭或 {@link #putBack(IFrameData)}
+     */
+    public @Nullable T take() {
+        return slot.getAndSet(null);
+    }
+
+    /**
+     * 放回暂不使用的帧；期间已发布了更新的帧时关闭这一帧
+     */
+    public void putBack(T frame) {
+        if (!slot.compareAndSet(null, frame)) {
+            frame.close();
+        }
+    }
+
+    /**
+     * 关闭并清空槽中的帧
+     */
+    public void clear() {
+        var old = take();
+        if (old != null) {
+            old.close();
+        }
+    }
+}
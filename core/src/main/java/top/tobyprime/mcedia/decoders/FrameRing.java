@@ -0,0 +1,229 @@
+package top.tobyprime.mcedia.decoders;
+
+import org.jetbrains.annotations.Nullable;
+import top.tobyprime.mcedia.interfaces.IFrameData;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 有界的无锁帧环形队列，单个解码线程按 PTS 顺序写入，播放线程读取。
+ * <p>
+ * 读取端通过 CAS 认领槽位，因此 seek 时从其他线程 {@link #clear()} 也是安全的；
+ * 队列饱和时写入端挂起，读取端取走帧后通过 {@link #setSpaceListener} 唤醒，不再轮询睡眠。
+ * <p>
+ * 除槽位数外还可以按帧数、字节数和时长限制预读量，队列非空且任一限制达到时视为饱和。
+ */
+public class FrameRing<T extends IFrameData> {
+    /**
+     * 队列为空时 {@link #peekTimestamp()} 的返回值
+     */
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+    // 每个槽位的序号：等于 pos 时可写入，等于 pos + 1 时可读取
+    private final AtomicLongArray sequences;
+    // 写入时记录的时间戳，帧可能被其他线程取走并回收，读取端不直接访问帧对象
+    private final AtomicLongArray timestamps;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private volatile int maxFrames;
+    private volatile long maxBytes = Long.MAX_VALUE;
+    private volatile long maxDurationUs = Long.MAX_VALUE;
+    // 最近写入帧的时间戳，用于计算队列覆盖的时长
+    private volatile long lastTimestamp;
+
+    private volatile @Nullable Runnable spaceListener;
+    private volatile @Nullable Thread waitingConsumer;
+
+    public FrameRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.timestamps = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.maxFrames = size;
+    }
+
+    /**
+     * 设置预读限制，写入线程会在下一次写入时按新限制等待
+     *
+     * @param maxFrames     最多缓存的帧数，不超过容量
+     * @param maxBytes      最多缓存的字节数
+     * @param maxDurationUs 队首到队尾最多覆盖的时长 (微秒)
+     */
+    public void setLimits(int maxFrames, long maxBytes, long maxDurationUs) {
+        this.maxFrames = Math.max(1, Math.min(maxFrames, capacity));
+        this.maxBytes = maxBytes;
+        this.maxDurationUs = maxDurationUs;
+        notifySpace();
+    }
+
+    /**
+     * 设置读取端腾出空间或限制变化时的回调，用于唤醒挂起的写入端
+     */
+    public void setSpaceListener(@Nullable Runnable listener) {
+        this.spaceListener = listener;
+    }
+
+    private void notifySpace() {
+        var listener = spaceListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * 队列中帧占用的字节数
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * 队首到最近写入帧之间的时长 (微秒)
+     */
+    public long getBufferedDurationUs() {
+        long first = peekTimestamp();
+        if (first == NO_TIMESTAMP) {
+            return 0;
+        }
+        return Math.max(0, lastTimestamp - first);
+    }
+
+    /**
+     * 是否已达到预读限制，此时写入会阻塞
+     */
+    public boolean isSaturated() {
+        int size = size();
+        if (size == 0) {
+            return false;
+        }
+        return size >= maxFrames || bytes.get() >= maxBytes || getBufferedDurationUs() >= maxDurationUs;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public boolean isEmpty() {
+        return peekTimestamp() == NO_TIMESTAMP;
+    }
+
+    /**
+     * 尝试写入，队列已满时返回 false，仅允许解码线程调用
+     */
+    public boolean offer(T frame) {
+        long pos = tail.get();
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos) {
+            return false;
+        }
+        bytes.addAndGet(frame.getSizeInBytes());
+        lastTimestamp = frame.getTimestamp();
+        timestamps.set(index, lastTimestamp);
+        slots.lazySet(index, frame);
+        sequences.set(index, pos + 1);
+        tail.set(pos + 1);
+
+        var consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * 队首帧的时间戳，不取出也不访问帧对象
+     *
+     * @return 队列为空时为 {@link #NO_TIMESTAMP}
+     */
+    public long peekTimestamp() {
+        while (true) {
+            long pos = head.get();
+            int index = (int) (pos & mask);
+            if (sequences.get(index) != pos + 1) {
+                return NO_TIMESTAMP;
+            }
+            long timestamp = timestamps.get(index);
+            // 读取期间槽位未被取走并重新写入
+            if (sequences.get(index) == pos + 1 && head.get() == pos) {
+                return timestamp;
+            }
+        }
+    }
+
+    public @Nullable T poll() {
+        return pollIfOlderThan(Long.MAX_VALUE);
+    }
+
+    /**
+     * 队首帧的时间戳小于 timestamp 时取出，否则返回 null
+     */
+    public @Nullable T pollIfOlderThan(long timestamp) {
+        while (true) {
+            long pos = head.get();
+            int index = (int) (pos & mask);
+            if (sequences.get(index) != pos + 1) {
+                return null;
+            }
+            T frame = slots.get(index);
+            if (frame == null) {
+                // 另一读取端刚刚取走
+                continue;
+            }
+            if (timestamp != Long.MAX_VALUE && timestamps.get(index) >= timestamp) {
+                if (head.get() != pos) continue;
+                return null;
+            }
+            if (head.compareAndSet(pos, pos + 1)) {
+                slots.lazySet(index, null);
+                sequences.set(index, pos + capacity);
+                bytes.addAndGet(-frame.getSizeInBytes());
+                notifySpace();
+                return frame;
+            }
+        }
+    }
+
+    /**
+     * 等待直到队列非空或超时，仅允许单一读取线程调用
+     *
+     * @return 队列是否非空
+     */
+    public boolean awaitNotEmpty(long timeoutNanos) {
+        if (!isEmpty()) {
+            return true;
+        }
+        waitingConsumer = Thread.currentThread();
+        if (isEmpty()) {
+            LockSupport.parkNanos(this, timeoutNanos);
+        }
+        waitingConsumer = null;
+        return !isEmpty();
+    }
+
+    /**
+     * 取出并关闭所有帧
+     */
+    public void clear() {
+        T frame;
+        while ((frame = poll()) != null) {
+            frame.close();
+        }
+    }
+}
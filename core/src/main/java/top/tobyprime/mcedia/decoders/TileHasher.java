@@ -0,0 +1,112 @@
+package top.tobyprime.mcedia.decoders;
+
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.Arrays;
+
+/**
+ * 按固定大小的图块计算帧内容的哈希，用于判断相邻两帧哪些区域发生了变化。
+ * <p>
+ * 在解码端的线程上计算，YUV 帧的色度平面计入对应的亮度图块；上传前只比较哈希，不再读像素。
+ */
+public class TileHasher {
+    // 图块边长（像素），取偶数保证 YUV 色度平面的图块边界对齐
+    public static final int TILE_SIZE = 64;
+    private static final long PRIME = 0x9E3779B97F4A7C15L;
+
+    private TileHasher() {
+    }
+
+    public static int columns(int width) {
+        return (width + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    public static int rows(int height) {
+        return (height + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * 计算并保存到 {@link VideoFrame#setTileHashes(long[])}
+     */
+    public static void compute(VideoFrame frame) {
+        int columns = columns(frame.width);
+        long[] hashes = new long[columns * rows(frame.height)];
+        long address = MemoryUtil.memAddress0(frame.buffer);
+        var format = frame.format;
+        for (int p = 0; p < format.planes(); p++) {
+            int rowBytes = format.planeWidth(p, frame.width) * format.bytesPerPixel(p);
+            int planeHeight = format.planeHeight(p, frame.height);
+            int tileRows = format.planeHeight(p, TILE_SIZE);
+            int tileBytes = format.planeWidth(p, TILE_SIZE) * format.bytesPerPixel(p);
+            long planeAddress = address + frame.planeOffset(p);
+            int stride = frame.planeStride(p);
+            for (int row = 0; row < planeHeight; row++) {
+                long rowAddress = planeAddress + (long) row * stride;
+                int base = row / tileRows * columns;
+                for (int col = 0; col < columns; col++) {
+                    int start = col * tileBytes;
+                    int length = Math.min(tileBytes, rowBytes - start);
+                    hashes[base + col] = hash(hashes[base + col], rowAddress + start, length);
+                }
+            }
+        }
+        frame.setTileHashes(hashes);
+    }
+
+    private static long hash(long h, long address, int length) {
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            h = Long.rotateLeft((h ^ MemoryUtil.memGetLong(address + i)) * PRIME, 29);
+        }
+        for (; i < length; i++) {
+            h = Long.rotateLeft((h ^ MemoryUtil.memGetByte(address + i)) * PRIME, 29);
+        }
+        return h;
+    }
+
+    /**
+     * 对比两组哈希得到变化区域：每行图块取变化的左右边界，相邻行边界相同的合并为一个矩形
+     *
+     * @param previous 上一次上传的哈希，为 null 时整帧变化
+     */
+    public static DirtyRegion diff(long @Nullable [] previous, VideoFrame frame) {
+        long[] current = frame.getTileHashes();
+        if (previous == null || current == null || previous.length != current.length) {
+            return DirtyRegion.full(frame.width, frame.height);
+        }
+        int columns = columns(frame.width);
+        int rows = rows(frame.height);
+        int[] rects = new int[rows * 4];
+        int count = 0;
+        int spanStart = -1;
+        int spanEnd = -1;
+        int spanRow = 0;
+        for (int row = 0; row <= rows; row++) {
+            int first = -1;
+            int last = -1;
+            if (row < rows) {
+                for (int col = 0; col < columns; col++) {
+                    int i = row * columns + col;
+                    if (previous[i] != current[i]) {
+                        if (first < 0) first = col;
+                        last = col;
+                    }
+                }
+            }
+            if (first == spanStart && last == spanEnd) continue;
+            if (spanStart >= 0) {
+                int x = spanStart * TILE_SIZE;
+                int y = spanRow * TILE_SIZE;
+                rects[count++] = x;
+                rects[count++] = y;
+                rects[count++] = Math.min((spanEnd + 1) * TILE_SIZE, frame.width) - x;
+                rects[count++] = Math.min(row * TILE_SIZE, frame.height) - y;
+            }
+            spanStart = first;
+            spanEnd = last;
+            spanRow = row;
+        }
+        return DirtyRegion.of(Arrays.copyOf(rects, count), frame.width, frame.height);
+    }
+}
@@ -1,28 +1,149 @@
 package top.tobyprime.mcedia.decoders;
 
-import org.lwjgl.system.MemoryUtil;
+import org.jetbrains.annotations.Nullable;
+import top.tobyprime.mcedia.BufferPool;
 
 import java.io.Closeable;
 import java.nio.ByteBuffer;
 
 public class VideoFrame implements Closeable {
-    public final ByteBuffer buffer;  // 原始 RGBA 像素数据（连续）
+    /**
+     * 帧的像素格式，YUV 格式的色度平面宽高均为亮度的一半
+     */
+    public enum Format {
+        // 单平面，每像素 4 字节
+        RGBA(new int[]{4}),
+        // Y、U、V 三个平面，每像素 1 字节
+        I420(new int[]{1, 1, 1}),
+        // Y 平面加 UV 交错平面
+        NV12(new int[]{1, 2});
+
+        private final int[] bytesPerPixel;
+
+        Format(int[] bytesPerPixel) {
+            this.bytesPerPixel = bytesPerPixel;
+        }
+
+        public int planes() {
+            return bytesPerPixel.length;
+        }
+
+        public int bytesPerPixel(int plane) {
+            return bytesPerPixel[plane];
+        }
+
+        public int planeWidth(int plane, int width) {
+            return plane == 0 ? width : (width + 1) / 2;
+        }
+
+        public int planeHeight(int plane, int height) {
+            return plane == 0 ? height : (height + 1) / 2;
+        }
+
+        public boolean isYuv() {
+            return this != RGBA;
+        }
+    }
+
+    public final ByteBuffer buffer;  // 像素数据，各平面依次存放
     public final int width;
     public final int height;
-    private boolean released;
+    public final int stride; // 第一个平面每行字节数，可能大于 width * 4
+    public final Format format;
+    private final int[] planeOffsets;
+    private final int[] planeStrides;
+    // 以下仅对 YUV 格式有效
+    public final boolean fullRange;
+    public final boolean bt709;
+    // 按图块计算的内容哈希，未计算时为 null，上传时整帧视为变化
+    private volatile long @Nullable [] tileHashes;
+    // 共享会话中同一帧会上传到多个纹理，每个纹理持有一个引用
+    private int refCount;
 
     public VideoFrame(ByteBuffer buffer, int width, int height) {
+        this(buffer, width, height, width * 4);
+    }
+
+    public VideoFrame(ByteBuffer buffer, int width, int height, int stride) {
+        this(buffer, width, height, Format.RGBA, new int[]{0}, new int[]{stride}, false, false);
+    }
+
+    private VideoFrame(ByteBuffer buffer, int width, int height, Format format, int[] planeOffsets, int[] planeStrides,
+                       boolean fullRange, boolean bt709) {
         this.buffer = buffer;
         this.width = width;
         this.height = height;
-        this.released = false;
+        this.stride = planeStrides[0];
+        this.format = format;
+        this.planeOffsets = planeOffsets;
+        this.planeStrides = planeStrides;
+        this.fullRange = fullRange;
+        this.bt709 = bt709;
+        this.refCount = 1;
+    }
+
+    /**
+     * 从 {@link BufferPool} 分配一帧，各平面紧密排列
+     *
+     * @param fullRange YUV 取值为 0-255 而不是 16-235
+     * @param bt709     YUV 使用 BT.709 矩阵，否则为 BT.601
+     */
+    public static VideoFrame allocate(Format format, int width, int height, boolean fullRange, boolean bt709) {
+        int planes = format.planes();
+        int[] offsets = new int[planes];
+        int[] strides = new int[planes];
+        int size = 0;
+        for (int p = 0; p < planes; p++) {
+            offsets[p] = size;
+            strides[p] = format.planeWidth(p, width) * format.bytesPerPixel(p);
+            size += strides[p] * format.planeHeight(p, height);
+        }
+        var buffer = BufferPool.getInstance().acquire(size);
+        return new VideoFrame(buffer, width, height, format, offsets, strides, fullRange, bt709);
+    }
+
+    /**
+     * 平面在 {@link #buffer} 中的起始字节
+     */
+    public int planeOffset(int plane) {
+        return planeOffsets[plane];
+    }
+
+    /**
+     * 平面每行字节数
+     */
+    public int planeStride(int plane) {
+        return planeStrides[plane];
+    }
+
+    /**
+     * 由 {@link TileHasher#compute(VideoFrame)} 写入
+     */
+    public void setTileHashes(long @Nullable [] tileHashes) {
+        this.tileHashes = tileHashes;
+    }
+
+    public long @Nullable [] getTileHashes() {
+        return tileHashes;
+    }
+
+    /**
+     * 增加一个引用，每次调用都需要对应一次 {@link #close()}
+     *
+     * @throws IllegalStateException 已经释放回池中
+     */
+    public synchronized VideoFrame retain() {
+        if (refCount <= 0) {
+            throw new IllegalStateException("VideoFrame already released");
+        }
+        refCount++;
+        return this;
     }
 
     @Override
-    public void close() {
-        if (!released) {
-            MemoryUtil.memFree(buffer);
-            released = true;
+    public synchronized void close() {
+        if (refCount > 0 && --refCount == 0) {
+            BufferPool.getInstance().release(buffer);
         }
     }
-}
\ No newline at end of file
+}
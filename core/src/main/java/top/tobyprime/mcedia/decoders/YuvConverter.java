@@ -0,0 +1,68 @@
+package top.tobyprime.mcedia.decoders;
+
+/**
+ * YUV 到 RGBA 的 CPU 参考实现。
+ * <p>
+ * 与纹理着色器使用同一组系数和同样的最近邻色度采样，可以脱离 GL 校验着色器的输出，
+ * 着色器不可用时也用它在 CPU 上转换。
+ */
+public class YuvConverter {
+    private YuvConverter() {
+    }
+
+    /**
+     * 转换系数：Y 偏移、色度偏移、Y 缩放、色度缩放、R←V、G←U、G←V、B←U，取值均为归一化到 0-1 的分量
+     */
+    public static float[] coefficients(VideoFrame frame) {
+        float yOffset = frame.fullRange ? 0 : 16 / 255f;
+        float yScale = frame.fullRange ? 1 : 255 / 219f;
+        float cScale = frame.fullRange ? 1 : 255 / 224f;
+        if (frame.bt709) {
+            return new float[]{yOffset, 128 / 255f, yScale, cScale, 1.5748f, 0.187324f, 0.468124f, 1.8556f};
+        }
+        return new float[]{yOffset, 128 / 255f, yScale, cScale, 1.402f, 0.344136f, 0.714136f, 1.772f};
+    }
+
+    /**
+     * 把 YUV 帧转换为新的 RGBA 帧，缓冲区来自 {@link top.tobyprime.mcedia.BufferPool}，不关闭 src
+     */
+    public static VideoFrame toRgba(VideoFrame src) {
+        if (!src.format.isYuv()) {
+            throw new IllegalArgumentException("Not a YUV frame: " + src.format);
+        }
+        var dst = VideoFrame.allocate(VideoFrame.Format.RGBA, src.width, src.height, false, false);
+        float[] k = coefficients(src);
+        var in = src.buffer;
+        var out = dst.buffer;
+        boolean interleaved = src.format == VideoFrame.Format.NV12;
+        int yBase = src.planeOffset(0);
+        int yStride = src.planeStride(0);
+        int uBase = src.planeOffset(1);
+        int uStride = src.planeStride(1);
+        int vBase = interleaved ? uBase + 1 : src.planeOffset(2);
+        int vStride = interleaved ? uStride : src.planeStride(2);
+        int chromaStep = interleaved ? 2 : 1;
+
+        for (int row = 0; row < src.height; row++) {
+            int yRow = yBase + row * yStride;
+            int uRow = uBase + (row >> 1) * uStride;
+            int vRow = vBase + (row >> 1) * vStride;
+            int o = row * dst.stride;
+            for (int col = 0; col < src.width; col++) {
+                int c = (col >> 1) * chromaStep;
+                float y = ((in.get(yRow + col) & 0xFF) / 255f - k[0]) * k[2];
+                float u = ((in.get(uRow + c) & 0xFF) / 255f - k[1]) * k[3];
+                float v = ((in.get(vRow + c) & 0xFF) / 255f - k[1]) * k[3];
+                out.put(o++, toByte(y + k[4] * v));
+                out.put(o++, toByte(y - k[5] * u - k[6] * v));
+                out.put(o++, toByte(y + k[7] * u));
+                out.put(o++, (byte) 0xFF);
+            }
+        }
+        return dst;
+    }
+
+    private static byte toByte(float value) {
+        return (byte) Math.round(Math.max(0f, Math.min(1f, value)) * 255f);
+    }
+}
@@ -1,110 +1,97 @@
 package top.tobyprime.mcedia.decoders.ffmpeg;
 
 import org.bytedeco.javacv.Frame;
+import org.jetbrains.annotations.Nullable;
 import org.lwjgl.system.MemoryUtil;
-import top.tobyprime.mcedia.BufferHelper;
 import top.tobyprime.mcedia.decoders.AudioBufferData;
+import top.tobyprime.mcedia.decoders.AudioDsp;
 
 import java.nio.*;
 
+/**
+ * 把 grabber 输出的音频帧一次性混合写入单声道 16 位的 {@link AudioBufferData}，不再克隆 Frame
+ */
 public class FfmpegAudioBufferDataConverter {
-
-    public static AudioBufferData AsMixedAudioData(Frame frame) {
-        if (frame.samples == null || frame.samples.length == 0) return null;
-        if (frame.samples.length == 1)
-            return AsAudioData(frame, 0);
-
-        return new AudioBufferData(mergeToMono(frame.samples), frame.sampleRate, 1);
-    }
-
-    public static AudioBufferData AsAudioData(Frame frame, int channel) {
-        if (channel < 0)
-            return AsMixedAudioData(frame);
-        if (frame.samples == null || channel >= frame.samples.length) return null;
-        return new AudioBufferData(BufferHelper.cloneBuffer(frame.samples[channel]), frame.sampleRate, 1);
-    }
-
-
-    public static Buffer mergeToMono(Buffer[] channelsData) {
-        System.out.println("mergeToMono");
-        if (channelsData == null || channelsData.length == 0) {
-            throw new IllegalArgumentException("No input channels");
+    // 每个解码线程复用的中间数组
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static class Scratch {
+        float[] mix = new float[0];
+        float[] plane = new float[0];
+        short[] shorts = new short[0];
+
+        void ensure(int mixLength, int planeLength) {
+            if (mix.length < mixLength) mix = new float[mixLength];
+            if (plane.length < planeLength) plane = new float[planeLength];
+            int shortLength = Math.max(mixLength, planeLength);
+            if (shorts.length < shortLength) shorts = new short[shortLength];
         }
-
-        Buffer first = channelsData[0];
-        int channels = channelsData.length;
-
-        return switch (first) {
-            case ByteBuffer byteBuffer -> mergeByte((ByteBuffer[]) channelsData, channels);
-            case ShortBuffer shortBuffer -> mergeShort((ShortBuffer[]) channelsData, channels);
-            case FloatBuffer floatBuffer -> mergeFloat((FloatBuffer[]) channelsData, channels);
-            case DoubleBuffer doubleBuffer -> mergeDouble((DoubleBuffer[]) channelsData, channels);
-            default -> throw new IllegalArgumentException("Unsupported Buffer type: " + first.getClass());
-        };
     }
 
-    private static ByteBuffer mergeByte(ByteBuffer[] channels, int count) {
-        int frames = channels[0].remaining();
-        ByteBuffer dst = MemoryUtil.memAlloc(frames);
-
-        for (int i = 0; i < frames; i++) {
-            int sum = 0;
-            for (int ch = 0; ch < count; ch++) {
-                sum += channels[ch].get(i);
-            }
-            byte mixed = (byte) (sum / count);
-            dst.put(mixed);
+    /**
+     * @return 没有音频采样时为 null
+     */
+    public static @Nullable AudioBufferData toAudioData(Frame frame) {
+        Buffer[] planes = frame.samples;
+        if (planes == null || planes.length == 0) return null;
+        // 单个缓冲区时各声道交错存放，否则每个声道一个平面
+        boolean interleaved = planes.length == 1;
+        int channels = interleaved ? Math.max(1, frame.audioChannels) : planes.length;
+        int samples = planes[0].limit() / (interleaved ? channels : 1);
+        if (samples <= 0) return null;
+
+        var data = AudioBufferData.allocate(samples, frame.sampleRate, frame.timestamp);
+        ShortBuffer dst = data.pcm();
+        if (channels == 1 && planes[0] instanceof ShortBuffer src) {
+            MemoryUtil.memCopy(MemoryUtil.memAddress0(src), MemoryUtil.memAddress0(dst), samples * 2L);
+            return data;
         }
-        dst.flip();
-        return dst;
-    }
-
-    private static ShortBuffer mergeShort(ShortBuffer[] channels, int count) {
-        int frames = channels[0].remaining();
-        ShortBuffer dst = MemoryUtil.memAllocShort(frames);
 
-        for (int i = 0; i < frames; i++) {
-            int sum = 0;
-            for (int ch = 0; ch < count; ch++) {
-                sum += channels[ch].get(i);
+        var scratch = SCRATCH.get();
+        float[] mix;
+        if (interleaved && channels > 1) {
+            scratch.ensure(samples, samples * channels);
+            readFloat(planes[0], samples * channels, scratch.plane, scratch);
+            AudioDsp.downmixInterleaved(scratch.plane, channels, scratch.mix, samples);
+            mix = scratch.mix;
+        } else {
+            scratch.ensure(samples, channels > 1 ? samples : 0);
+            mix = scratch.mix;
+            readFloat(planes[0], samples, mix, scratch);
+            for (int ch = 1; ch < channels; ch++) {
+                readFloat(planes[ch], samples, scratch.plane, scratch);
+                AudioDsp.accumulate(scratch.plane, mix, samples);
             }
-            short mixed = (short) (sum / count);
-            dst.put(mixed);
-        }
-        dst.flip();
-        return dst;
-    }
-
-    private static FloatBuffer mergeFloat(FloatBuffer[] channels, int count) {
-        int frames = channels[0].remaining();
-        FloatBuffer dst = MemoryUtil.memAllocFloat(frames);
-
-        for (int i = 0; i < frames; i++) {
-            float sum = 0;
-            for (int ch = 0; ch < count; ch++) {
-                sum += channels[ch].get(i);
+            if (channels > 1) {
+                AudioDsp.scale(mix, samples, 1f / channels);
             }
-            float mixed = sum / count;
-            dst.put(mixed);
         }
-        dst.flip();
-        return dst;
+        AudioDsp.toS16(mix, scratch.shorts, samples);
+        dst.put(0, scratch.shorts, 0, samples);
+        return data;
     }
 
-    private static DoubleBuffer mergeDouble(DoubleBuffer[] channels, int count) {
-        int frames = channels[0].remaining();
-        DoubleBuffer dst = MemoryUtil.memAllocDouble(frames);
-
-        for (int i = 0; i < frames; i++) {
-            double sum = 0;
-            for (int ch = 0; ch < count; ch++) {
-                sum += channels[ch].get(i);
+    /**
+     * 读取前 length 个采样并换算为 -1 到 1 的浮点
+     */
+    private static void readFloat(Buffer buffer, int length, float[] dst, Scratch scratch) {
+        switch (buffer) {
+            case FloatBuffer f -> f.get(0, dst, 0, length);
+            case ShortBuffer s -> {
+                s.get(0, scratch.shorts, 0, length);
+                AudioDsp.toFloat(scratch.shorts, dst, length);
+            }
+            case DoubleBuffer d -> {
+                for (int i = 0; i < length; i++) dst[i] = (float) d.get(i);
+            }
+            case IntBuffer n -> {
+                for (int i = 0; i < length; i++) dst[i] = n.get(i) * (1f / 2147483648f);
             }
-            double mixed = sum / count;
-            dst.put(mixed);
+            // 8 位采样为无符号
+            case ByteBuffer b -> {
+                for (int i = 0; i < length; i++) dst[i] = ((b.get(i) & 0xFF) - 128) * (1f / 128);
+            }
+            default -> throw new IllegalArgumentException("Unsupported Buffer type: " + buffer.getClass());
         }
-        dst.flip();
-        return dst;
     }
-
 }
@@ -1,37 +1,62 @@
 package top.tobyprime.mcedia.decoders.ffmpeg;
 
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.global.avcodec;
 import org.bytedeco.ffmpeg.global.avutil;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.Frame;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import top.tobyprime.mcedia.BufferPool;
 import top.tobyprime.mcedia.Configs;
+import top.tobyprime.mcedia.core.DecodeScheduler;
 import top.tobyprime.mcedia.core.MediaInfo;
+import top.tobyprime.mcedia.decoders.AudioBufferData;
+import top.tobyprime.mcedia.decoders.DecodeTier;
 import top.tobyprime.mcedia.decoders.DecoderConfiguration;
+import top.tobyprime.mcedia.decoders.FrameRing;
 import top.tobyprime.mcedia.interfaces.IAudioData;
+import top.tobyprime.mcedia.interfaces.IFrameData;
 import top.tobyprime.mcedia.interfaces.IMediaDecoder;
 import top.tobyprime.mcedia.interfaces.IVideoData;
 
 import java.io.Closeable;
+import java.lang.reflect.Field;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Predicate;
 
 public class FfmpegMediaDecoder implements Closeable, IMediaDecoder {
     private static final Logger LOGGER = LoggerFactory.getLogger(FfmpegMediaDecoder.class);
 
-    private boolean lowOverhead = false;
-    public final LinkedBlockingDeque<FfmpegVideoData> videoQueue;
-    public final LinkedBlockingDeque<FfmpegAudioData> audioQueue;
+    // FFmpegFrameGrabber 没有公开视频解码上下文，通过反射设置 skip_frame
+    private static final @Nullable Field VIDEO_CODEC_CONTEXT_FIELD = findVideoCodecContextField();
+
+    private volatile DecodeTier decodeTier = DecodeTier.FULL;
+    // 以下仅由主解码任务访问
+    private DecodeTier appliedDecodeTier = DecodeTier.FULL;
+    private long lastVideoFrameTimestamp = -1;
+    // AUDIO_ONLY 时主解码任务挂起，音频任务不再等待视频
+    private volatile boolean masterPaused = false;
+    private long memoryBudget = Long.MAX_VALUE;
+    private volatile int outputWidth = 0;
+    private volatile int outputHeight = 0;
+    // 已设置到 grabber 上的输出尺寸，仅由主解码任务访问
+    private int appliedOutputWidth = 0;
+    private int appliedOutputHeight = 0;
+    // 启动时记录的原始尺寸，设置输出尺寸后 grabber 的 getImageWidth/Height 不再返回原始值
+    private int nativeWidth = -1;
+    private int nativeHeight = -1;
+    public final FrameRing<FfmpegVideoData> videoRing;
+    public final FrameRing<AudioBufferData> audioRing;
 
     private final DecoderConfiguration configuration;
-    @Nullable
-    private Thread masterDecoderThread;
-    @Nullable
-    private Thread audioDecodeThread;
+    // 音频领先视频时的等待时间
+    private static final long AUDIO_AHEAD_PARK_NANOS = 20_000_000L;
+    private volatile int priority = 0;
+    private volatile @Nullable DecodeScheduler.Job masterJob;
+    private volatile @Nullable DecodeScheduler.Job audioJob;
 
     private final FFmpegFrameGrabber masterGrabber;
     private final FFmpegFrameGrabber audioGrabber;
@@ -43,20 +68,26 @@ public class FfmpegMediaDecoder implements Closeable, IMediaDecoder {
     public FfmpegMediaDecoder(MediaInfo info, DecoderConfiguration configuration) {
         this.configuration = configuration;
 
-        this.videoQueue = new LinkedBlockingDeque<>(Configs.DECODER_MAX_VIDEO_FRAMES);
-        this.audioQueue = new LinkedBlockingDeque<>(Configs.DECODER_MAX_AUDIO_FRAMES);
+        this.videoRing = new FrameRing<>(Configs.DECODER_MAX_VIDEO_FRAMES);
+        this.audioRing = new FrameRing<>(Configs.DECODER_MAX_AUDIO_FRAMES);
+        this.videoRing.setSpaceListener(this::wakeJobs);
+        this.audioRing.setSpaceListener(this::wakeJobs);
+        applyLimits();
+        boolean separateAudio = info.audioUrl != null && !info.audioUrl.isEmpty();
 
         try {
             if (configuration.enableVideo) {
-                masterGrabber = buildGrabber(info.streamUrl, info.headers, info.cookie, configuration, true);
+                masterGrabber = buildGrabber(info.streamUrl, info.headers, info.cookie, configuration, true, separateAudio);
                 masterGrabber.start();
+                nativeWidth = masterGrabber.getImageWidth();
+                nativeHeight = masterGrabber.getImageHeight();
             } else {
                 masterGrabber = null;
             }
 
             if (configuration.enableAudio) {
-                if (info.audioUrl != null && !info.audioUrl.isEmpty()) {
-                    audioGrabber = buildGrabber(info.audioUrl, info.headers, info.cookie, configuration, false);
+                if (separateAudio) {
+                    audioGrabber = buildGrabber(info.audioUrl, info.headers, info.cookie, configuration, false, false);
                     audioGrabber.start();
                 } else {
                     audioGrabber = null; // buildGrabber(info.streamUrl, info.headers, info.cookie, configuration, false);
@@ -77,21 +108,19 @@ public class FfmpegMediaDecoder implements Closeable, IMediaDecoder {
         startDecoder();
     }
 
-    public void startDecoder() {
-        if (masterGrabber != null && masterDecoderThread == null) {
-            Thread thread = new Thread(this::masterDecodeLoop);
-            thread.setName("Mcedia-Decoder-Video");
-            thread.setDaemon(true);
-            thread.start();
-            masterDecoderThread = thread;
+    /**
+     * 向解码调度器提交解码任务，已结束的任务（如播放到结尾后 seek）会重新提交
+     */
+    public synchronized void startDecoder() {
+        if (isClosed.get()) return;
+        var master = masterJob;
+        if (masterGrabber != null && (master == null || master.isFinished())) {
+            masterJob = DecodeScheduler.getInstance().submit("video", priority, this::masterStep);
         }
 
-        if (audioGrabber != null && audioDecodeThread == null) {
-            Thread thread = new Thread(this::audioDecodeLoop);
-            thread.setName("Mcedia-Decoder-Audio");
-            thread.setDaemon(true);
-            thread.start();
-            audioDecodeThread = thread;
+        var audio = audioJob;
+        if (audioGrabber != null && (audio == null || audio.isFinished())) {
+            audioJob = DecodeScheduler.getInstance().submit("audio", priority, this::audioStep);
         }
     }
 
@@ -100,75 +129,160 @@ public class FfmpegMediaDecoder implements Closeable, IMediaDecoder {
         return getLength() <= 0 || Double.isInfinite(getLength());
     }
 
+    @Override
+    public FrameRing<? extends IVideoData> getVideoRing() {
+        return videoRing;
+    }
 
-    private final ReentrantReadWriteLock videoQueueLock = new ReentrantReadWriteLock();
+    @Override
+    public FrameRing<? extends IAudioData> getAudioRing() {
+        return audioRing;
+    }
 
     @Override
-    public IVideoData peekVideo() {
-        videoQueueLock.readLock().lock();
-        try {
-            return videoQueue.peek();
-        } finally {
-            videoQueueLock.readLock().unlock();
-        }
+    public void setDecodeTier(DecodeTier tier) {
+        if (this.decodeTier == tier) return;
+        LOGGER.info("解码档位: {} -> {}", this.decodeTier, tier);
+        this.decodeTier = tier;
+        applyLimits();
+        wakeJobs();
     }
 
     @Override
-    public IVideoData pollVideo() {
-        videoQueueLock.writeLock().lock();
+    public void setPriority(int priority) {
+        this.priority = priority;
+        var master = masterJob;
+        if (master != null) master.setPriority(priority);
+        var audio = audioJob;
+        if (audio != null) audio.setPriority(priority);
+    }
+
+    @Override
+    public DecodeTier getDecodeTier() {
+        return decodeTier;
+    }
+
+    private static @Nullable Field findVideoCodecContextField() {
         try {
-            return videoQueue.poll();
-        } finally {
-            videoQueueLock.writeLock().unlock();
+            var field = FFmpegFrameGrabber.class.getDeclaredField("video_c");
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            LoggerFactory.getLogger(FfmpegMediaDecoder.class).warn("无法访问视频解码上下文，解码档位只影响图像处理", e);
+            return null;
         }
     }
 
-    @Override
-    public @Nullable IVideoData pollVideoIf(Predicate<IVideoData> condition) {
-        videoQueueLock.writeLock().lock();
+    private static int skipFrameOf(DecodeTier tier) {
+        return switch (tier) {
+            case FULL -> avcodec.AVDISCARD_DEFAULT;
+            case DECIMATED -> avcodec.AVDISCARD_NONREF;
+            case KEYFRAME_ONLY -> avcodec.AVDISCARD_NONKEY;
+            case AUDIO_ONLY -> avcodec.AVDISCARD_ALL;
+        };
+    }
+
+    /**
+     * 在主解码任务中把档位应用到解码器
+     */
+    private void applyDecodeTier(DecodeTier tier) {
+        if (tier == appliedDecodeTier) return;
+        appliedDecodeTier = tier;
+        if (VIDEO_CODEC_CONTEXT_FIELD == null) return;
         try {
-            var data = videoQueue.peek();
-            if (data == null) return null;
-            if (condition.test(data)) {
-                return videoQueue.poll();
+            var context = (AVCodecContext) VIDEO_CODEC_CONTEXT_FIELD.get(masterGrabber);
+            if (context != null && !context.isNull()) {
+                context.skip_frame(skipFrameOf(tier));
             }
-            return null;
-        } finally {
-            videoQueueLock.writeLock().unlock();
+        } catch (IllegalAccessException e) {
+            LOGGER.warn("设置 skip_frame 失败", e);
         }
     }
 
+    /**
+     * 下一帧视频是否需要转换成图像输出
+     */
+    private boolean shouldProcessImage(DecodeTier tier) {
+        return switch (tier) {
+            case FULL, KEYFRAME_ONLY -> true;
+            case DECIMATED -> {
+                // seek 后时间戳可能倒退，直接输出
+                long elapsed = masterGrabber.getTimestamp() - lastVideoFrameTimestamp;
+                yield lastVideoFrameTimestamp < 0 || elapsed < 0 || elapsed >= 1_000_000L / Math.max(1, Configs.DECODER_DECIMATED_FPS);
+            }
+            case AUDIO_ONLY -> false;
+        };
+    }
+
     @Override
-    public LinkedBlockingDeque<? extends IAudioData> getAudioQueue() {
-        return audioQueue;
+    public void setOutputSize(int width, int height) {
+        this.outputWidth = width;
+        this.outputHeight = height;
     }
 
     @Override
-    public void setLowOverhead(boolean lowOverhead) {
-        if (this.lowOverhead != lowOverhead && !lowOverhead) {
-            clearQueue();
+    public void setYuvOutput(boolean enabled) {
+        // grabber 只输出 RGBA
+    }
+
+    /**
+     * grabber 转换图像时按 imageWidth/imageHeight 缩放，0 表示原始尺寸
+     */
+    private void applyOutputSize() {
+        int width = outputWidth;
+        int height = outputHeight;
+        if (width != appliedOutputWidth || height != appliedOutputHeight) {
+            appliedOutputWidth = width;
+            appliedOutputHeight = height;
+            masterGrabber.setImageWidth(width);
+            masterGrabber.setImageHeight(height);
         }
-        this.lowOverhead = lowOverhead;
     }
 
-    private FFmpegFrameGrabber buildGrabber(String url, @Nullable Map<String, String> customHeaders, @Nullable String cookie, DecoderConfiguration configuration, boolean isVideoGrabber) {
-        var grabber = new FFmpegFrameGrabber(url);
-        if (url.startsWith("http")) {
-            StringBuilder headerStrBuilder = new StringBuilder();
+    @Override
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = bytes;
+        applyLimits();
+    }
 
-            if (customHeaders != null) {
-                customHeaders.forEach((k, v) -> headerStrBuilder.append(k).append(": ").append(v).append("\r\n"));
-            }
+    /**
+     * 按帧数、内存预算和预读时长设置队列限制，音频帧很小，只分走 1/8 的预算
+     */
+    private void applyLimits() {
+        long lookAheadUs = Configs.DECODER_MAX_LOOKAHEAD_MS * 1000L;
+        long audioBytes = memoryBudget / 8;
+        int videoFrames = decodeTier == DecodeTier.FULL ? Configs.DECODER_MAX_VIDEO_FRAMES : Configs.DECODER_LOW_OVERHEAD_VIDEO_FRAMES;
+        videoRing.setLimits(videoFrames, memoryBudget - audioBytes, lookAheadUs);
+        audioRing.setLimits(Configs.DECODER_MAX_AUDIO_FRAMES, audioBytes, lookAheadUs);
+    }
 
-            if ((customHeaders == null || !customHeaders.containsKey("User-Agent")) && configuration.userAgent != null) {
-                headerStrBuilder.append("User-Agent: ").append(configuration.userAgent).append("\r\n");
-            }
+    /**
+     * 拼接 HTTP 请求头选项，自定义请求头优先于配置中的 User-Agent 和 cookie
+     */
+    public static String buildHeaders(@Nullable Map<String, String> customHeaders, @Nullable String cookie, DecoderConfiguration configuration) {
+        StringBuilder headerStrBuilder = new StringBuilder();
 
-            if (cookie != null && !cookie.isEmpty() && (customHeaders == null || !customHeaders.containsKey("Cookie"))) {
-                headerStrBuilder.append("Cookie: ").append(cookie).append("\r\n");
-            }
+        if (customHeaders != null) {
+            customHeaders.forEach((k, v) -> headerStrBuilder.append(k).append(": ").append(v).append("\r\n"));
+        }
+
+        if ((customHeaders == null || !customHeaders.containsKey("User-Agent")) && configuration.userAgent != null) {
+            headerStrBuilder.append("User-Agent: ").append(configuration.userAgent).append("\r\n");
+        }
+
+        if (cookie != null && !cookie.isEmpty() && (customHeaders == null || !customHeaders.containsKey("Cookie"))) {
+            headerStrBuilder.append("Cookie: ").append(cookie).append("\r\n");
+        }
+        return headerStrBuilder.toString();
+    }
 
-            grabber.setOption("headers", headerStrBuilder.toString());
+    /**
+     * @param separateAudio 音频由单独的 grabber 解码，此时视频 grabber 禁用音频，保证每个队列只有一个写入线程
+     */
+    private FFmpegFrameGrabber buildGrabber(String url, @Nullable Map<String, String> customHeaders, @Nullable String cookie, DecoderConfiguration configuration, boolean isVideoGrabber, boolean separateAudio) {
+        var grabber = new FFmpegFrameGrabber(url);
+        if (url.startsWith("http")) {
+            grabber.setOption("headers", buildHeaders(customHeaders, cookie, configuration));
 
             grabber.setOption("reconnect", "1");
             grabber.setOption("reconnect_streamed", "1");
@@ -182,7 +296,7 @@ public class FfmpegMediaDecoder implements Closeable, IMediaDecoder {
 
         if (configuration.useHardwareDecoding) grabber.setOption("hwaccel", "auto");
         if (isVideoGrabber) {
-            grabber.setOption("an", configuration.enableAudio ?"0" : "1"); // 视频解码禁用音频
+            grabber.setOption("an", configuration.enableAudio && !separateAudio ? "0" : "1"); // 视频解码禁用音频
 
             grabber.setOption("vf", "format=rgba");
             grabber.setPixelFormat(avutil.AV_PIX_FMT_RGBA);
@@ -198,110 +312,130 @@ public class FfmpegMediaDecoder implements Closeable, IMediaDecoder {
     }
 
 
-    private void masterDecodeLoop() {
+    /**
+     * 主 grabber 解码一帧；共用 grabber 时音频也从这里输出
+     */
+    private long masterStep() {
+        masterGrabberLock.readLock().lock();
         try {
-            long lastVideoFrameTimestamp = System.currentTimeMillis();
-            while (!Thread.currentThread().isInterrupted() && !isClosed.get()) {
-                masterGrabberLock.readLock().lock();
-                try {
-                    if (isClosed.get()) {
-                        break;
-                    }
-
-                    Frame frame = masterGrabber.grab();
-
-                    if (frame == null) {
-                        break;
-                    }
-
-                    boolean isAudio = frame.samples != null && configuration.enableAudio;
-                    boolean isVideo = frame.image != null && configuration.enableVideo;
-
-                    if (isAudio) {
-                        audioQueue.put(new FfmpegAudioData(frame));
-                    }
-
-                    if (isVideo && FfmpegProcessImageFlags.isEnableProcessImage(masterGrabber)) {
-                        while (!isClosed.get() && lowOverhead && this.videoQueue.size() > Configs.DECODER_LOW_OVERHEAD_VIDEO_FRAMES) {
-                            Thread.sleep(10);
-                        }
-                        lastVideoFrameTimestamp = System.currentTimeMillis();
-                        videoQueue.put(new FfmpegVideoData(frame));
-                    }
-
-                    if (lowOverhead) {
-                        FfmpegProcessImageFlags.setProcessImage(masterGrabber, (System.currentTimeMillis() - lastVideoFrameTimestamp) > 100);
-                    } else {
-                        FfmpegProcessImageFlags.setProcessImage(masterGrabber, true);
-                    }
-
-
-                } catch (FFmpegFrameGrabber.Exception e) {
-                    if (!isClosed.get()) {
-                        LOGGER.warn("视频解码发生异常.", e);
-                    }
-                    break;
-                } finally {
-                    masterGrabberLock.readLock().unlock();
+            if (isClosed.get()) {
+                return DecodeScheduler.DONE;
+            }
+
+            var tier = decodeTier;
+            // 只有视频的 grabber 丢弃所有帧时 grab 会一路读到文件尾，改为挂起，恢复时跳到音频的位置
+            if (tier == DecodeTier.AUDIO_ONLY && audioGrabber != null) {
+                masterPaused = true;
+                return DecodeScheduler.PARK;
+            }
+            if (masterPaused) {
+                masterPaused = false;
+                if (!isLiveStream()) {
+                    masterGrabber.setTimestamp(audioGrabber.getTimestamp());
                 }
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
+            if (videoRing.isSaturated() || (audioGrabber == null && audioRing.isSaturated())) {
+                return DecodeScheduler.PARK;
+            }
+            applyDecodeTier(tier);
+            applyOutputSize();
+            FfmpegProcessImageFlags.setProcessImage(masterGrabber, shouldProcessImage(tier));
+
+            Frame frame = masterGrabber.grab();
+
+            if (frame == null) {
+                return DecodeScheduler.DONE;
+            }
+
+            boolean isAudio = frame.samples != null && configuration.enableAudio;
+            boolean isVideo = frame.image != null && configuration.enableVideo;
+
+            if (isAudio) {
+                offerAudio(frame);
+            }
+
+            if (isVideo && FfmpegProcessImageFlags.isEnableProcessImage(masterGrabber)) {
+                lastVideoFrameTimestamp = frame.timestamp;
+                var dst = BufferPool.getInstance().acquire(FfmpegVideoDataConverter.requiredBytes(frame));
+                offer(videoRing, new FfmpegVideoData(frame, dst));
+            }
+            return DecodeScheduler.CONTINUE;
+        } catch (FFmpegFrameGrabber.Exception e) {
             if (!isClosed.get()) {
-                LOGGER.error("在解码循环中发生未捕获的错误", e);
+                LOGGER.warn("视频解码发生异常.", e);
             }
+            return DecodeScheduler.DONE;
         } finally {
-            masterDecoderThread = null;
+            masterGrabberLock.readLock().unlock();
         }
     }
 
-    private void audioDecodeLoop() {
+    /**
+     * 独立的音频 grabber 解码一帧
+     */
+    private long audioStep() {
+        audioGrabberLock.readLock().lock();
         try {
-            while (!Thread.currentThread().isInterrupted() && !isClosed.get()) {
-                audioGrabberLock.readLock().lock();
-                try {
-                    if (masterGrabber != null &&  audioGrabber.getTimestamp() - masterGrabber.getTimestamp() > 1_000_000){
-                        Thread.sleep(10);
-                        continue;
-                    }
-
-                    if (isClosed.get()) {
-                        break;
-                    }
-
-                    Frame frame = audioGrabber.grabSamples();
-                    if (frame == null) {
-                        break;
-                    }
-
-                    boolean isAudio = frame.samples != null && configuration.enableAudio;
-                    if (isAudio) {
-                        audioQueue.put(new FfmpegAudioData(frame));
-                    }
-
-                } catch (FFmpegFrameGrabber.Exception e) {
-                    if (!isClosed.get()) {
-                        LOGGER.warn("音频解码发生异常.", e);
-                    }
-                    break;
-                } finally {
-                    audioGrabberLock.readLock().unlock();
-                }
+            if (isClosed.get()) {
+                return DecodeScheduler.DONE;
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
+            // 音频领先视频太多时等待视频追上
+            if (masterGrabber != null && !masterPaused && audioGrabber.getTimestamp() - masterGrabber.getTimestamp() > 1_000_000) {
+                return AUDIO_AHEAD_PARK_NANOS;
+            }
+            if (audioRing.isSaturated()) {
+                return DecodeScheduler.PARK;
+            }
+
+            Frame frame = audioGrabber.grabSamples();
+            if (frame == null) {
+                return DecodeScheduler.DONE;
+            }
+
+            boolean isAudio = frame.samples != null && configuration.enableAudio;
+            if (isAudio) {
+                offerAudio(frame);
+            }
+            return DecodeScheduler.CONTINUE;
+        } catch (FFmpegFrameGrabber.Exception e) {
             if (!isClosed.get()) {
-                LOGGER.error("在解码循环中发生未捕获的错误", e);
+                LOGGER.warn("音频解码发生异常.", e);
             }
+            return DecodeScheduler.DONE;
         } finally {
-            audioDecodeThread = null;
+            audioGrabberLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 音频在解码线程上直接混合写入池化的缓冲，Frame 的采样缓冲区由 grabber 复用
+     */
+    private void offerAudio(Frame frame) {
+        var data = FfmpegAudioBufferDataConverter.toAudioData(frame);
+        if (data != null) {
+            offer(audioRing, data);
+        }
+    }
+
+    /**
+     * 写入前已检查队列未饱和，单一写入端下不会失败；万一失败则释放帧
+     */
+    private static <T extends IFrameData> void offer(FrameRing<T> ring, T frame) {
+        if (!ring.offer(frame)) {
+            frame.close();
         }
     }
 
+    private void wakeJobs() {
+        var master = masterJob;
+        if (master != null) master.wake();
+        var audio = audioJob;
+        if (audio != null) audio.wake();
+    }
+
     public boolean isEnded() {
-        return masterDecoderThread == null;
+        var master = masterJob;
+        return master == null || master.isFinished();
     }
 
     public FFmpegFrameGrabber getPrimaryGrabber(){
@@ -321,13 +455,11 @@ public class FfmpegMediaDecoder implements Closeable, IMediaDecoder {
     }
 
     public int getWidth() {
-        if (masterGrabber == null) return -1;
-        return masterGrabber.getImageWidth();
+        return nativeWidth;
     }
 
     public int getHeight() {
-        if (masterGrabber == null) return -1;
-        return masterGrabber.getImageHeight();
+        return nativeHeight;
     }
 
     @Override
@@ -368,12 +500,11 @@ public class FfmpegMediaDecoder implements Closeable, IMediaDecoder {
         if (!isClosed.compareAndSet(false, true)) {
             return;
         }
-        if (masterDecoderThread != null) {
-            masterDecoderThread.interrupt();
-        }
-        if (audioDecodeThread != null) {
-            audioDecodeThread.interrupt();
-        }
+        // 正在执行的一步持有 grabber 读锁，下面获取写锁时会等它结束
+        var master = masterJob;
+        if (master != null) master.cancel();
+        var audio = audioJob;
+        if (audio != null) audio.cancel();
 
         masterGrabberLock.writeLock().lock();
         audioGrabberLock.writeLock().lock();
@@ -396,32 +527,11 @@ public class FfmpegMediaDecoder implements Closeable, IMediaDecoder {
             audioGrabberLock.writeLock().unlock();
         }
 
-        if (masterDecoderThread != null) {
-            try {
-                masterDecoderThread.join(500);
-            } catch (InterruptedException e) {
-                LOGGER.warn("join time out", e);
-            }
-        }
-        if (audioDecodeThread != null) {
-            try {
-                audioDecodeThread.join();
-            } catch (InterruptedException e) {
-                LOGGER.warn("join time out", e);
-            }
-        }
         clearQueue();
     }
 
     private void clearQueue() {
-        videoQueueLock.writeLock().lock();
-        try {
-            videoQueue.forEach(FfmpegVideoData::close);
-            audioQueue.forEach(FfmpegAudioData::close);
-            videoQueue.clear();
-            audioQueue.clear();
-        } finally {
-            videoQueueLock.writeLock().unlock();
-        }
+        videoRing.clear();
+        audioRing.clear();
     }
 }
\ No newline at end of file
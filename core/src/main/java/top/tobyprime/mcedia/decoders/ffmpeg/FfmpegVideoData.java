@@ -4,15 +4,18 @@ import org.bytedeco.javacv.Frame;
 import top.tobyprime.mcedia.decoders.VideoFrame;
 import top.tobyprime.mcedia.interfaces.IVideoData;
 
+import java.nio.ByteBuffer;
+
 public class FfmpegVideoData implements IVideoData {
     private final long timestamp;
     public VideoFrame frame;
 
-    public FfmpegVideoData(Frame ffmpegFrame) {
-        // 无论如何一定要先clone，不然会出问题，不知道为什么
-        var clonedFrame = ffmpegFrame.clone();
-        this.frame = FfmpegVideoDataConverter.convertToVideoFrame(clonedFrame);
-        clonedFrame.close();
+    /**
+     * @param dst 由解码器分配的堆外缓冲区，大小至少为 {@link FfmpegVideoDataConverter#requiredBytes(Frame)}
+     */
+    public FfmpegVideoData(Frame ffmpegFrame, ByteBuffer dst) {
+        // grabber 会复用 frame 的图像缓冲区，必须在下一次 grab 前拷贝走
+        this.frame = FfmpegVideoDataConverter.convertInto(ffmpegFrame, dst);
         this.timestamp = ffmpegFrame.timestamp;
     }
 
@@ -21,6 +24,11 @@ public class FfmpegVideoData implements IVideoData {
         return timestamp;
     }
 
+    @Override
+    public long getSizeInBytes() {
+        return frame.buffer.capacity();
+    }
+
     @Override
     public VideoFrame toFrame() {
         return frame;
@@ -2,53 +2,48 @@ package top.tobyprime.mcedia.decoders.ffmpeg;
 
 import org.bytedeco.javacv.Frame;
 import org.lwjgl.system.MemoryUtil;
+import top.tobyprime.mcedia.Configs;
+import top.tobyprime.mcedia.decoders.TileHasher;
 import top.tobyprime.mcedia.decoders.VideoFrame;
 
-import java.nio.Buffer;
 import java.nio.ByteBuffer;
 
 public class FfmpegVideoDataConverter {
 
-    public static VideoFrame convertToVideoFrame(Frame frame) {
+    /**
+     * 目标缓冲区需要的字节数（保留 stride）
+     */
+    public static int requiredBytes(Frame frame) {
+        return frame.imageStride * frame.imageHeight;
+    }
+
+    /**
+     * 将 grabber 的图像一次性拷贝进调用方提供的堆外缓冲区，保留原始 stride，由纹理上传时通过 GL_UNPACK_ROW_LENGTH 处理
+     */
+    public static VideoFrame convertInto(Frame frame, ByteBuffer dst) {
         if (frame == null || frame.image == null || frame.image.length == 0) {
             throw new IllegalArgumentException("Frame has no image data");
         }
 
-        Buffer srcBuffer = frame.image[0];
+        ByteBuffer src = (ByteBuffer) frame.image[0];
         int width = frame.imageWidth;
         int height = frame.imageHeight;
         int stride = frame.imageStride;
+        int bytes = stride * height;
 
-        return new VideoFrame(removeStride((ByteBuffer) srcBuffer, height, width, stride, frame.imageChannels), width, height);
-    }
-
-
-    public static ByteBuffer removeStride(ByteBuffer src, int height, int width, int stride, int channels) {
-        int rowElements = width * channels;
-
-        if (stride == width * channels) { // 紧凑
-            ByteBuffer copy = MemoryUtil.memAlloc(src.remaining());
-            copy.put(src);
-            return copy;
-        }
-
-        if (src.capacity() < stride * height) {
-            throw new IllegalArgumentException("Source buffer too small: capacity=" + src.capacity()
-                    + ", expected at least " + (stride * height));
+        if (dst.capacity() < bytes) {
+            throw new IllegalArgumentException("Destination buffer too small: capacity=" + dst.capacity()
+                    + ", expected at least " + bytes);
         }
 
-        ByteBuffer dst = MemoryUtil.memAlloc(rowElements * height);
-        byte[] rowData = new byte[rowElements];
-        for (int row = 0; row < height; row++) {
-            int srcPos = row * stride;
-            int dstPos = row * rowElements;
+        // 直接按地址拷贝，不改动 grabber 内部缓冲区的 position
+        MemoryUtil.memCopy(MemoryUtil.memAddress0(src), MemoryUtil.memAddress0(dst), Math.min(src.capacity(), bytes));
+        dst.position(0).limit(bytes);
 
-            src.position(srcPos);
-            src.get(rowData, 0, rowElements); // 读取有效像素
-            dst.position(dstPos);
-            dst.put(rowData);
+        var videoFrame = new VideoFrame(dst, width, height, stride);
+        if (Configs.UPLOAD_CHANGE_DETECTION) {
+            TileHasher.compute(videoFrame);
         }
-        dst.flip();
-        return dst;
+        return videoFrame;
     }
 }
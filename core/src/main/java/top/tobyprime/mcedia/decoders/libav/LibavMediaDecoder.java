@@ -0,0 +1,937 @@
+package top.tobyprime.mcedia.decoders.libav;
+
+import org.bytedeco.ffmpeg.avcodec.AVCodec;
+import org.bytedeco.ffmpeg.avcodec.AVCodecContext;
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.avformat.AVIOInterruptCB;
+import org.bytedeco.ffmpeg.avformat.AVStream;
+import org.bytedeco.ffmpeg.avutil.AVChannelLayout;
+import org.bytedeco.ffmpeg.avutil.AVDictionary;
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.ffmpeg.avutil.AVRational;
+import org.bytedeco.ffmpeg.swresample.SwrContext;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.javacpp.PointerPointer;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.tobyprime.mcedia.Configs;
+import top.tobyprime.mcedia.core.DecodeScheduler;
+import top.tobyprime.mcedia.core.MediaInfo;
+import top.tobyprime.mcedia.decoders.AudioBufferData;
+import top.tobyprime.mcedia.decoders.DecodeTier;
+import top.tobyprime.mcedia.decoders.DecoderConfiguration;
+import top.tobyprime.mcedia.decoders.FrameRing;
+import top.tobyprime.mcedia.decoders.TileHasher;
+import top.tobyprime.mcedia.decoders.VideoFrame;
+import top.tobyprime.mcedia.decoders.ffmpeg.FfmpegMediaDecoder;
+import top.tobyprime.mcedia.interfaces.IAudioData;
+import top.tobyprime.mcedia.interfaces.IFrameData;
+import top.tobyprime.mcedia.interfaces.IMediaDecoder;
+import top.tobyprime.mcedia.interfaces.IVideoData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.bytedeco.ffmpeg.global.avcodec.*;
+import static org.bytedeco.ffmpeg.global.avformat.*;
+import static org.bytedeco.ffmpeg.global.avutil.*;
+import static org.bytedeco.ffmpeg.global.swresample.*;
+
+/**
+ * 直接基于 libavformat/libavcodec 的解码器。
+ * <p>
+ * 每个输入（音视频合流，或 DASH 的视频、音频两路）有一个解复用线程，把数据包分发到视频、音频两个有界队列；
+ * 音视频各自的解码任务在 {@link DecodeScheduler} 上从队列取包解码，互不阻塞；视频帧的格式转换和缩放交给 {@link SlicedFrameConverter} 并行完成。
+ * 解码档位直接设置视频解码器的 skip_frame，AUDIO_ONLY 时视频包在解复用阶段丢弃，不需要 FFmpegFrameGrabber 的图像处理开关。
+ */
+public class LibavMediaDecoder implements IMediaDecoder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LibavMediaDecoder.class);
+
+    private static final int VIDEO_PACKET_QUEUE_SIZE = 256;
+    private static final int AUDIO_PACKET_QUEUE_SIZE = 512;
+    // 解复用线程无事可做时最多等待的时间，正常由队列取包、seek 或档位变化唤醒
+    private static final long DEMUX_IDLE_NANOS = 50_000_000L;
+    // 同时在转换的帧数，转换与下一帧的解码重叠进行
+    private static final int MAX_PENDING_FRAMES = 2;
+
+    /**
+     * 正在转换的帧，持有解码帧的引用直到转换完成
+     */
+    private record PendingFrame(AVFrame frame, VideoFrame output, long timestamp, CompletableFuture<Void> conversion) {
+    }
+
+    /**
+     * 一个输入地址及其解复用线程
+     */
+    private class Input {
+        final String url;
+        final AVFormatContext context;
+        // 中断阻塞中的网络读取，关闭时立即返回
+        final AVIOInterruptCB.Callback_Pointer interruptCallback;
+        int videoStream = -1;
+        int audioStream = -1;
+        long startTimeUs = 0;
+        // 打开失败时 avformat_open_input 会释放上下文
+        boolean opened = false;
+        volatile boolean eof = false;
+        // 只有视频的输入在 AUDIO_ONLY 时暂停读取
+        boolean suspended = false;
+        // 音视频在同一输入时，AUDIO_ONLY 期间丢弃过视频包
+        boolean videoDropped = false;
+        // 最后放进队列的音频包的 pts，恢复视频跳回后不超过它的音频包已经读过
+        long lastAudioPts = AV_NOPTS_VALUE;
+        long audioSkipUntilPts = AV_NOPTS_VALUE;
+        @Nullable Thread thread;
+
+        Input(String url) {
+            this.url = url;
+            this.context = avformat_alloc_context();
+            this.interruptCallback = new AVIOInterruptCB.Callback_Pointer() {
+                @Override
+                public int call(Pointer opaque) {
+                    return isClosed.get() ? 1 : 0;
+                }
+            };
+            this.context.interrupt_callback().callback(interruptCallback);
+        }
+
+        void start() {
+            thread = new Thread(() -> demuxLoop(this), "Mcedia-Demux");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void wake() {
+            var t = thread;
+            if (t != null) LockSupport.unpark(t);
+        }
+
+        void seek(long timestampUs) {
+            long target = timestampUs + startTimeUs;
+            int ret = avformat_seek_file(context, -1, Long.MIN_VALUE, target, target, 0);
+            if (ret < 0) {
+                LOGGER.warn("{} seek 失败: {}", url, errorString(ret));
+            }
+            eof = false;
+        }
+    }
+
+    private final DecoderConfiguration configuration;
+    public final FrameRing<LibavVideoData> videoRing;
+    public final FrameRing<AudioBufferData> audioRing;
+    private final PacketQueue videoPackets = new PacketQueue(VIDEO_PACKET_QUEUE_SIZE);
+    private final PacketQueue audioPackets = new PacketQueue(AUDIO_PACKET_QUEUE_SIZE);
+    private final ArrayList<Input> inputs = new ArrayList<>();
+    private @Nullable Input videoInput;
+    private @Nullable Input audioInput;
+
+    private @Nullable AVCodecContext videoCodec;
+    private @Nullable AVCodecContext audioCodec;
+    private @Nullable AVRational videoTimeBase;
+    private @Nullable AVRational audioTimeBase;
+    private final AVFrame videoFrame = av_frame_alloc();
+    private final AVFrame audioFrame = av_frame_alloc();
+
+    // 以下仅由视频解码任务访问
+    private final SlicedFrameConverter converter = new SlicedFrameConverter(MAX_PENDING_FRAMES);
+    // 正在转换的帧，按解码顺序写入视频队列
+    private final ArrayDeque<PendingFrame> pendingFrames = new ArrayDeque<>();
+    private DecodeTier appliedDecodeTier = null;
+    private boolean videoDraining = false;
+    // 从 AUDIO_ONLY 恢复后丢弃数据包直到下一个关键帧
+    private boolean waitKeyframe = false;
+    private boolean videoPaused = false;
+    private long lastVideoTimestamp = -1;
+    private long videoSeekTargetUs = 0;
+
+    // 以下仅由音频解码任务访问
+    private @Nullable SwrContext swrContext;
+    private final PointerPointer<Pointer> swrDst = new PointerPointer<>(1);
+    private int swrInFormat = -1;
+    private int swrInRate = -1;
+    private int swrInChannels = -1;
+    private boolean audioDraining = false;
+    private long audioSeekTargetUs = 0;
+    private int outputSampleRate;
+
+    private volatile long lastDecodedTimestamp = 0;
+    private volatile long lastAudioTimestamp = -1;
+    private volatile DecodeTier decodeTier = DecodeTier.FULL;
+    private volatile int priority = 0;
+    private long memoryBudget = Long.MAX_VALUE;
+    // 0 表示原始尺寸
+    private volatile int outputWidth = 0;
+    private volatile int outputHeight = 0;
+    private volatile boolean yuvOutput = false;
+    private volatile @Nullable DecodeScheduler.Job videoJob;
+    private volatile @Nullable DecodeScheduler.Job audioJob;
+
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+    // 解复用和解码的每一步持有读锁，seek 和关闭持有写锁
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public LibavMediaDecoder(MediaInfo info, DecoderConfiguration configuration) {
+        this.configuration = configuration;
+        this.videoRing = new FrameRing<>(Configs.DECODER_MAX_VIDEO_FRAMES);
+        this.audioRing = new FrameRing<>(Configs.DECODER_MAX_AUDIO_FRAMES);
+        this.videoRing.setSpaceListener(this::wakeJobs);
+        this.audioRing.setSpaceListener(this::wakeJobs);
+        this.videoPackets.setPacketListener(() -> wake(videoJob));
+        this.audioPackets.setPacketListener(() -> wake(audioJob));
+        applyLimits();
+
+        boolean separateAudio = info.audioUrl != null && !info.audioUrl.isEmpty();
+        try {
+            var main = openInput(info.streamUrl, info);
+            if (configuration.enableVideo) {
+                openVideo(main);
+            }
+            if (configuration.enableAudio) {
+                if (separateAudio) {
+                    openAudio(openInput(info.audioUrl, info));
+                } else {
+                    openAudio(main);
+                }
+            }
+        } catch (RuntimeException e) {
+            this.close();
+            throw e;
+        }
+        if (videoCodec == null && audioCodec == null) {
+            this.close();
+            throw new RuntimeException("No available stream in " + info.streamUrl);
+        }
+
+        // 不需要的流不再读取
+        for (var input : inputs) {
+            for (int i = 0; i < input.context.nb_streams(); i++) {
+                if (i != input.videoStream && i != input.audioStream) {
+                    input.context.streams(i).discard(AVDISCARD_ALL);
+                }
+            }
+        }
+        videoPackets.setSpaceListener(this::wakeInputs);
+        audioPackets.setSpaceListener(this::wakeInputs);
+        for (var input : inputs) {
+            if (input.videoStream >= 0 || input.audioStream >= 0) {
+                input.start();
+            }
+        }
+        startDecoder();
+    }
+
+    private Input openInput(String url, MediaInfo info) {
+        var input = new Input(url);
+        inputs.add(input);
+
+        AVDictionary options = new AVDictionary(null);
+        try {
+            if (url.startsWith("http")) {
+                av_dict_set(options, "headers", FfmpegMediaDecoder.buildHeaders(info.headers, info.cookie, configuration), 0);
+                av_dict_set(options, "reconnect", "1", 0);
+                av_dict_set(options, "reconnect_streamed", "1", 0);
+                av_dict_set(options, "reconnect_delay_max", "5", 0);
+                av_dict_set(options, "timeout", String.valueOf(configuration.timeout), 0);
+                av_dict_set(options, "rw_timeout", String.valueOf(configuration.timeout), 0);
+            }
+            av_dict_set(options, "buffer_size", String.valueOf(configuration.bufferSize), 0);
+            av_dict_set(options, "probesize", String.valueOf(configuration.probesize), 0);
+
+            int ret = avformat_open_input(input.context, url, null, options);
+            if (ret < 0) {
+                throw new RuntimeException("avformat_open_input " + url + " failed: " + errorString(ret));
+            }
+            input.opened = true;
+        } finally {
+            av_dict_free(options);
+        }
+        int ret = avformat_find_stream_info(input.context, (PointerPointer<?>) null);
+        if (ret < 0) {
+            throw new RuntimeException("avformat_find_stream_info " + url + " failed: " + errorString(ret));
+        }
+        if (input.context.start_time() != AV_NOPTS_VALUE) {
+            input.startTimeUs = input.context.start_time();
+        }
+        return input;
+    }
+
+    private AVCodecContext openCodec(AVStream stream) {
+        var parameters = stream.codecpar();
+        AVCodec codec = avcodec_find_decoder(parameters.codec_id());
+        if (codec == null) {
+            throw new RuntimeException("No decoder for codec " + parameters.codec_id());
+        }
+        var context = avcodec_alloc_context3(codec);
+        int ret = avcodec_parameters_to_context(context, parameters);
+        if (ret < 0) {
+            avcodec_free_context(context);
+            throw new RuntimeException("avcodec_parameters_to_context failed: " + errorString(ret));
+        }
+        context.pkt_timebase(stream.time_base());
+        context.thread_count(Math.max(0, Configs.DECODER_CODEC_THREADS));
+        context.thread_type("slice".equalsIgnoreCase(Configs.DECODER_THREAD_TYPE) ? FF_THREAD_SLICE : FF_THREAD_FRAME);
+        ret = avcodec_open2(context, codec, (PointerPointer<?>) null);
+        if (ret < 0) {
+            avcodec_free_context(context);
+            throw new RuntimeException("avcodec_open2 failed: " + errorString(ret));
+        }
+        return context;
+    }
+
+    private void openVideo(Input input) {
+        int index = av_find_best_stream(input.context, AVMEDIA_TYPE_VIDEO, -1, -1, (PointerPointer<?>) null, 0);
+        if (index < 0) {
+            LOGGER.warn("{} 没有视频流", input.url);
+            return;
+        }
+        var stream = input.context.streams(index);
+        videoCodec = openCodec(stream);
+        videoTimeBase = stream.time_base();
+        input.videoStream = index;
+        videoInput = input;
+    }
+
+    private void openAudio(Input input) {
+        int index = av_find_best_stream(input.context, AVMEDIA_TYPE_AUDIO, -1, -1, (PointerPointer<?>) null, 0);
+        if (index < 0) {
+            LOGGER.warn("{} 没有音频流", input.url);
+            return;
+        }
+        var stream = input.context.streams(index);
+        audioCodec = openCodec(stream);
+        audioTimeBase = stream.time_base();
+        outputSampleRate = configuration.audioSampleRate > 0 ? configuration.audioSampleRate : audioCodec.sample_rate();
+        input.audioStream = index;
+        audioInput = input;
+    }
+
+    /**
+     * 向解码调度器提交解码任务，已结束的任务（如播放到结尾后 seek）会重新提交
+     */
+    public synchronized void startDecoder() {
+        if (isClosed.get()) return;
+        var video = videoJob;
+        if (videoCodec != null && (video == null || video.isFinished())) {
+            videoJob = DecodeScheduler.getInstance().submit("video", priority, this::videoStep);
+        }
+        var audio = audioJob;
+        if (audioCodec != null && (audio == null || audio.isFinished())) {
+            audioJob = DecodeScheduler.getInstance().submit("audio", priority, this::audioStep);
+        }
+    }
+
+    private void demuxLoop(Input input) {
+        while (!isClosed.get()) {
+            if (!demuxStep(input)) {
+                LockSupport.parkNanos(this, DEMUX_IDLE_NANOS);
+            }
+        }
+    }
+
+    /**
+     * 读取一个数据包并分发到对应队列
+     *
+     * @return 是否读到了数据包，否则等待被唤醒
+     */
+    private boolean demuxStep(Input input) {
+        lock.readLock().lock();
+        try {
+            if (isClosed.get() || input.eof) {
+                return false;
+            }
+            boolean videoOnly = input.audioStream < 0;
+            if (videoOnly && decodeTier == DecodeTier.AUDIO_ONLY) {
+                input.suspended = true;
+                return false;
+            }
+            if (input.suspended) {
+                // 暂停期间音频继续播放，从音频的位置继续读取视频
+                input.suspended = false;
+                long position = resumePosition();
+                if (position >= 0) {
+                    input.seek(position);
+                }
+            }
+            if (input.videoDropped && decodeTier != DecodeTier.AUDIO_ONLY) {
+                // 否则要等到解复用读到下一个关键帧才有画面；跳回音频位置之前的关键帧，已经读过的音频包丢弃
+                input.videoDropped = false;
+                long position = resumePosition();
+                if (position >= 0 && input.lastAudioPts != AV_NOPTS_VALUE) {
+                    input.seek(position);
+                    input.audioSkipUntilPts = input.lastAudioPts;
+                }
+            }
+            if ((input.videoStream >= 0 && videoPackets.isFull()) || (input.audioStream >= 0 && audioPackets.isFull())) {
+                return false;
+            }
+
+            AVPacket packet = av_packet_alloc();
+            int ret = av_read_frame(input.context, packet);
+            if (ret < 0) {
+                av_packet_free(packet);
+                if (ret == AVERROR_EAGAIN()) {
+                    return false;
+                }
+                if (ret != AVERROR_EOF && !isClosed.get()) {
+                    LOGGER.warn("{} 读取数据包失败: {}", input.url, errorString(ret));
+                }
+                input.eof = true;
+                if (input.videoStream >= 0) videoPackets.setEnded();
+                if (input.audioStream >= 0) audioPackets.setEnded();
+                return false;
+            }
+
+            int index = packet.stream_index();
+            if (index == input.videoStream && decodeTier != DecodeTier.AUDIO_ONLY) {
+                videoPackets.offer(packet);
+            } else if (index == input.audioStream) {
+                long pts = packet.pts();
+                if (input.audioSkipUntilPts != AV_NOPTS_VALUE && pts != AV_NOPTS_VALUE && pts <= input.audioSkipUntilPts) {
+                    av_packet_free(packet);
+                    return true;
+                }
+                input.audioSkipUntilPts = AV_NOPTS_VALUE;
+                input.lastAudioPts = pts;
+                audioPackets.offer(packet);
+            } else {
+                if (index == input.videoStream) {
+                    input.videoDropped = true;
+                }
+                av_packet_free(packet);
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 视频从 AUDIO_ONLY 恢复时跳到的位置，即下一段要播放的音频的时间；直播和未知时为 -1
+     */
+    private long resumePosition() {
+        if (isLiveStream()) {
+            return -1;
+        }
+        long head = audioRing.peekTimestamp();
+        return head != FrameRing.NO_TIMESTAMP ? head : lastAudioTimestamp;
+    }
+
+    private long videoStep() {
+        lock.readLock().lock();
+        try {
+            if (isClosed.get()) {
+                return DecodeScheduler.DONE;
+            }
+            drainConvertedFrames();
+            var tier = decodeTier;
+            if (tier == DecodeTier.AUDIO_ONLY) {
+                // 视频包在解复用时已丢弃，输入读完后结束任务，否则无法判断播放结束
+                if (videoPackets.isEnded() || audioPackets.isEnded()) {
+                    discardPendingFrames();
+                    return DecodeScheduler.DONE;
+                }
+                videoPaused = true;
+                return DecodeScheduler.PARK;
+            }
+            if (videoPaused) {
+                videoPaused = false;
+                avcodec_flush_buffers(videoCodec);
+                waitKeyframe = true;
+            }
+            // 转换完成时会唤醒任务
+            if (pendingFrames.size() >= MAX_PENDING_FRAMES || videoRing.isSaturated()) {
+                return DecodeScheduler.PARK;
+            }
+            applyDecodeTier(tier);
+
+            int ret = avcodec_receive_frame(videoCodec, videoFrame);
+            if (ret >= 0) {
+                try {
+                    emitVideoFrame(tier);
+                } finally {
+                    av_frame_unref(videoFrame);
+                }
+                return DecodeScheduler.CONTINUE;
+            }
+            if (ret == AVERROR_EOF) {
+                return pendingFrames.isEmpty() ? DecodeScheduler.DONE : DecodeScheduler.PARK;
+            }
+            if (ret != AVERROR_EAGAIN()) {
+                LOGGER.warn("视频解码发生异常: {}", errorString(ret));
+                discardPendingFrames();
+                return DecodeScheduler.DONE;
+            }
+
+            AVPacket packet = videoPackets.poll();
+            if (packet == null) {
+                if (videoPackets.isEnded() && !videoDraining) {
+                    videoDraining = true;
+                    avcodec_send_packet(videoCodec, null);
+                    return DecodeScheduler.CONTINUE;
+                }
+                return DecodeScheduler.PARK;
+            }
+            try {
+                if (waitKeyframe) {
+                    if ((packet.flags() & AV_PKT_FLAG_KEY) == 0) {
+                        return DecodeScheduler.CONTINUE;
+                    }
+                    waitKeyframe = false;
+                }
+                ret = avcodec_send_packet(videoCodec, packet);
+                if (ret < 0 && ret != AVERROR_EAGAIN()) {
+                    LOGGER.debug("视频数据包解码失败: {}", errorString(ret));
+                }
+            } finally {
+                av_packet_free(packet);
+            }
+            return DecodeScheduler.CONTINUE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void applyDecodeTier(DecodeTier tier) {
+        if (tier == appliedDecodeTier) return;
+        appliedDecodeTier = tier;
+        videoCodec.skip_frame(switch (tier) {
+            case FULL -> AVDISCARD_DEFAULT;
+            case DECIMATED -> AVDISCARD_NONREF;
+            case KEYFRAME_ONLY -> AVDISCARD_NONKEY;
+            case AUDIO_ONLY -> AVDISCARD_ALL;
+        });
+    }
+
+    /**
+     * 提交格式转换，完成后由 {@link #drainConvertedFrames()} 写入视频队列；seek 目标之前的帧和 DECIMATED 抽掉的帧不做转换
+     */
+    private void emitVideoFrame(DecodeTier tier) {
+        long timestamp = toMicros(videoFrame.best_effort_timestamp(), videoTimeBase, videoInput.startTimeUs);
+        if (timestamp < videoSeekTargetUs) {
+            return;
+        }
+        if (tier == DecodeTier.DECIMATED && lastVideoTimestamp >= 0) {
+            long elapsed = timestamp - lastVideoTimestamp;
+            if (elapsed >= 0 && elapsed < 1_000_000L / Math.max(1, Configs.DECODER_DECIMATED_FPS)) {
+                return;
+            }
+        }
+        lastVideoTimestamp = timestamp;
+        lastDecodedTimestamp = timestamp;
+
+        // 输出尺寸只缩小不放大，取偶数避免色度采样错位
+        var format = outputFormat(videoFrame);
+        int width = outputDimension(outputWidth, videoFrame.width(), format);
+        int height = outputDimension(outputHeight, videoFrame.height(), format);
+        var frame = av_frame_clone(videoFrame);
+        if (frame == null) {
+            return;
+        }
+        boolean fullRange = frame.color_range() == AVCOL_RANGE_JPEG || frame.format() == AV_PIX_FMT_YUVJ420P;
+        boolean bt709 = frame.colorspace() == AVCOL_SPC_BT709;
+        var output = VideoFrame.allocate(format, width, height, fullRange, bt709);
+        var conversion = converter.convertAsync(frame, output);
+        if (Configs.UPLOAD_CHANGE_DETECTION) {
+            // 哈希在转换线程上紧接着计算，渲染线程只做比较
+            conversion = conversion.thenRun(() -> TileHasher.compute(output));
+        }
+        pendingFrames.add(new PendingFrame(frame, output, timestamp, conversion));
+        conversion.whenComplete((v, e) -> wake(videoJob));
+    }
+
+    /**
+     * 纹理能接收 YUV 时按源格式选择 NV12 或 I420，带透明通道且需要透明度时仍输出 RGBA
+     */
+    private VideoFrame.Format outputFormat(AVFrame frame) {
+        if (!yuvOutput) {
+            return VideoFrame.Format.RGBA;
+        }
+        int format = frame.format();
+        if (configuration.videoAlpha && (av_pix_fmt_desc_get(format).flags() & AV_PIX_FMT_FLAG_ALPHA) != 0) {
+            return VideoFrame.Format.RGBA;
+        }
+        if (format == AV_PIX_FMT_NV12 && frame.color_range() != AVCOL_RANGE_JPEG) {
+            return VideoFrame.Format.NV12;
+        }
+        return VideoFrame.Format.I420;
+    }
+
+    private static int outputDimension(int requested, int source, VideoFrame.Format format) {
+        if (requested <= 0 || requested >= source) {
+            // YUV 色度按 2x2 抽样，尺寸取偶数
+            return format.isYuv() ? Math.max(2, source & ~1) : source;
+        }
+        return Math.max(2, requested & ~1);
+    }
+
+    /**
+     * 按解码顺序把已转换完成的帧写入视频队列
+     */
+    private void drainConvertedFrames() {
+        PendingFrame pending;
+        while ((pending = pendingFrames.peek()) != null && pending.conversion().isDone()) {
+            pendingFrames.poll();
+            av_frame_free(pending.frame());
+            if (pending.conversion().isCompletedExceptionally()) {
+                LOGGER.warn("视频帧转换失败", pending.conversion().exceptionNow());
+                pending.output().close();
+                continue;
+            }
+            offer(videoRing, new LibavVideoData(pending.output(), pending.timestamp()));
+        }
+    }
+
+    /**
+     * 等待并丢弃所有正在转换的帧
+     */
+    private void discardPendingFrames() {
+        PendingFrame pending;
+        while ((pending = pendingFrames.poll()) != null) {
+            try {
+                pending.conversion().join();
+            } catch (Exception ignored) {
+            }
+            av_frame_free(pending.frame());
+            pending.output().close();
+        }
+    }
+
+    private long audioStep() {
+        lock.readLock().lock();
+        try {
+            if (isClosed.get()) {
+                return DecodeScheduler.DONE;
+            }
+            if (audioRing.isSaturated()) {
+                return DecodeScheduler.PARK;
+            }
+
+            int ret = avcodec_receive_frame(audioCodec, audioFrame);
+            if (ret >= 0) {
+                try {
+                    emitAudioFrame();
+                } finally {
+                    av_frame_unref(audioFrame);
+                }
+                return DecodeScheduler.CONTINUE;
+            }
+            if (ret == AVERROR_EOF) {
+                return DecodeScheduler.DONE;
+            }
+            if (ret != AVERROR_EAGAIN()) {
+                LOGGER.warn("音频解码发生异常: {}", errorString(ret));
+                return DecodeScheduler.DONE;
+            }
+
+            AVPacket packet = audioPackets.poll();
+            if (packet == null) {
+                if (audioPackets.isEnded() && !audioDraining) {
+                    audioDraining = true;
+                    avcodec_send_packet(audioCodec, null);
+                    return DecodeScheduler.CONTINUE;
+                }
+                return DecodeScheduler.PARK;
+            }
+            try {
+                ret = avcodec_send_packet(audioCodec, packet);
+                if (ret < 0 && ret != AVERROR_EAGAIN()) {
+                    LOGGER.debug("音频数据包解码失败: {}", errorString(ret));
+                }
+            } finally {
+                av_packet_free(packet);
+            }
+            return DecodeScheduler.CONTINUE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 重采样为单声道 16 位并写入音频队列
+     */
+    private void emitAudioFrame() {
+        long timestamp = toMicros(audioFrame.best_effort_timestamp(), audioTimeBase, audioInput.startTimeUs);
+        long frameDurationUs = audioFrame.nb_samples() * 1_000_000L / Math.max(1, audioFrame.sample_rate());
+        if (timestamp + frameDurationUs <= audioSeekTargetUs) {
+            return;
+        }
+        if (!ensureResampler()) {
+            return;
+        }
+
+        int maxSamples = swr_get_out_samples(swrContext, audioFrame.nb_samples());
+        var data = AudioBufferData.allocate(maxSamples, outputSampleRate, timestamp);
+        // 直接写入池化缓冲区的地址，避免每个包新建 Pointer
+        MemoryUtil.memPutAddress(swrDst.address(), MemoryUtil.memAddress0(data.pcm()));
+        int samples = swr_convert(swrContext, swrDst, maxSamples, audioFrame.extended_data(), audioFrame.nb_samples());
+        if (samples <= 0) {
+            data.close();
+            return;
+        }
+        data.setSamples(samples);
+        lastAudioTimestamp = timestamp;
+        lastDecodedTimestamp = timestamp;
+        offer(audioRing, data);
+    }
+
+    /**
+     * 按当前帧的格式创建重采样器，格式变化时重建
+     */
+    private boolean ensureResampler() {
+        int format = audioFrame.format();
+        int rate = audioFrame.sample_rate();
+        int channels = audioFrame.ch_layout().nb_channels();
+        if (swrContext != null && format == swrInFormat && rate == swrInRate && channels == swrInChannels) {
+            return true;
+        }
+        if (swrContext != null) {
+            swr_free(swrContext);
+        }
+
+        var outLayout = new AVChannelLayout();
+        av_channel_layout_default(outLayout, 1);
+        swrContext = new SwrContext(null);
+        int ret = swr_alloc_set_opts2(swrContext, outLayout, AV_SAMPLE_FMT_S16, outputSampleRate,
+                audioFrame.ch_layout(), format, rate, 0, null);
+        av_channel_layout_uninit(outLayout);
+        if (ret < 0 || (ret = swr_init(swrContext)) < 0) {
+            LOGGER.warn("无法创建重采样器: {}", errorString(ret));
+            swr_free(swrContext);
+            swrContext = null;
+            return false;
+        }
+        swrInFormat = format;
+        swrInRate = rate;
+        swrInChannels = channels;
+        return true;
+    }
+
+    private static long toMicros(long pts, AVRational timeBase, long startTimeUs) {
+        if (pts == AV_NOPTS_VALUE) {
+            return 0;
+        }
+        return av_rescale(pts, 1_000_000L * timeBase.num(), timeBase.den()) - startTimeUs;
+    }
+
+    private static String errorString(int error) {
+        var buffer = new BytePointer(AV_ERROR_MAX_STRING_SIZE);
+        av_strerror(error, buffer, AV_ERROR_MAX_STRING_SIZE);
+        return buffer.getString() + " (" + error + ")";
+    }
+
+    /**
+     * 写入前已检查队列未饱和，单一写入端下不会失败；万一失败则释放帧
+     */
+    private static <T extends IFrameData> void offer(FrameRing<T> ring, T frame) {
+        if (!ring.offer(frame)) {
+            frame.close();
+        }
+    }
+
+    private static void wake(@Nullable DecodeScheduler.Job job) {
+        if (job != null) job.wake();
+    }
+
+    private void wakeJobs() {
+        wake(videoJob);
+        wake(audioJob);
+    }
+
+    private void wakeInputs() {
+        for (var input : inputs) {
+            input.wake();
+        }
+    }
+
+    @Override
+    public boolean isLiveStream() {
+        return getLength() <= 0;
+    }
+
+    @Override
+    public FrameRing<? extends IVideoData> getVideoRing() {
+        return videoRing;
+    }
+
+    @Override
+    public FrameRing<? extends IAudioData> getAudioRing() {
+        return audioRing;
+    }
+
+    @Override
+    public void setDecodeTier(DecodeTier tier) {
+        if (this.decodeTier == tier) return;
+        LOGGER.info("解码档位: {} -> {}", this.decodeTier, tier);
+        this.decodeTier = tier;
+        applyLimits();
+        wakeJobs();
+        wakeInputs();
+    }
+
+    @Override
+    public DecodeTier getDecodeTier() {
+        return decodeTier;
+    }
+
+    @Override
+    public void setPriority(int priority) {
+        this.priority = priority;
+        var video = videoJob;
+        if (video != null) video.setPriority(priority);
+        var audio = audioJob;
+        if (audio != null) audio.setPriority(priority);
+    }
+
+    @Override
+    public void setOutputSize(int width, int height) {
+        this.outputWidth = width;
+        this.outputHeight = height;
+    }
+
+    @Override
+    public void setYuvOutput(boolean enabled) {
+        this.yuvOutput = enabled;
+    }
+
+    @Override
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = bytes;
+        applyLimits();
+    }
+
+    /**
+     * 按帧数、内存预算和预读时长设置队列限制，音频帧很小，只分走 1/8 的预算
+     */
+    private void applyLimits() {
+        long lookAheadUs = Configs.DECODER_MAX_LOOKAHEAD_MS * 1000L;
+        long audioBytes = memoryBudget / 8;
+        int videoFrames = decodeTier == DecodeTier.FULL ? Configs.DECODER_MAX_VIDEO_FRAMES : Configs.DECODER_LOW_OVERHEAD_VIDEO_FRAMES;
+        videoRing.setLimits(videoFrames, memoryBudget - audioBytes, lookAheadUs);
+        audioRing.setLimits(Configs.DECODER_MAX_AUDIO_FRAMES, audioBytes, lookAheadUs);
+    }
+
+    @Override
+    public boolean isEnded() {
+        var video = videoJob;
+        var audio = audioJob;
+        return (video == null || video.isFinished()) && (audio == null || audio.isFinished());
+    }
+
+    @Override
+    public long getLength() {
+        var input = videoInput != null ? videoInput : audioInput;
+        if (input == null) return 0;
+        long duration = input.context.duration();
+        return duration == AV_NOPTS_VALUE ? 0 : Math.max(0, duration);
+    }
+
+    @Override
+    public long getDuration() {
+        return lastDecodedTimestamp;
+    }
+
+    @Override
+    public int getWidth() {
+        return videoCodec == null ? -1 : videoCodec.width();
+    }
+
+    @Override
+    public int getHeight() {
+        return videoCodec == null ? -1 : videoCodec.height();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return outputSampleRate;
+    }
+
+    @Override
+    public int getChannels() {
+        return 1;
+    }
+
+    @Override
+    public void seek(long timestamp) {
+        if (getLength() <= 0) return;
+        timestamp = Math.max(0, Math.min(timestamp, getLength()));
+
+        lock.writeLock().lock();
+        try {
+            if (isClosed.get()) return;
+            for (var input : inputs) {
+                input.seek(timestamp);
+                input.suspended = false;
+                input.videoDropped = false;
+                input.lastAudioPts = AV_NOPTS_VALUE;
+                input.audioSkipUntilPts = AV_NOPTS_VALUE;
+            }
+            discardPendingFrames();
+            videoPackets.clear();
+            audioPackets.clear();
+            if (videoCodec != null) avcodec_flush_buffers(videoCodec);
+            if (audioCodec != null) avcodec_flush_buffers(audioCodec);
+            videoDraining = false;
+            audioDraining = false;
+            waitKeyframe = false;
+            videoPaused = false;
+            lastVideoTimestamp = -1;
+            lastAudioTimestamp = -1;
+            videoSeekTargetUs = timestamp;
+            audioSeekTargetUs = timestamp;
+            lastDecodedTimestamp = timestamp;
+            clearQueue();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        startDecoder();
+        wakeJobs();
+        wakeInputs();
+    }
+
+    @Override
+    public void close() {
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
+        }
+        var video = videoJob;
+        if (video != null) video.cancel();
+        var audio = audioJob;
+        if (audio != null) audio.cancel();
+        // 中断回调让阻塞中的读取尽快返回，解复用线程随后退出
+        wakeInputs();
+
+        lock.writeLock().lock();
+        try {
+            discardPendingFrames();
+            converter.close();
+            videoPackets.clear();
+            audioPackets.clear();
+            if (videoCodec != null) avcodec_free_context(videoCodec);
+            if (audioCodec != null) avcodec_free_context(audioCodec);
+            av_frame_free(videoFrame);
+            av_frame_free(audioFrame);
+            if (swrContext != null) swr_free(swrContext);
+            for (var input : inputs) {
+                if (input.opened) avformat_close_input(input.context);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("释放解码器时出错", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        clearQueue();
+    }
+
+    private void clearQueue() {
+        videoRing.clear();
+        audioRing.clear();
+    }
+}
@@ -0,0 +1,37 @@
+package top.tobyprime.mcedia.decoders.libav;
+
+import top.tobyprime.mcedia.decoders.VideoFrame;
+import top.tobyprime.mcedia.interfaces.IVideoData;
+
+public class LibavVideoData implements IVideoData {
+    private final long timestamp;
+    private final VideoFrame frame;
+
+    /**
+     * @param frame 已转换为 RGBA 的帧，缓冲区来自 {@link top.tobyprime.mcedia.BufferPool}
+     */
+    public LibavVideoData(VideoFrame frame, long timestamp) {
+        this.frame = frame;
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        return frame.buffer.capacity();
+    }
+
+    @Override
+    public VideoFrame toFrame() {
+        return frame;
+    }
+
+    @Override
+    public void close() {
+        frame.close();
+    }
+}
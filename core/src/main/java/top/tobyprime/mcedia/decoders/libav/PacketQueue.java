@@ -0,0 +1,97 @@
+package top.tobyprime.mcedia.decoders.libav;
+
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+
+import static org.bytedeco.ffmpeg.global.avcodec.av_packet_free;
+
+/**
+ * 解复用线程到解码任务的有界数据包队列。
+ * <p>
+ * 数据包写入后归队列所有，取出后由调用方释放；写入和取出时分别通知另一端，两端都不轮询。
+ */
+class PacketQueue {
+    private final ArrayDeque<AVPacket> packets = new ArrayDeque<>();
+    private final int capacity;
+    // 写入端已读到输入结尾
+    private boolean ended = false;
+
+    private volatile @Nullable Runnable packetListener;
+    private volatile @Nullable Runnable spaceListener;
+
+    PacketQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * 写入数据包后的回调，用于唤醒解码任务
+     */
+    void setPacketListener(@Nullable Runnable listener) {
+        this.packetListener = listener;
+    }
+
+    /**
+     * 取出数据包后的回调，用于唤醒解复用线程
+     */
+    void setSpaceListener(@Nullable Runnable listener) {
+        this.spaceListener = listener;
+    }
+
+    synchronized boolean isFull() {
+        return packets.size() >= capacity;
+    }
+
+    void offer(AVPacket packet) {
+        synchronized (this) {
+            packets.add(packet);
+        }
+        notify(packetListener);
+    }
+
+    @Nullable AVPacket poll() {
+        AVPacket packet;
+        synchronized (this) {
+            packet = packets.poll();
+        }
+        if (packet != null) {
+            notify(spaceListener);
+        }
+        return packet;
+    }
+
+    /**
+     * 标记输入已读完，队列取空后解码器应进入冲刷
+     */
+    void setEnded() {
+        synchronized (this) {
+            ended = true;
+        }
+        notify(packetListener);
+    }
+
+    synchronized boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * 释放所有数据包并清除结尾标记
+     */
+    void clear() {
+        synchronized (this) {
+            AVPacket packet;
+            while ((packet = packets.poll()) != null) {
+                av_packet_free(packet);
+            }
+            ended = false;
+        }
+        notify(spaceListener);
+    }
+
+    private static void notify(@Nullable Runnable listener) {
+        if (listener != null) {
+            listener.run();
+        }
+    }
+}
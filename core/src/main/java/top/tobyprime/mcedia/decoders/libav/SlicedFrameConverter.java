@@ -0,0 +1,265 @@
+package top.tobyprime.mcedia.decoders.libav;
+
+import org.bytedeco.ffmpeg.avutil.AVFrame;
+import org.bytedeco.ffmpeg.swscale.SwsContext;
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.DoublePointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacpp.PointerPointer;
+import org.slf4j.LoggerFactory;
+import top.tobyprime.mcedia.Configs;
+import top.tobyprime.mcedia.decoders.VideoFrame;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.bytedeco.ffmpeg.global.avutil.*;
+import static org.bytedeco.ffmpeg.global.swscale.*;
+
+/**
+ * 把解码帧转换为 RGBA 或紧密排列的 YUV 平面的流水线阶段。
+ * <p>
+ * 不缩放时每帧按行切成若干片，在所有播放器共用的有界 ForkJoin 线程池上并行转换，直接写入调用方提供的缓冲区；
+ * 缩放时切片各自取整目标行、在边缘截断滤波，会产生比例不一和接缝，因此整帧交给一个 SwsContext，由 sws 自己的 threads 选项并行。
+ * 每个切片使用各自的 SwsContext 和指针数组，按同时转换的帧数各备一组，正在转换的帧不与下一帧共用。
+ */
+public class SlicedFrameConverter implements Closeable {
+    // 切片不小于该行数，小画面不值得拆分
+    private static final int MIN_SLICE_ROWS = 64;
+    // 切片起始行按该值对齐，保证色度抽样的行不被拆开
+    private static final int SLICE_ALIGN = 16;
+    private static volatile ForkJoinPool pool;
+
+    // 每组供一帧使用，转换完成后才能被下一帧复用
+    private final SliceSet[] sets;
+
+    /**
+     * 一帧转换用到的全部切片状态
+     */
+    private static class SliceSet {
+        private SwsContext[] contexts = new SwsContext[0];
+        private PointerPointer<?>[] srcPlanes = new PointerPointer<?>[0];
+        private PointerPointer<?>[] dstPlanes = new PointerPointer<?>[0];
+        private IntPointer[] dstStrides = new IntPointer[0];
+        // 缩放用的整帧上下文及其参数：源宽高格式、目标宽高格式、flags
+        private SwsContext scaler;
+        private final int[] scalerKey = new int[7];
+        private CompletableFuture<Void> inFlight;
+
+        boolean isFree() {
+            return inFlight == null || inFlight.isDone();
+        }
+
+        void ensureSlices(int count) {
+            if (contexts.length >= count) return;
+            var newContexts = new SwsContext[count];
+            System.arraycopy(contexts, 0, newContexts, 0, contexts.length);
+            contexts = newContexts;
+            closePointers();
+            srcPlanes = new PointerPointer<?>[count];
+            dstPlanes = new PointerPointer<?>[count];
+            dstStrides = new IntPointer[count];
+            for (int i = 0; i < count; i++) {
+                srcPlanes[i] = new PointerPointer<>(AV_NUM_DATA_POINTERS);
+                dstPlanes[i] = new PointerPointer<>(4);
+                dstStrides[i] = new IntPointer(4);
+            }
+        }
+
+        private void closePointers() {
+            for (int i = 0; i < srcPlanes.length; i++) {
+                srcPlanes[i].close();
+                dstPlanes[i].close();
+                dstStrides[i].close();
+            }
+        }
+
+        void close() {
+            if (scaler != null) {
+                sws_freeContext(scaler);
+                scaler = null;
+            }
+            for (int i = 0; i < contexts.length; i++) {
+                if (contexts[i] != null) {
+                    sws_freeContext(contexts[i]);
+                    contexts[i] = null;
+                }
+            }
+            closePointers();
+            srcPlanes = new PointerPointer<?>[0];
+            dstPlanes = new PointerPointer<?>[0];
+            dstStrides = new IntPointer[0];
+        }
+    }
+
+    /**
+     * @param maxInFlight 同时转换的帧数上限
+     */
+    public SlicedFrameConverter(int maxInFlight) {
+        sets = new SliceSet[Math.max(1, maxInFlight)];
+        for (int i = 0; i < sets.length; i++) {
+            sets[i] = new SliceSet();
+        }
+    }
+
+    private static ForkJoinPool getPool() {
+        if (pool == null) {
+            synchronized (SlicedFrameConverter.class) {
+                if (pool == null) {
+                    int threads = Math.max(1, Configs.CONVERTER_THREADS);
+                    pool = new ForkJoinPool(threads, p -> {
+                        var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                        thread.setName("Mcedia-Convert-" + thread.getPoolIndex());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, null, false);
+                    LoggerFactory.getLogger(SlicedFrameConverter.class).info("RGBA 转换线程数: {}", threads);
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * 异步转换整帧，按 dst 的尺寸缩放、按 dst 的格式输出
+     *
+     * @param frame 调用方持有的帧引用，完成前不能释放
+     * @param dst   目标帧
+     * @throws IllegalStateException 正在转换的帧数已达上限
+     */
+    public CompletableFuture<Void> convertAsync(AVFrame frame, VideoFrame dst) {
+        SliceSet set = null;
+        for (var candidate : sets) {
+            if (candidate.isFree()) {
+                set = candidate;
+                break;
+            }
+        }
+        if (set == null) {
+            throw new IllegalStateException("Too many frames in flight: " + sets.length);
+        }
+        int srcHeight = frame.height();
+        int dstHeight = dst.height;
+        var pool = getPool();
+        var target = set;
+        if (dst.width != frame.width() || dstHeight != srcHeight) {
+            set.ensureSlices(1);
+            set.inFlight = CompletableFuture.runAsync(() -> convertScaled(target, frame, dst), pool);
+            return set.inFlight;
+        }
+
+        int sliceCount = Math.max(1, Math.min(Math.max(1, Configs.CONVERTER_THREADS), srcHeight / MIN_SLICE_ROWS));
+        set.ensureSlices(sliceCount);
+
+        var slices = new CompletableFuture<?>[sliceCount];
+        for (int i = 0; i < sliceCount; i++) {
+            int slice = i;
+            // 按对齐切分，最后一片补齐剩余行
+            int y = alignDown(i * srcHeight / sliceCount);
+            int end = i == sliceCount - 1 ? srcHeight : alignDown((i + 1) * srcHeight / sliceCount);
+            slices[i] = CompletableFuture.runAsync(() -> convertSlice(target, frame, slice, y, end - y, dst), pool);
+        }
+        set.inFlight = CompletableFuture.allOf(slices);
+        return set.inFlight;
+    }
+
+    private static int pixelFormat(VideoFrame frame) {
+        return switch (frame.format) {
+            case RGBA -> AV_PIX_FMT_RGBA;
+            case I420 -> frame.fullRange ? AV_PIX_FMT_YUVJ420P : AV_PIX_FMT_YUV420P;
+            case NV12 -> AV_PIX_FMT_NV12;
+        };
+    }
+
+    private static int alignDown(int row) {
+        return row / SLICE_ALIGN * SLICE_ALIGN;
+    }
+
+    /**
+     * 整帧缩放，参数变化时重建上下文
+     */
+    private static void convertScaled(SliceSet set, AVFrame frame, VideoFrame dst) {
+        int format = frame.format();
+        int dstFormat = pixelFormat(dst);
+        // 缩小时用区域平均，避免远处画面闪烁
+        int flags = dst.width < frame.width() || dst.height < frame.height() ? SWS_AREA : SWS_BILINEAR;
+        int[] key = {frame.width(), frame.height(), format, dst.width, dst.height, dstFormat, flags};
+        if (set.scaler == null || !Arrays.equals(set.scalerKey, key)) {
+            if (set.scaler != null) {
+                sws_freeContext(set.scaler);
+                set.scaler = null;
+            }
+            var context = sws_alloc_context();
+            av_opt_set_int(context, "srcw", key[0], 0);
+            av_opt_set_int(context, "srch", key[1], 0);
+            av_opt_set_int(context, "src_format", format, 0);
+            av_opt_set_int(context, "dstw", key[3], 0);
+            av_opt_set_int(context, "dsth", key[4], 0);
+            av_opt_set_int(context, "dst_format", dstFormat, 0);
+            av_opt_set_int(context, "sws_flags", flags, 0);
+            av_opt_set_int(context, "threads", Math.max(1, Configs.CONVERTER_THREADS), 0);
+            if (sws_init_context(context, null, null) < 0) {
+                sws_freeContext(context);
+                throw new IllegalStateException("Unsupported pixel format " + format);
+            }
+            set.scaler = context;
+            System.arraycopy(key, 0, set.scalerKey, 0, key.length);
+        }
+        scale(set, set.scaler, frame, 0, 0, frame.height(), dst);
+    }
+
+    private static void convertSlice(SliceSet set, AVFrame frame, int slice, int y, int rows, VideoFrame dst) {
+        int width = frame.width();
+        int format = frame.format();
+        var context = sws_getCachedContext(set.contexts[slice], width, rows, format, dst.width, rows, pixelFormat(dst),
+                SWS_BILINEAR, null, null, (DoublePointer) null);
+        if (context == null) {
+            throw new IllegalStateException("Unsupported pixel format " + format);
+        }
+        set.contexts[slice] = context;
+        scale(set, context, frame, slice, y, rows, dst);
+    }
+
+    /**
+     * 从源的第 y 行起转换 rows 行，写入目标的同一行起（缩放时 y 为 0）
+     */
+    private static void scale(SliceSet set, SwsContext context, AVFrame frame, int slice, int y, int rows, VideoFrame dst) {
+        int format = frame.format();
+        // 色度平面按抽样比例换算起始行
+        var descriptor = av_pix_fmt_desc_get(format);
+        int chromaShift = descriptor.log2_chroma_h();
+        int planes = av_pix_fmt_count_planes(format);
+        var src = set.srcPlanes[slice];
+        var srcStrides = frame.linesize();
+        for (int p = 0; p < planes; p++) {
+            int row = (p == 1 || p == 2) ? y >> chromaShift : y;
+            src.put(p, new BytePointer(frame.data(p)).position((long) row * srcStrides.get(p)));
+        }
+
+        // 目标的 YUV 色度平面高度减半
+        var dstPlane = set.dstPlanes[slice];
+        var strides = set.dstStrides[slice];
+        var base = new BytePointer(dst.buffer);
+        for (int p = 0; p < dst.format.planes(); p++) {
+            int row = p == 0 ? y : y >> 1;
+            dstPlane.put(p, new BytePointer(base).position(dst.planeOffset(p) + (long) row * dst.planeStride(p)));
+            strides.put(p, dst.planeStride(p));
+        }
+        int ret = sws_scale(context, src, srcStrides, 0, rows, dstPlane, strides);
+        if (ret <= 0) {
+            throw new IllegalStateException("sws_scale failed: " + ret);
+        }
+    }
+
+    /**
+     * 释放切片上下文，调用前所有转换必须已经完成
+     */
+    @Override
+    public void close() {
+        for (var set : sets) {
+            set.close();
+        }
+    }
+}
@@ -2,17 +2,13 @@ package top.tobyprime.mcedia.interfaces;
 
 import top.tobyprime.mcedia.decoders.AudioBufferData;
 
-import java.io.Closeable;
-
-public interface IAudioData extends Closeable {
+public interface IAudioData extends IFrameData {
+    /**
+     * 混合为单声道的数据，返回的引用由调用方关闭
+     */
     AudioBufferData getMergedAudioData();
 
-    long getTimestamp();
-
     int getChannels();
 
     AudioBufferData getChannelAudioData(int channel);
-
-    @Override
-    public void close();
 }
@@ -4,6 +4,15 @@ import org.jetbrains.annotations.Nullable;
 import top.tobyprime.mcedia.decoders.AudioBufferData;
 
 public interface IAudioSource {
+    /**
+     * OpenAL 实际播放到的位置
+     *
+     * @param timestamp      正在播放的采样的显示时间戳 (微秒)
+     * @param sampledAtNanos 采样时的 {@link System#nanoTime()}
+     */
+    record PlaybackPosition(long timestamp, long sampledAtNanos) {
+    }
+
     float getLastX();
 
     float getLastY();
@@ -12,9 +21,33 @@ public interface IAudioSource {
 
     void upload(@Nullable AudioBufferData buffer);
 
+    void setPos(float x, float y, float z);
+
+    void setVolume(float volume);
+
+    void setRange(float min, float max);
+
     void setPitch(float pitch);
 
     void clearBuffer();
 
+    /**
+     * 提交暂存的数据，没有后续数据时调用
+     */
+    default void flush() {
+    }
+
+    /**
+     * 除默认提前量外还需要提前上传的时长 (微秒)
+     */
+    default long getLeadUs() {
+        return 0;
+    }
+
     int getId();
+
+    /**
+     * 最近一次查询到的播放位置，没有正在播放的缓冲时为 null
+     */
+    @Nullable PlaybackPosition getPlaybackPosition();
 }
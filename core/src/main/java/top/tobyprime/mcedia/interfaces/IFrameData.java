@@ -0,0 +1,21 @@
+package top.tobyprime.mcedia.interfaces;
+
+import java.io.Closeable;
+
+/**
+ * 解码出的一帧音频或视频数据
+ */
+public interface IFrameData extends Closeable {
+    /**
+     * 显示时间戳 (微秒)
+     */
+    long getTimestamp();
+
+    /**
+     * 帧数据占用的堆外内存 (字节)
+     */
+    long getSizeInBytes();
+
+    @Override
+    void close();
+}
@@ -1,29 +1,54 @@
 package top.tobyprime.mcedia.interfaces;
 
-import org.jetbrains.annotations.Nullable;
+import top.tobyprime.mcedia.decoders.DecodeTier;
+import top.tobyprime.mcedia.decoders.FrameRing;
 
 import java.io.Closeable;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.function.Predicate;
 
 public interface IMediaDecoder extends Closeable {
 
     boolean isLiveStream();
 
+    /**
+     * 解码好的视频帧，按时间戳排序
+     */
+    FrameRing<? extends IVideoData> getVideoRing();
+
+    /**
+     * 解码好的音频帧，按时间戳排序
+     */
+    FrameRing<? extends IAudioData> getAudioRing();
+
+    /**
+     * 设置视频解码档位
+     */
+    void setDecodeTier(DecodeTier tier);
 
-    IVideoData peekVideo();
+    DecodeTier getDecodeTier();
 
-    IVideoData pollVideo();
+    /**
+     * 设置解码调度优先级，数值越小越优先
+     */
+    void setPriority(int priority);
 
-    @Nullable IVideoData pollVideoIf(Predicate<IVideoData> condition);
+    /**
+     * 设置解码预读可使用的堆外内存
+     * @param bytes 音视频队列合计的字节数
+     */
+    void setMemoryBudget(long bytes);
 
-    LinkedBlockingDeque<? extends IAudioData> getAudioQueue();
+    /**
+     * 设置视频输出尺寸，只缩小不放大
+     * @param width  0 表示原始宽度
+     * @param height 0 表示原始高度
+     */
+    void setOutputSize(int width, int height);
 
     /**
-     * 进入低开销模式
-     * @param lowOverhead
+     * 允许输出 YUV 平面帧（{@link top.tobyprime.mcedia.decoders.VideoFrame.Format#I420}/{@link top.tobyprime.mcedia.decoders.VideoFrame.Format#NV12}），
+     * 颜色转换交给纹理完成；不支持的解码器仍输出 RGBA
      */
-    void setLowOverhead(boolean lowOverhead);
+    void setYuvOutput(boolean enabled);
 
     /**
      * 解码结束
@@ -41,12 +66,12 @@ public interface IMediaDecoder extends Closeable {
     long getDuration();
 
     /**
-     * 宽度
+     * 原始宽度，不受输出尺寸影响
      */
     int getWidth();
 
     /**
-     * 高度
+     * 原始高度，不受输出尺寸影响
      */
     int getHeight();
 
@@ -20,6 +20,11 @@ public interface IMediaPlayerInstance {
      */
     public double isTargeting();
 
+    /**
+     * 播放器画面最近是否被渲染
+     */
+    public boolean isVisible();
+
     /**
      * 强制移除
      */
@@ -1,8 +1,38 @@
 package top.tobyprime.mcedia.interfaces;
 
 import org.jetbrains.annotations.Nullable;
+import top.tobyprime.mcedia.decoders.DirtyRegion;
 import top.tobyprime.mcedia.decoders.VideoFrame;
 
 public interface ITexture {
     void upload(@Nullable VideoFrame frame);
+
+    /**
+     * 只上传 region 内发生变化的部分，默认整帧上传
+     *
+     * @param region 非空的变化区域
+     */
+    default void upload(VideoFrame frame, DirtyRegion region) {
+        upload(frame);
+    }
+
+    /**
+     * 能否直接上传该格式的帧，解码器只在所有绑定的纹理都支持时输出 YUV
+     */
+    default boolean supportsFormat(VideoFrame.Format format) {
+        return format == VideoFrame.Format.RGBA;
+    }
+
+    /**
+     * 是否能跳过未变化的帧、只上传变化的区域；上传有一帧延迟的纹理不能跳过
+     */
+    default boolean supportsPartialUpload() {
+        return false;
+    }
+
+    /**
+     * 停止播放后调用，可以释放显存，下一帧到来时重新分配；可能在任意线程调用
+     */
+    default void release() {
+    }
 }
@@ -2,13 +2,6 @@ package top.tobyprime.mcedia.interfaces;
 
 import top.tobyprime.mcedia.decoders.VideoFrame;
 
-import java.io.Closeable;
-
-public interface IVideoData extends Closeable {
-    public long getTimestamp();
-
+public interface IVideoData extends IFrameData {
     VideoFrame toFrame();
-
-    @Override
-    public void close();
 }
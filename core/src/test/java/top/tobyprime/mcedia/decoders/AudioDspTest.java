@@ -0,0 +1,204 @@
+package top.tobyprime.mcedia.decoders;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 校验 {@link VectorAudioDsp} 各内核与对应的 xxxScalar 逐位一致（多相重采样只要求舍入误差内一致），
+ * 以及重采样不会读取 srcLength 之后的输入。长度取奇数，保证向量部分之后还有标量收尾
+ */
+class AudioDspTest {
+    private static final int[] LENGTHS = {1, 7, 63, 64, 65, 1001, 4099};
+    private static final float[] STEPS = {48000f / 44100f, 44100f / 48000f, 0.5f, 1f, 2f, 22050f / 48000f, 3.7f};
+    private static final int TAPS = 32;
+    private static final int PHASES = 64;
+    // 超出 srcLength 的部分填 NaN，一旦被读取就会出现在输出中
+    private static final int GUARD = 64;
+
+    private final Random random = new Random(7);
+
+    @BeforeAll
+    static void requireVectorModule() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(), "需要 --add-modules jdk.incubator.vector");
+        assumeTrue(VectorAudioDsp.isUsable());
+    }
+
+    private float[] randomFloats(int length) {
+        float[] data = new float[length];
+        for (int i = 0; i < length; i++) {
+            // 包含超出 -1 到 1 的值，覆盖 S16 截断
+            data[i] = random.nextFloat() * 2.5f - 1.25f;
+        }
+        return data;
+    }
+
+    @Test
+    void toFloatMatchesScalar() {
+        for (int length : LENGTHS) {
+            short[] src = new short[length];
+            for (int i = 0; i < length; i++) src[i] = (short) random.nextInt();
+            float[] expected = new float[length];
+            float[] actual = new float[length];
+            AudioDsp.toFloatScalar(src, expected, 0, length);
+            AudioDsp.toFloatScalar(src, actual, VectorAudioDsp.toFloat(src, actual, length), length);
+            assertArrayEquals(expected, actual, "length " + length);
+        }
+    }
+
+    @Test
+    void toS16MatchesScalar() {
+        for (int length : LENGTHS) {
+            float[] src = randomFloats(length);
+            short[] expected = new short[length];
+            short[] actual = new short[length];
+            AudioDsp.toS16Scalar(src, expected, 0, length);
+            AudioDsp.toS16Scalar(src, actual, VectorAudioDsp.toS16(src, actual, length), length);
+            assertArrayEquals(expected, actual, "length " + length);
+        }
+    }
+
+    @Test
+    void accumulateMatchesScalar() {
+        for (int length : LENGTHS) {
+            float[] src = randomFloats(length);
+            float[] expected = randomFloats(length);
+            float[] actual = expected.clone();
+            AudioDsp.accumulateScalar(src, expected, 0, length);
+            AudioDsp.accumulateScalar(src, actual, VectorAudioDsp.accumulate(src, actual, length), length);
+            assertArrayEquals(expected, actual, "length " + length);
+        }
+    }
+
+    @Test
+    void scaleMatchesScalar() {
+        for (int length : LENGTHS) {
+            float[] expected = randomFloats(length);
+            float[] actual = expected.clone();
+            AudioDsp.scaleScalar(expected, 0, length, 0.37f);
+            AudioDsp.scaleScalar(actual, VectorAudioDsp.scale(actual, length, 0.37f), length, 0.37f);
+            assertArrayEquals(expected, actual, "length " + length);
+        }
+    }
+
+    @Test
+    void downmixStereoMatchesScalar() {
+        for (int frames : LENGTHS) {
+            float[] src = randomFloats(frames * 2);
+            float[] expected = new float[frames];
+            float[] actual = new float[frames];
+            AudioDsp.downmixInterleavedScalar(src, 2, expected, 0, frames);
+            AudioDsp.downmixInterleavedScalar(src, 2, actual, VectorAudioDsp.downmixStereo(src, actual, frames), frames);
+            assertArrayEquals(expected, actual, "frames " + frames);
+        }
+    }
+
+    @Test
+    void upmixStereoMatchesScalar() {
+        for (int frames : LENGTHS) {
+            float[] src = randomFloats(frames);
+            float[] expected = new float[frames * 2];
+            float[] actual = new float[frames * 2];
+            AudioDsp.upmixInterleavedScalar(src, 2, expected, 0, frames);
+            AudioDsp.upmixInterleavedScalar(src, 2, actual, VectorAudioDsp.upmixStereo(src, actual, frames), frames);
+            assertArrayEquals(expected, actual, "frames " + frames);
+        }
+    }
+
+    @Test
+    void resampleLinearMatchesScalar() {
+        for (int length : LENGTHS) {
+            for (float step : STEPS) {
+                float[] src = guarded(length);
+                int count = AudioDsp.resampleOutputs(length, Integer.MAX_VALUE, step, 2);
+                float[] expected = new float[count];
+                float[] actual = new float[count];
+                AudioDsp.resampleLinearScalar(src, expected, 0, count, step);
+                AudioDsp.resampleLinearScalar(src, actual, VectorAudioDsp.resampleLinear(src, actual, count, step), count, step);
+                assertArrayEquals(expected, actual, "length " + length + " step " + step);
+                assertFinite(actual, "length " + length + " step " + step);
+            }
+        }
+    }
+
+    @Test
+    void resamplePolyphaseMatchesScalar() {
+        for (int length : LENGTHS) {
+            for (float step : STEPS) {
+                float[] bank = AudioDsp.polyphaseFilter(PHASES, TAPS, Math.min(1f, 1f / step));
+                float[] src = guarded(length);
+                int count = AudioDsp.resampleOutputs(length, Integer.MAX_VALUE, step, TAPS);
+                float[] expected = new float[count];
+                float[] actual = new float[count];
+                AudioDsp.resamplePolyphaseScalar(src, expected, 0, count, step, bank, PHASES, TAPS);
+                VectorAudioDsp.resamplePolyphase(src, actual, count, step, bank, PHASES, TAPS);
+                assertArrayEquals(expected, actual, 1e-5f, "length " + length + " step " + step);
+                assertFinite(actual, "length " + length + " step " + step);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, TAPS})
+    void resampleOutputsIsTheLongestRunInsideTheInput(int window) {
+        for (int length : LENGTHS) {
+            for (float step : STEPS) {
+                int count = AudioDsp.resampleOutputs(length, Integer.MAX_VALUE, step, window);
+                String message = "length " + length + " step " + step + " window " + window;
+                if (count > 0) {
+                    // 最后一个输出的窗口仍在输入内
+                    assertTrue((int) ((count - 1) * step) + window <= length, message);
+                }
+                // 再多一个输出窗口就会越界
+                assertTrue((int) (count * step) + window > length, message);
+            }
+        }
+    }
+
+    @Test
+    void resampleOutputsIsCappedByDestination() {
+        assertEquals(10, AudioDsp.resampleOutputs(1000, 10, 0.5f, 2));
+        assertEquals(0, AudioDsp.resampleOutputs(1, 100, 1f, 2));
+        assertEquals(0, AudioDsp.resampleOutputs(TAPS - 1, 100, 1f, TAPS));
+    }
+
+    /**
+     * 公开方法在目标数组正好放得下时也不越界，且不读 srcLength 之后的输入
+     */
+    @Test
+    void publicResamplersStayInsideTheInput() {
+        for (int length : LENGTHS) {
+            for (float step : STEPS) {
+                float[] src = guarded(length);
+                float[] dst = new float[(int) (length / step) + 2];
+                int count = AudioDsp.resampleLinear(src, length, dst, step);
+                assertFinite(Arrays.copyOf(dst, count), "linear length " + length + " step " + step);
+
+                float[] bank = AudioDsp.polyphaseFilter(PHASES, TAPS, Math.min(1f, 1f / step));
+                count = AudioDsp.resamplePolyphase(src, length, dst, step, bank, PHASES, TAPS);
+                assertFinite(Arrays.copyOf(dst, count), "polyphase length " + length + " step " + step);
+            }
+        }
+    }
+
+    private float[] guarded(int length) {
+        float[] src = Arrays.copyOf(randomFloats(length), length + GUARD);
+        Arrays.fill(src, length, src.length, Float.NaN);
+        return src;
+    }
+
+    private static void assertFinite(float[] data, String message) {
+        for (int i = 0; i < data.length; i++) {
+            assertTrue(Float.isFinite(data[i]), message + " at " + i);
+        }
+    }
+}
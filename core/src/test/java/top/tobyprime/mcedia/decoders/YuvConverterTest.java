@@ -0,0 +1,128 @@
+package top.tobyprime.mcedia.decoders;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用 4x4 的帧校验 {@link YuvConverter#toRgba}：左上 2x2 为中性色度的黑白棋盘，其余三个色度块为纯红、纯绿、纯蓝。
+ * 各色的 YUV 取值为对应标准下的量化结果，允许 ±1 的舍入误差
+ */
+class YuvConverterTest {
+    private static final int SIZE = 4;
+    private static final int TOLERANCE = 1;
+
+    /**
+     * 黑、白的 Y 值与红、绿、蓝的 YUV 值
+     */
+    private record Palette(int black, int white, int[] red, int[] green, int[] blue) {
+    }
+
+    private static final Palette BT601_LIMITED = new Palette(16, 235,
+            new int[]{81, 90, 240}, new int[]{145, 54, 34}, new int[]{41, 240, 110});
+    private static final Palette BT601_FULL = new Palette(0, 255,
+            new int[]{76, 85, 255}, new int[]{150, 44, 21}, new int[]{29, 255, 107});
+    private static final Palette BT709_LIMITED = new Palette(16, 235,
+            new int[]{63, 102, 240}, new int[]{173, 42, 26}, new int[]{32, 240, 118});
+    private static final Palette BT709_FULL = new Palette(0, 255,
+            new int[]{54, 99, 255}, new int[]{182, 30, 12}, new int[]{18, 255, 116});
+
+    static Stream<Arguments> cases() {
+        var builder = Stream.<Arguments>builder();
+        for (var format : new VideoFrame.Format[]{VideoFrame.Format.I420, VideoFrame.Format.NV12}) {
+            builder.add(Arguments.of(format, false, false, BT601_LIMITED));
+            builder.add(Arguments.of(format, true, false, BT601_FULL));
+            builder.add(Arguments.of(format, false, true, BT709_LIMITED));
+            builder.add(Arguments.of(format, true, true, BT709_FULL));
+        }
+        return builder.build();
+    }
+
+    @ParameterizedTest(name = "{0} fullRange={1} bt709={2}")
+    @MethodSource("cases")
+    void convertsKnownColors(VideoFrame.Format format, boolean fullRange, boolean bt709, Palette palette) {
+        var src = VideoFrame.allocate(format, SIZE, SIZE, fullRange, bt709);
+        try {
+            fill(src, palette);
+            var dst = YuvConverter.toRgba(src);
+            try {
+                assertEquals(VideoFrame.Format.RGBA, dst.format);
+                // 棋盘：左上、右下为黑，右上、左下为白
+                assertPixel(dst, 0, 0, 0, 0, 0);
+                assertPixel(dst, 1, 0, 255, 255, 255);
+                assertPixel(dst, 0, 1, 255, 255, 255);
+                assertPixel(dst, 1, 1, 0, 0, 0);
+                for (int row = 0; row < 2; row++) {
+                    for (int col = 2; col < 4; col++) {
+                        assertPixel(dst, col, row, 255, 0, 0);
+                    }
+                }
+                for (int row = 2; row < 4; row++) {
+                    for (int col = 0; col < 2; col++) {
+                        assertPixel(dst, col, row, 0, 255, 0);
+                    }
+                    for (int col = 2; col < 4; col++) {
+                        assertPixel(dst, col, row, 0, 0, 255);
+                    }
+                }
+            } finally {
+                dst.close();
+            }
+        } finally {
+            src.close();
+        }
+    }
+
+    private static void fill(VideoFrame frame, Palette palette) {
+        var buffer = frame.buffer;
+        int yBase = frame.planeOffset(0);
+        int yStride = frame.planeStride(0);
+        // 每个 2x2 色度块的 YUV，按块的行、列索引
+        int[][][] blocks = {
+                {null, palette.red()},
+                {palette.green(), palette.blue()}
+        };
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                int[] block = blocks[row >> 1][col >> 1];
+                int y = block != null ? block[0] : ((row + col) % 2 == 0 ? palette.black() : palette.white());
+                buffer.put(yBase + row * yStride + col, (byte) y);
+            }
+        }
+        for (int row = 0; row < SIZE / 2; row++) {
+            for (int col = 0; col < SIZE / 2; col++) {
+                int[] block = blocks[row][col];
+                int u = block != null ? block[1] : 128;
+                int v = block != null ? block[2] : 128;
+                if (frame.format == VideoFrame.Format.NV12) {
+                    int uv = frame.planeOffset(1) + row * frame.planeStride(1) + col * 2;
+                    buffer.put(uv, (byte) u);
+                    buffer.put(uv + 1, (byte) v);
+                } else {
+                    buffer.put(frame.planeOffset(1) + row * frame.planeStride(1) + col, (byte) u);
+                    buffer.put(frame.planeOffset(2) + row * frame.planeStride(2) + col, (byte) v);
+                }
+            }
+        }
+    }
+
+    private static void assertPixel(VideoFrame frame, int x, int y, int r, int g, int b) {
+        int o = y * frame.stride + x * 4;
+        int[] actual = {
+                frame.buffer.get(o) & 0xFF,
+                frame.buffer.get(o + 1) & 0xFF,
+                frame.buffer.get(o + 2) & 0xFF,
+                frame.buffer.get(o + 3) & 0xFF
+        };
+        String message = "pixel (" + x + ", " + y + ") = " + actual[0] + ", " + actual[1] + ", " + actual[2];
+        assertTrue(Math.abs(actual[0] - r) <= TOLERANCE, message);
+        assertTrue(Math.abs(actual[1] - g) <= TOLERANCE, message);
+        assertTrue(Math.abs(actual[2] - b) <= TOLERANCE, message);
+        assertEquals(255, actual[3], message);
+    }
+}
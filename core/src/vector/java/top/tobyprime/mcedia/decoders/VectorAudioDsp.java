@@ -0,0 +1,162 @@
+package top.tobyprime.mcedia.decoders;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link AudioDsp} 的向量实现，只处理整数个向量的部分，返回处理到的下标，剩余部分由调用方用标量完成。
+ * <p>
+ * 只能在 jdk.incubator.vector 模块已加载时引用。单独放在 vector 源码集中编译，其他代码编译时不需要该模块。
+ */
+final class VectorAudioDsp {
+    private static final VectorSpecies<Float> FLOAT = FloatVector.SPECIES_PREFERRED;
+    // 通道数与 FLOAT 相同的 short、int 向量
+    private static final VectorSpecies<Short> SHORT =
+            VectorSpecies.of(short.class, VectorShape.forBitSize(FLOAT.vectorBitSize() / 2));
+    private static final VectorSpecies<Integer> INT = VectorSpecies.of(int.class, FLOAT.vectorShape());
+    // 两个向量拼接后取偶数、奇数下标，越界的下标取自第二个向量
+    private static final VectorShuffle<Float> EVEN = VectorShuffle.iota(FLOAT, 0, 2, false);
+    private static final VectorShuffle<Float> ODD = VectorShuffle.iota(FLOAT, 1, 2, false);
+    // 每个采样重复两次，分别展开前半和后半
+    private static final VectorShuffle<Float> REPEAT_LOW = VectorShuffle.fromOp(FLOAT, i -> i / 2);
+    private static final VectorShuffle<Float> REPEAT_HIGH = VectorShuffle.fromOp(FLOAT, i -> FLOAT.length() / 2 + i / 2);
+    private static final FloatVector LANES = FloatVector.fromArray(FLOAT, iota(FLOAT.length()), 0);
+    // gather 只接受 int[] 下标表，每个线程复用一个
+    private static final ThreadLocal<int[]> GATHER_INDICES = ThreadLocal.withInitial(() -> new int[FLOAT.length()]);
+
+    private VectorAudioDsp() {
+    }
+
+    private static float[] iota(int length) {
+        float[] lanes = new float[length];
+        for (int i = 0; i < length; i++) {
+            lanes[i] = i;
+        }
+        return lanes;
+    }
+
+    static boolean isUsable() {
+        return FLOAT.length() > 1 && SHORT.length() == FLOAT.length() && INT.length() == FLOAT.length();
+    }
+
+    /**
+     * 抽头数不少于一个向量时多相重采样才值得向量化
+     */
+    static boolean fitsTaps(int taps) {
+        return taps >= FLOAT.length();
+    }
+
+    static int toFloat(short[] src, float[] dst, int length) {
+        int upper = FLOAT.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOAT.length()) {
+            var s = ShortVector.fromArray(SHORT, src, i);
+            var f = (FloatVector) s.convertShape(VectorOperators.S2F, FLOAT, 0);
+            f.mul(1f / 32768).intoArray(dst, i);
+        }
+        return i;
+    }
+
+    static int toS16(float[] src, short[] dst, int length) {
+        int upper = FLOAT.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOAT.length()) {
+            var f = FloatVector.fromArray(FLOAT, src, i).mul(32768f).max(-32768f).min(32767f);
+            var s = (ShortVector) f.convertShape(VectorOperators.F2S, SHORT, 0);
+            s.intoArray(dst, i);
+        }
+        return i;
+    }
+
+    static int accumulate(float[] src, float[] dst, int length) {
+        int upper = FLOAT.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOAT.length()) {
+            FloatVector.fromArray(FLOAT, dst, i).add(FloatVector.fromArray(FLOAT, src, i)).intoArray(dst, i);
+        }
+        return i;
+    }
+
+    static int scale(float[] data, int length, float gain) {
+        int upper = FLOAT.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOAT.length()) {
+            FloatVector.fromArray(FLOAT, data, i).mul(gain).intoArray(data, i);
+        }
+        return i;
+    }
+
+    /**
+     * 每次读入两个向量的交错采样，拆出左右声道后求平均
+     */
+    static int downmixStereo(float[] src, float[] dst, int frames) {
+        int upper = FLOAT.loopBound(frames);
+        int i = 0;
+        for (; i < upper; i += FLOAT.length()) {
+            var a = FloatVector.fromArray(FLOAT, src, i * 2);
+            var b = FloatVector.fromArray(FLOAT, src, i * 2 + FLOAT.length());
+            var left = a.rearrange(EVEN, b);
+            var right = a.rearrange(ODD, b);
+            left.add(right).mul(0.5f).intoArray(dst, i);
+        }
+        return i;
+    }
+
+    static int upmixStereo(float[] src, float[] dst, int frames) {
+        int upper = FLOAT.loopBound(frames);
+        int i = 0;
+        for (; i < upper; i += FLOAT.length()) {
+            var v = FloatVector.fromArray(FLOAT, src, i);
+            v.rearrange(REPEAT_LOW).intoArray(dst, i * 2);
+            v.rearrange(REPEAT_HIGH).intoArray(dst, i * 2 + FLOAT.length());
+        }
+        return i;
+    }
+
+    /**
+     * 按向量计算插值位置与权重，相邻两个输入采样用 gather 读取
+     */
+    static int resampleLinear(float[] src, float[] dst, int count, float step) {
+        int upper = FLOAT.loopBound(count);
+        int[] indices = GATHER_INDICES.get();
+        int i = 0;
+        for (; i < upper; i += FLOAT.length()) {
+            var pos = LANES.add(i).mul(step);
+            var index = (IntVector) pos.convertShape(VectorOperators.F2I, INT, 0);
+            var frac = pos.sub((FloatVector) index.convertShape(VectorOperators.I2F, FLOAT, 0));
+            index.intoArray(indices, 0);
+            var a = FloatVector.fromArray(FLOAT, src, 0, indices, 0);
+            var b = FloatVector.fromArray(FLOAT, src, 1, indices, 0);
+            a.add(b.sub(a).mul(frac)).intoArray(dst, i);
+        }
+        return i;
+    }
+
+    /**
+     * 每个输出的抽头按向量做乘加后归约，处理全部输出
+     */
+    static void resamplePolyphase(float[] src, float[] dst, int count, float step, float[] bank, int phases, int taps) {
+        int tapUpper = FLOAT.loopBound(taps);
+        for (int i = 0; i < count; i++) {
+            float pos = i * step;
+            int index = (int) pos;
+            int phase = Math.min(phases - 1, (int) ((pos - index) * phases));
+            int h = phase * taps;
+            var acc = FloatVector.zero(FLOAT);
+            int t = 0;
+            for (; t < tapUpper; t += FLOAT.length()) {
+                acc = FloatVector.fromArray(FLOAT, src, index + t).fma(FloatVector.fromArray(FLOAT, bank, h + t), acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; t < taps; t++) {
+                sum += src[index + t] * bank[h + t];
+            }
+            dst[i] = sum;
+        }
+    }
+}
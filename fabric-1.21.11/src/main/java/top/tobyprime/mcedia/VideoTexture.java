@@ -2,17 +2,16 @@ package top.tobyprime.mcedia;
 
 import com.mojang.blaze3d.opengl.GlStateManager;
 import com.mojang.blaze3d.opengl.GlTexture;
-import com.mojang.blaze3d.systems.GpuDevice;
 import com.mojang.blaze3d.systems.RenderSystem;
-import com.mojang.blaze3d.textures.GpuTexture;
-import com.mojang.blaze3d.textures.TextureFormat;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.texture.AbstractTexture;
 import net.minecraft.resources.Identifier;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import top.tobyprime.mcedia.decoders.DirtyRegion;
 import top.tobyprime.mcedia.decoders.VideoFrame;
+import top.tobyprime.mcedia.decoders.YuvConverter;
 import top.tobyprime.mcedia.interfaces.ITexture;
 
 import java.nio.ByteBuffer;
@@ -30,50 +29,127 @@ public class VideoTexture extends AbstractTexture implements ITexture {
     private final Identifier resourceLocation;
     private int pboIndex = 0;
     private boolean pboInitialized = false;
+    private long pboSize = 0;
+    // 持久映射的上传缓冲区，驱动不支持时为 null，使用双 PBO
+    private final @Nullable PboUploadRing uploadRing;
+    // YUV 帧的平面纹理和转换着色器，首次收到 YUV 帧时创建
+    private @Nullable YuvTextureConverter yuvConverter;
+    // 从 VideoTexturePool 借出的纹理，收到第一帧时借出，停止播放后归还
+    private @Nullable VideoTexturePool.Lease lease;
+    // 每次上传加一，归还请求发出后又有上传说明纹理已被新的播放使用
+    private volatile int uploadCount = 0;
+    // 上传缓冲区忙而跳过了一帧，纹理内容落后，下一帧整帧上传
+    private boolean contentStale = false;
 
     public VideoTexture(Identifier id) {
         super();
         this.resourceLocation = id;
         Minecraft.getInstance().getTextureManager().register(id, this);
-        setSize(1920, 1080);
+        this.uploadRing = PboUploadRing.create();
     }
 
-    public void setSize(int width, int height) {
-        if (this.width != width || this.height != height) {
-            resize(width, height);
+    /**
+     * 按帧尺寸准备纹理，借出的纹理放得下时直接复用
+     *
+     * @return 是否换了纹理或改变了尺寸，此时纹理中没有可用的旧内容
+     */
+    public boolean setSize(int width, int height) {
+        if (lease != null && this.width == width && this.height == height) {
+            return false;
         }
+        resize(width, height);
+        return true;
     }
 
     public void resize(int width, int height) {
-        logger.info("修改尺寸 {}x{}", width, height);
         this.width = width;
         this.height = height;
+        if (lease == null || !VideoTexturePool.fits(lease, width, height)) {
+            releaseLease();
+            lease = VideoTexturePool.getInstance().acquire(width, height);
+            logger.info("修改尺寸 {}x{}，使用 {}x{} 的纹理", width, height, lease.width(), lease.height());
+            this.texture = lease.texture();
+            this.textureView = lease.view();
+        }
 
-        GpuDevice gpuDevice = RenderSystem.getDevice();
+        releasePbo();
+        if (uploadRing == null) {
+            initPBO(width * height * 4L);
+        }
+    }
 
-        int usage = GpuTexture.USAGE_TEXTURE_BINDING
-                | GpuTexture.USAGE_RENDER_ATTACHMENT
-                | GpuTexture.USAGE_COPY_SRC
-                | GpuTexture.USAGE_COPY_DST;
+    /**
+     * 把纹理归还到池中，下一帧到来时重新借出
+     */
+    private void releaseLease() {
+        if (lease == null) return;
+        VideoTexturePool.getInstance().release(lease);
+        lease = null;
+        this.texture = null;
+        this.textureView = null;
+    }
 
-        this.texture = gpuDevice.createTexture(resourceLocation::toString,
-                usage, TextureFormat.RGBA8, width, height, 1, 1);
-        this.textureView = gpuDevice.createTextureView(this.texture);
-//        this.setClamp(true);
-//        this.setFilter(true, false);
+    @Override
+    public void release() {
+        // 停止播放可能发生在任意线程
+        int requestedAt = uploadCount;
+        Minecraft.getInstance().execute(() -> {
+            if (uploadCount == requestedAt) {
+                releaseLease();
+                releaseUploadResources();
+            }
+        });
+    }
 
+    /**
+     * 释放上传用的 PBO、持久映射缓冲区和 YUV 转换资源，下次 resize 或上传时重新创建，只在渲染线程调用
+     */
+    private void releaseUploadResources() {
         releasePbo();
-        initPBO();
-        pboInitialized = true;
+        if (uploadRing != null) {
+            uploadRing.release();
+        }
+        if (yuvConverter != null) {
+            yuvConverter.close();
+            yuvConverter = null;
+        }
+    }
+
+    /**
+     * 是否已经借到纹理并可以绘制
+     */
+    public boolean isAllocated() {
+        return lease != null;
     }
 
-    private void initPBO() {
+    /**
+     * 帧在纹理中的 U 坐标上限，纹理比帧大时小于 1
+     */
+    public float getMaxU() {
+        return lease == null ? 1 : maxCoord(width, lease.width());
+    }
+
+    /**
+     * 帧在纹理中的 V 坐标上限，纹理比帧大时小于 1
+     */
+    public float getMaxV() {
+        return lease == null ? 1 : maxCoord(height, lease.height());
+    }
+
+    private static float maxCoord(int content, int size) {
+        // 内缩半个像素，线性过滤时不采样到帧外的旧内容
+        return content >= size ? 1 : (content - 0.5f) / size;
+    }
+
+    private void initPBO(long size) {
         glGenBuffers(pboIds);
         for (int i = 0; i < 2; i++) {
             glBindBuffer(GL_PIXEL_UNPACK_BUFFER, pboIds[i]);
-            glBufferData(GL_PIXEL_UNPACK_BUFFER, width * height * 4L, GL_STREAM_DRAW);
+            glBufferData(GL_PIXEL_UNPACK_BUFFER, size, GL_STREAM_DRAW);
         }
         glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        pboSize = size;
+        pboInitialized = true;
     }
 
     public Identifier getResourceLocation() {
@@ -83,8 +159,17 @@ public class VideoTexture extends AbstractTexture implements ITexture {
 
     /**
      * 异步上传 RGBA buffer 使用 PBO 双缓冲
+     *
+     * @param stride 每行字节数，行尾填充由 GL_UNPACK_ROW_LENGTH 跳过，无需在 CPU 上去除
+     */
+    public void uploadBuffer(ByteBuffer buffer, int stride) {
+        uploadBuffer(buffer, stride, DirtyRegion.full(width, height));
+    }
+
+    /**
+     * 只上传 region 内的部分，双 PBO 时上传的是上一帧的数据，仍整帧上传
      */
-    public void uploadBuffer(ByteBuffer buffer) {
+    public void uploadBuffer(ByteBuffer buffer, int stride, DirtyRegion region) {
         buffer.rewind();
         if (!buffer.isDirect()) {
             throw new IllegalArgumentException("ByteBuffer 必须是 direct 类型");
@@ -93,6 +178,16 @@ public class VideoTexture extends AbstractTexture implements ITexture {
             return;
         }
 
+        if (uploadRing != null) {
+            uploadFromRing(buffer, stride, region);
+            return;
+        }
+
+        if (buffer.remaining() > pboSize) {
+            releasePbo();
+            initPBO(buffer.remaining());
+        }
+
         // 当前 PBO
         int currPBO = pboIds[pboIndex];
         int nextPBO = pboIds[(pboIndex + 1) % 2];
@@ -113,7 +208,7 @@ public class VideoTexture extends AbstractTexture implements ITexture {
         // 绑定纹理 + 上一 PBO 异步上传到 GPU
         GlStateManager._bindTexture(((GlTexture) this.texture).glId());
         GlStateManager._pixelStore(GL_UNPACK_ALIGNMENT, 1);
-        GlStateManager._pixelStore(GL_UNPACK_ROW_LENGTH, 0);
+        GlStateManager._pixelStore(GL_UNPACK_ROW_LENGTH, stride / 4);
         GlStateManager._pixelStore(GL_UNPACK_SKIP_ROWS, 0);
 
         glBindBuffer(GL_PIXEL_UNPACK_BUFFER, nextPBO);
@@ -125,18 +220,98 @@ public class VideoTexture extends AbstractTexture implements ITexture {
 
         // 解绑
         glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        GlStateManager._pixelStore(GL_UNPACK_ROW_LENGTH, 0);
+    }
+
+    /**
+     * 拷进持久映射缓冲区的下一个槽，直接从该槽上传；只拷贝和上传变化区域所在的行和矩形
+     */
+    private void uploadFromRing(ByteBuffer buffer, int stride, DirtyRegion region) {
+        long from = (long) region.top() * stride;
+        long to = Math.min((long) region.bottom() * stride, buffer.remaining());
+        long offset = uploadRing.write(buffer, from, to - from);
+        if (offset == PboUploadRing.BUSY) {
+            contentStale = true;
+            return;
+        }
+
+        GlStateManager._bindTexture(((GlTexture) this.texture).glId());
+        GlStateManager._pixelStore(GL_UNPACK_ALIGNMENT, 1);
+        GlStateManager._pixelStore(GL_UNPACK_ROW_LENGTH, stride / 4);
+        GlStateManager._pixelStore(GL_UNPACK_SKIP_ROWS, 0);
+
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, uploadRing.buffer());
+        for (int i = 0; i < region.count(); i++) {
+            glTexSubImage2D(GL_TEXTURE_2D, 0, region.x(i), region.y(i), region.width(i), region.height(i),
+                    GL_RGBA, GL_UNSIGNED_BYTE, offset + (long) region.y(i) * stride + region.x(i) * 4L);
+        }
+        uploadRing.fence();
+
+        glBindBuffer(GL_PIXEL_UNPACK_BUFFER, 0);
+        GlStateManager._pixelStore(GL_UNPACK_ROW_LENGTH, 0);
     }
 
     @Override
     public void upload(@Nullable VideoFrame frame) {
         if (frame == null) return;
+        upload(frame, DirtyRegion.full(frame.width, frame.height));
+    }
 
-        setSize(frame.width, frame.height);
+    @Override
+    public void upload(VideoFrame frame, DirtyRegion region) {
+        if (setSize(frame.width, frame.height) || contentStale) {
+            // 换了纹理或尺寸，或上一帧被跳过，没有可复用的旧内容
+            region = DirtyRegion.full(frame.width, frame.height);
+            contentStale = false;
+        }
+        uploadCount++;
         RenderSystem.assertOnRenderThread();
+        if (frame.format.isYuv()) {
+            uploadYuv(frame, region);
+        } else {
+            uploadBuffer(frame.buffer, frame.stride, region);
+        }
+        frame.close();
+    }
 
+    @Override
+    public boolean supportsFormat(VideoFrame.Format format) {
+        return !format.isYuv() || YuvTextureConverter.isAvailable();
+    }
 
-        uploadBuffer(frame.buffer);
-        frame.close();
+    @Override
+    public boolean supportsPartialUpload() {
+        return uploadRing != null;
+    }
+
+    /**
+     * YUV 平面由着色器转换进纹理，着色器不可用时在 CPU 上转换后按 RGBA 整帧上传
+     */
+    private void uploadYuv(VideoFrame frame, DirtyRegion region) {
+        if (this.texture == null) {
+            return;
+        }
+        if (yuvConverter == null) {
+            yuvConverter = new YuvTextureConverter();
+        }
+        boolean converted;
+        if (uploadRing != null) {
+            frame.buffer.rewind();
+            long offset = uploadRing.write(frame.buffer);
+            if (offset == PboUploadRing.BUSY) {
+                contentStale = true;
+                return;
+            }
+            converted = yuvConverter.convert(frame, ((GlTexture) this.texture).glId(), uploadRing.buffer(), offset, region);
+            uploadRing.fence();
+        } else {
+            converted = yuvConverter.convert(frame, ((GlTexture) this.texture).glId(), region);
+        }
+        if (!converted) {
+            try (var rgba = YuvConverter.toRgba(frame)) {
+                uploadBuffer(rgba.buffer, rgba.stride);
+            }
+        }
     }
 
     public void releasePbo() {
@@ -144,11 +319,13 @@ public class VideoTexture extends AbstractTexture implements ITexture {
         if (pboInitialized) {
             glDeleteBuffers(pboIds);
             pboInitialized = false;
+            pboSize = 0;
         }
     }
 
     public void close() {
-        releasePbo();
+        releaseUploadResources();
+        releaseLease();
         super.close();
     }
 }
@@ -9,6 +9,8 @@ import net.minecraft.client.renderer.rendertype.RenderTypes;
 import net.minecraft.client.renderer.texture.OverlayTexture;
 import net.minecraft.resources.Identifier;
 import net.minecraft.util.Mth;
+import net.minecraft.world.phys.Vec3;
+import org.joml.Quaternionf;
 import org.joml.Vector3f;
 import top.tobyprime.mcedia.Configs;
 import top.tobyprime.mcedia.VideoTexture;
@@ -25,13 +27,17 @@ public class MediaPlayerScreen implements IMediaPlayerScreenRenderer {
     private float halfW = 1.777f;
 
     private void renderScreen(VideoTexture texture, PoseStack poseStack, MultiBufferSource bufferSource, int i, MediaPlayer player) {
-        VertexConsumer consumer = bufferSource.getBuffer(RenderTypes.entityCutoutNoCull((player.getMedia() != null) ? texture.getResourceLocation() : idleScreen));
+        boolean showVideo = player.getMedia() != null && texture.isAllocated();
+        VertexConsumer consumer = bufferSource.getBuffer(RenderTypes.entityCutoutNoCull(showVideo ? texture.getResourceLocation() : idleScreen));
+        // 纹理可能比帧大，只取帧所在的部分
+        float maxU = showVideo ? texture.getMaxU() : 1;
+        float maxV = showVideo ? texture.getMaxV() : 1;
 
         var matrix = poseStack.last().pose();
 
-        consumer.addVertex(matrix, -halfW, -1, 0).setLight(i).setUv(0, 1).setColor(-1).setOverlay(OverlayTexture.NO_OVERLAY).setNormal(0, 0, 1);
-        consumer.addVertex(matrix, halfW, -1, 0).setLight(i).setUv(1, 1).setColor(-1).setOverlay(OverlayTexture.NO_OVERLAY).setNormal(0, 0, 1);
-        consumer.addVertex(matrix, halfW, 1, 0).setLight(i).setUv(1, 0).setColor(-1).setOverlay(OverlayTexture.NO_OVERLAY).setNormal(0, 0, 1);
+        consumer.addVertex(matrix, -halfW, -1, 0).setLight(i).setUv(0, maxV).setColor(-1).setOverlay(OverlayTexture.NO_OVERLAY).setNormal(0, 0, 1);
+        consumer.addVertex(matrix, halfW, -1, 0).setLight(i).setUv(maxU, maxV).setColor(-1).setOverlay(OverlayTexture.NO_OVERLAY).setNormal(0, 0, 1);
+        consumer.addVertex(matrix, halfW, 1, 0).setLight(i).setUv(maxU, 0).setColor(-1).setOverlay(OverlayTexture.NO_OVERLAY).setNormal(0, 0, 1);
         consumer.addVertex(matrix, -halfW, 1, 0).setLight(i).setUv(0, 0).setColor(-1).setOverlay(OverlayTexture.NO_OVERLAY).setNormal(0, 0, 1);
     }
 
@@ -162,6 +168,24 @@ public class MediaPlayerScreen implements IMediaPlayerScreenRenderer {
         }
     }
 
+    @Override
+    public float getWorldHeight() {
+        return Height * 2;
+    }
+
+    @Override
+    public Vec3[] getCorners(Vec3 origin, Quaternionf rotation) {
+        // 与 render 中的变换一致，底边算上进度条
+        float bottom = -1 - 1f / 50;
+        float[][] local = {{-halfW, bottom}, {halfW, bottom}, {halfW, 1}, {-halfW, 1}};
+        var corners = new Vec3[4];
+        for (int c = 0; c < 4; c++) {
+            var point = new Vector3f(local[c][0], local[c][1], 0).mul(Height).add(offset).rotate(rotation);
+            corners[c] = origin.add(point.x, point.y, point.z);
+        }
+        return corners;
+    }
+
     @Override
     public void render(VideoTexture texture, MediaPlayer player, PoseStack poseStack, MultiBufferSource bufferSource, int i) {
         halfW = player.getAspectRatio();
@@ -175,7 +199,8 @@ public class MediaPlayerScreen implements IMediaPlayerScreenRenderer {
         renderScreen(texture, poseStack, bufferSource, i, player);
         renderDanmaku(poseStack, bufferSource, i, player);
 
-        if (player.status == PlayerStatus.LOADING_MEDIA || player.status == PlayerStatus.LOADING_MEDIA_INFO) {
+        var status = player.getStatus();
+        if (status == PlayerStatus.LOADING_MEDIA || status == PlayerStatus.LOADING_MEDIA_INFO || status == PlayerStatus.BUFFERING) {
             renderLoadingBar(poseStack, bufferSource, i);
         }
 
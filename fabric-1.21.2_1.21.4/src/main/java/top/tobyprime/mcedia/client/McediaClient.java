@@ -9,6 +9,7 @@ import net.fabricmc.loader.api.FabricLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import top.tobyprime.mcedia.Configs;
+import top.tobyprime.mcedia.Utils;
 import top.tobyprime.mcedia.bilibili.BilibiliAuthManager;
 import top.tobyprime.mcedia.bilibili.BilibiliCookie;
 import top.tobyprime.mcedia.commands.CommandBilibili;
@@ -16,7 +17,9 @@ import top.tobyprime.mcedia.commands.CommandOption;
 import top.tobyprime.mcedia.commands.CommandControl;
 import top.tobyprime.mcedia.commands.CommandDanmakuOption;
 import top.tobyprime.mcedia.compat.SoundPhysicsRemasteredCompat;
+import top.tobyprime.mcedia.core.AudioCommandBuffer;
 import top.tobyprime.mcedia.core.PlayerInstanceManagerRegistry;
+import top.tobyprime.mcedia.core.VoiceManager;
 import top.tobyprime.mcedia.entities.MediaPlayerAgentEntity;
 import top.tobyprime.mcedia.player_instance_managers.ArmorStandPlayerManager;
 import top.tobyprime.mcedia.renderers.MediaPlayerAgentEntityRenderer;
@@ -65,7 +68,15 @@ public class McediaClient implements ClientModInitializer {
 
         EntityRendererRegistry.register(MediaPlayerAgentEntity.TYPE, MediaPlayerAgentEntityRenderer::new);
 
-        ClientTickEvents.END_CLIENT_TICK.register(client -> PlayerInstanceManagerRegistry.getInstance().update());
+        ClientTickEvents.END_CLIENT_TICK.register(client -> {
+            PlayerInstanceManagerRegistry.getInstance().update();
+            if (client.player != null) {
+                var listener = client.player.getEyePosition();
+                VoiceManager.getInstance().update(listener.x, listener.y, listener.z);
+            }
+            // 本 tick 内所有音源的属性变化合并为一个任务提交
+            AudioCommandBuffer.getInstance().flush(Utils.getAudioExecutor()::schedule);
+        });
 
         ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> {
             CommandBilibili.register(dispatcher);
@@ -1,5 +1,6 @@
 package top.tobyprime.mcedia.entities;
 
+import net.minecraft.client.Minecraft;
 import net.minecraft.core.Registry;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.core.registries.Registries;
@@ -11,12 +12,16 @@ import net.minecraft.world.damagesource.DamageSource;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.MobCategory;
+import net.minecraft.world.level.ClipContext;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.storage.ValueInput;
 import net.minecraft.world.level.storage.ValueOutput;
+import net.minecraft.world.phys.HitResult;
+import net.minecraft.world.phys.Vec3;
 import org.jetbrains.annotations.Nullable;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
+import top.tobyprime.mcedia.Configs;
 import top.tobyprime.mcedia.VideoTexture;
 import top.tobyprime.mcedia.core.AudioSourceInstance;
 import top.tobyprime.mcedia.core.MediaPlayer;
@@ -36,6 +41,10 @@ public class MediaPlayerAgentEntity extends Entity {
     public final ArrayList<AudioSourceInstance> audioSources = new ArrayList<>();
     public VideoTexture texture = new VideoTexture(ResourceLocation.fromNamespaceAndPath("mcedia", "player_agent" + this.stringUUID));
     public Quaternionf rotation = new Quaternionf();
+    // 每隔几 tick 重新做一次遮挡检测
+    private static final int OCCLUSION_CHECK_INTERVAL = 4;
+    public volatile long lastRenderNanos = 0;
+    private boolean occluded = false;
 
     public MediaPlayerAgentEntity(EntityType<?> entityType, Level level) {
         super(entityType, level);
@@ -90,6 +99,45 @@ public class MediaPlayerAgentEntity extends Entity {
         return player;
     }
 
+    /**
+     * 超过 {@link Configs#SCREEN_CULL_GRACE_MS} 没有被渲染则认为不可见
+     */
+    public boolean isRecentlyRendered() {
+        return System.nanoTime() - lastRenderNanos < Configs.SCREEN_CULL_GRACE_MS * 1_000_000L;
+    }
+
+    /**
+     * 所有屏幕是否都被方块挡住，在 tick 中更新
+     */
+    public boolean isOccluded() {
+        return occluded;
+    }
+
+    /**
+     * 从玩家视点向每块屏幕的中心和四角（略向内收）发射射线，全部被方块挡住才算遮挡
+     */
+    private boolean computeOccluded() {
+        var viewer = Minecraft.getInstance().player;
+        if (!Configs.SCREEN_OCCLUSION_CULLING || viewer == null || screens.isEmpty()) {
+            return false;
+        }
+        var eye = viewer.getEyePosition();
+        for (var screen : screens) {
+            var corners = screen.getCorners(this.position(), rotation);
+            var center = corners[0].add(corners[2]).scale(0.5);
+            if (isReachable(eye, center, viewer)) return false;
+            for (var corner : corners) {
+                if (isReachable(eye, corner.lerp(center, 0.1), viewer)) return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isReachable(Vec3 from, Vec3 to, Entity viewer) {
+        var hit = level().clip(new ClipContext(from, to, ClipContext.Block.VISUAL, ClipContext.Fluid.NONE, viewer));
+        return hit.getType() == HitResult.Type.MISS;
+    }
+
 
     @Override
     public void onRemoval(RemovalReason removalReason) {
@@ -102,6 +150,9 @@ public class MediaPlayerAgentEntity extends Entity {
     @Override
     public void tick() {
         super.tick();
+        if (this.tickCount % OCCLUSION_CHECK_INTERVAL == 0) {
+            occluded = computeOccluded();
+        }
         this.audioSources.forEach(i -> {
             var audioOffsetRotated = new Vector3f(i.offsetX, i.offsetY, i.offsetZ).rotate(rotation);
 
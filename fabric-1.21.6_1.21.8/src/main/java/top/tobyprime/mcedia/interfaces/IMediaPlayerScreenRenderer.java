@@ -2,9 +2,24 @@ package top.tobyprime.mcedia.interfaces;
 
 import com.mojang.blaze3d.vertex.PoseStack;
 import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.world.phys.Vec3;
+import org.joml.Quaternionf;
 import top.tobyprime.mcedia.VideoTexture;
 import top.tobyprime.mcedia.core.MediaPlayer;
 
 public interface IMediaPlayerScreenRenderer {
     void render(VideoTexture texture, MediaPlayer player, PoseStack poseStack, MultiBufferSource bufferSource, int i);
+
+    /**
+     * 屏幕在世界中的高度（格）
+     */
+    float getWorldHeight();
+
+    /**
+     * 屏幕四个角的世界坐标，依次为左下、右下、右上、左上，用于剔除
+     *
+     * @param origin   播放器实体的位置
+     * @param rotation 播放器实体的朝向
+     */
+    Vec3[] getCorners(Vec3 origin, Quaternionf rotation);
 }
@@ -0,0 +1,102 @@
+package top.tobyprime.mcedia;
+
+import com.mojang.blaze3d.systems.GpuDevice;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.textures.GpuTexture;
+import com.mojang.blaze3d.textures.GpuTextureView;
+import com.mojang.blaze3d.textures.TextureFormat;
+
+import java.util.ArrayDeque;
+
+/**
+ * 视频纹理池，按尺寸档位借出 RGBA 纹理。
+ * <p>
+ * 播放器收到第一帧时才借出纹理，停止播放后归还；分辨率变化时已借出的纹理放得下就继续使用，由 UV 只取帧所在的部分。
+ * 空闲纹理超过 {@link Configs#TEXTURE_POOL_MAX_IDLE_MB} 时销毁最早归还的。只能在渲染线程使用。
+ */
+public class VideoTexturePool {
+    private static final VideoTexturePool INSTANCE = new VideoTexturePool();
+    // 纹理面积超过帧所在档位的这么多倍时不再复用，避免远处缩小的画面长期占着大纹理
+    private static final int MAX_OVERSIZE = 4;
+
+    /**
+     * 借出的纹理，width 和 height 为纹理的实际尺寸
+     */
+    public record Lease(GpuTexture texture, GpuTextureView view, int width, int height) {
+        long bytes() {
+            return (long) width * height * 4;
+        }
+    }
+
+    private final ArrayDeque<Lease> idle = new ArrayDeque<>();
+    private long idleBytes = 0;
+
+    public static VideoTexturePool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 尺寸档位：向上取整到最高位的 1/8，至少 64
+     */
+    public static int sizeClass(int size) {
+        int step = Math.max(64, Integer.highestOneBit(Math.max(1, size)) / 8);
+        return (size + step - 1) / step * step;
+    }
+
+    /**
+     * lease 能否继续用来显示 width x height 的帧
+     */
+    public static boolean fits(Lease lease, int width, int height) {
+        return lease.width() >= width && lease.height() >= height
+                && lease.bytes() <= (long) MAX_OVERSIZE * sizeClass(width) * sizeClass(height) * 4;
+    }
+
+    /**
+     * 借出能放下 width x height 的纹理，优先取空闲纹理中最小的
+     */
+    public Lease acquire(int width, int height) {
+        RenderSystem.assertOnRenderThread();
+        Lease best = null;
+        for (var lease : idle) {
+            if (fits(lease, width, height) && (best == null || lease.bytes() < best.bytes())) {
+                best = lease;
+            }
+        }
+        if (best != null) {
+            idle.remove(best);
+            idleBytes -= best.bytes();
+            return best;
+        }
+        return create(sizeClass(width), sizeClass(height));
+    }
+
+    public void release(Lease lease) {
+        RenderSystem.assertOnRenderThread();
+        idle.addLast(lease);
+        idleBytes += lease.bytes();
+        long limit = Configs.TEXTURE_POOL_MAX_IDLE_MB * 1024L * 1024L;
+        while (idleBytes > limit && !idle.isEmpty()) {
+            var oldest = idle.removeFirst();
+            idleBytes -= oldest.bytes();
+            destroy(oldest);
+        }
+    }
+
+    private static Lease create(int width, int height) {
+        GpuDevice gpuDevice = RenderSystem.getDevice();
+
+        int usage = GpuTexture.USAGE_TEXTURE_BINDING
+                | GpuTexture.USAGE_RENDER_ATTACHMENT
+                | GpuTexture.USAGE_COPY_SRC
+                | GpuTexture.USAGE_COPY_DST;
+
+        String label = "mcedia_video_" + width + "x" + height;
+        GpuTexture texture = gpuDevice.createTexture(() -> label, usage, TextureFormat.RGBA8, width, height, 1, 1);
+        return new Lease(texture, gpuDevice.createTextureView(texture), width, height);
+    }
+
+    private static void destroy(Lease lease) {
+        lease.view().close();
+        lease.texture().close();
+    }
+}
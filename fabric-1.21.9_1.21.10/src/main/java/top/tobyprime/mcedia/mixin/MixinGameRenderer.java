@@ -0,0 +1,19 @@
+package top.tobyprime.mcedia.mixin;
+
+import net.minecraft.client.renderer.GameRenderer;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import top.tobyprime.mcedia.core.VideoUploadScheduler;
+
+@Mixin(GameRenderer.class)
+public class MixinGameRenderer {
+    /**
+     * 每帧开始时上传上一帧画到的播放器，本帧绘制时使用新画面
+     */
+    @Inject(method = "render", at = @At("HEAD"))
+    public void render(CallbackInfo ci) {
+        VideoUploadScheduler.getInstance().flush();
+    }
+}
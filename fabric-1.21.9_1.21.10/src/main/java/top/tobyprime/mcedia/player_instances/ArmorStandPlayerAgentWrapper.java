@@ -155,7 +155,7 @@ public class ArmorStandPlayerAgentWrapper implements IMediaPlayerInstance {
         player = playerAgent.getPlayer();
         player.setDecoderConfiguration(new DecoderConfiguration(new DecoderConfiguration.Builder()));
         screen = new MediaPlayerScreen();
-        audioSourceInstance = new AudioSourceInstance(new AudioSource(Utils.getAudioExecutor()::schedule), 0, 0, 0, -1);
+        audioSourceInstance = new AudioSourceInstance(AudioSource.create(Utils.getAudioExecutor()::schedule), 0, 0, 0, -1);
 
         playerAgent.addScreen(screen);
         playerAgent.addAudioSource(audioSourceInstance);
@@ -301,7 +301,7 @@ public class ArmorStandPlayerAgentWrapper implements IMediaPlayerInstance {
 
         var mediaPlay = player.getMediaPlayAndOpen(mediaUrl, (media) -> {
             player.play();
-            media.seek(duration % media.getLength());
+            player.seek(duration % media.getLength());
             if (Configs.SHOW_LOAD_INFO)
                 Utils.msgToPlayer(poster + "播放: " + media.getMediaInfo().title);
         });
@@ -343,6 +343,11 @@ public class ArmorStandPlayerAgentWrapper implements IMediaPlayerInstance {
         return -1;
     }
 
+    @Override
+    public boolean isVisible() {
+        return playerAgent.isRecentlyRendered();
+    }
+
     @Override
     public void remove() {
         ArmorStandPlayerManager.getInstance().removePlayer(this.armorStand);
@@ -8,7 +8,10 @@ import net.minecraft.client.renderer.culling.Frustum;
 import net.minecraft.client.renderer.entity.EntityRenderer;
 import net.minecraft.client.renderer.entity.EntityRendererProvider;
 import net.minecraft.client.renderer.state.CameraRenderState;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
 import org.jetbrains.annotations.NotNull;
+import top.tobyprime.mcedia.core.VideoUploadScheduler;
 import top.tobyprime.mcedia.entities.MediaPlayerAgentEntity;
 
 public class MediaPlayerAgentEntityRenderer extends EntityRenderer<MediaPlayerAgentEntity, MediaPlayerScreenEntityRendererStatus> {
@@ -23,7 +26,7 @@ public class MediaPlayerAgentEntityRenderer extends EntityRenderer<MediaPlayerAg
         super.submit(status, poseStack, submitNodeCollector, cameraRenderState);
         MultiBufferSource.BufferSource bufferSource = Minecraft.getInstance().renderBuffers().bufferSource();
 
-        status.player.uploadVideo();
+        VideoUploadScheduler.getInstance().request(status.player);
         poseStack.pushPose();
         poseStack.mulPose(status.rotation);
 
@@ -34,16 +37,54 @@ public class MediaPlayerAgentEntityRenderer extends EntityRenderer<MediaPlayerAg
 
     @Override
     public boolean shouldRender(MediaPlayerAgentEntity entity, Frustum frustum, double d, double e, double f) {
-        return true;
+        // 实体本身的碰撞箱远小于屏幕，按屏幕四角的包围盒判断；不渲染时不上传视频、不排布弹幕，超过宽限期后只解码音频
+        if (entity.isOccluded()) return false;
+        for (var screen : entity.screens) {
+            if (frustum.isVisible(bounds(screen.getCorners(entity.position(), entity.rotation)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static AABB bounds(Vec3[] corners) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (var corner : corners) {
+            minX = Math.min(minX, corner.x);
+            minY = Math.min(minY, corner.y);
+            minZ = Math.min(minZ, corner.z);
+            maxX = Math.max(maxX, corner.x);
+            maxY = Math.max(maxY, corner.y);
+            maxZ = Math.max(maxZ, corner.z);
+        }
+        // 弹幕略微凸出屏幕平面
+        return new AABB(minX, minY, minZ, maxX, maxY, maxZ).inflate(0.05);
     }
 
     @Override
     public void extractRenderState(MediaPlayerAgentEntity entity, MediaPlayerScreenEntityRendererStatus status, float f) {
         super.extractRenderState(entity, status, f);
+        entity.lastRenderNanos = System.nanoTime();
         status.player = entity.getPlayer();
         status.screens = entity.screens;
         status.texture = entity.texture;
         status.rotation = entity.rotation;
+        status.player.updateProjectedHeight(projectedHeight(status));
+    }
+
+    /**
+     * 屏幕投影到窗口上的高度（像素），按最高的屏幕估算，不考虑倾斜
+     */
+    private static double projectedHeight(MediaPlayerScreenEntityRendererStatus status) {
+        float worldHeight = 0;
+        for (var screen : status.screens) {
+            worldHeight = Math.max(worldHeight, screen.getWorldHeight());
+        }
+        var minecraft = Minecraft.getInstance();
+        double distance = Math.max(0.5, Math.sqrt(status.distanceToCameraSq));
+        double fov = Math.toRadians(minecraft.options.fov().get());
+        return worldHeight / (2 * distance * Math.tan(fov / 2)) * minecraft.getWindow().getHeight();
     }
 
     @Override